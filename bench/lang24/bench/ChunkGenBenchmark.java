@@ -0,0 +1,33 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.imclin.*;
+
+/**
+ * Linearization of intermediate code, i.e., the chunk generator including
+ * the canonization of statements and the permutation of basic blocks.
+ */
+public class ChunkGenBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("imcgen");
+	}
+
+	/**
+	 * Linearizes intermediate code.
+	 */
+	@Benchmark
+	public void generateChunks() {
+		run(() -> {
+			try (final ImcLin imclin = new ImcLin()) {
+				Abstr.tree.get().accept(new ChunkGenerator(), null);
+			}
+		});
+	}
+
+}
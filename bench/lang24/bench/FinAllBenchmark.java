@@ -0,0 +1,43 @@
+package lang24.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.finall.*;
+
+/**
+ * Emission of MMIX assembly.
+ */
+public class FinAllBenchmark extends PhaseBenchmark {
+
+	/** The output file. */
+	private Path dstFile;
+
+	/**
+	 * Creates the output file.
+	 *
+	 * @throws IOException If the output file cannot be created.
+	 */
+	@Setup(Level.Trial)
+	public void prepareOutput() throws IOException {
+		dstFile = Files.createTempFile("lang24-bench-", ".mms");
+		dstFile.toFile().deleteOnExit();
+	}
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("regall");
+	}
+
+	/**
+	 * Emits the assembly file.
+	 */
+	@Benchmark
+	public void emitAsm() {
+		run(() -> new FinAll(dstFile.toString()).genAsmFile());
+	}
+
+}
@@ -0,0 +1,45 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.seman.*;
+
+/**
+ * Name and lvalue resolution, either by {@link NameResolver} and
+ * {@link LValResolver} one after another or by {@link FusedResolver} within a
+ * single traversal. The difference is most pronounced on deep trees, e.g.,
+ * {@code -p input=gen:depth=8,fun-depth=6}; run with {@code -prof perfnorm} to
+ * see the difference in cache misses as well.
+ */
+public class FusedResolverBenchmark extends PhaseBenchmark {
+
+	/** The resolver: {@code separate} or {@code fused}. */
+	@Param({ "separate", "fused" })
+	public String resolver;
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("abstr");
+	}
+
+	/**
+	 * Resolves names and lvalues.
+	 */
+	@Benchmark
+	public void resolveNamesAndLValues() {
+		run(() -> {
+			try (final SemAn seman = new SemAn()) {
+				if (resolver.equals("fused"))
+					Abstr.tree.get().accept(new FusedResolver(), null);
+				else {
+					Abstr.tree.get().accept(new NameResolver(), null);
+					Abstr.tree.get().accept(new LValResolver(), null);
+				}
+			}
+		});
+	}
+
+}
@@ -0,0 +1,46 @@
+package lang24.bench;
+
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+import lang24.data.asm.*;
+import lang24.data.mem.*;
+import lang24.phase.asmgen.*;
+import lang24.phase.regall.*;
+
+/**
+ * Coloring of interference graphs.
+ */
+public class GraphColoringBenchmark extends PhaseBenchmark {
+
+	/** Interference graphs of all functions. */
+	private List<Graph> graphs;
+
+	/**
+	 * Prepares the compilation and builds interference graphs.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("livean");
+		graphs = new ArrayList<>();
+		run(() -> {
+			for (final Code code : AsmGen.codes.get())
+				graphs.add(new Graph(code));
+		});
+	}
+
+	/**
+	 * Colors interference graphs of all functions.
+	 *
+	 * @return The spilled temporary variables.
+	 */
+	@Benchmark
+	public List<Set<MemTemp>> colorGraphs() {
+		final List<Set<MemTemp>> spilled = new ArrayList<>();
+		run(() -> {
+			for (final Graph graph : graphs)
+				spilled.add(graph.colorAll(RegAlloc.MAX_REGISTERS.get()));
+		});
+		return spilled;
+	}
+
+}
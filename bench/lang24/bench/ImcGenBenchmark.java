@@ -0,0 +1,32 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.imcgen.*;
+
+/**
+ * Intermediate code generation.
+ */
+public class ImcGenBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("memory");
+	}
+
+	/**
+	 * Generates intermediate code.
+	 */
+	@Benchmark
+	public void generateImc() {
+		run(() -> {
+			try (final ImcGen imcGen = new ImcGen()) {
+				Abstr.tree.get().accept(new IG2(), null);
+			}
+		});
+	}
+
+}
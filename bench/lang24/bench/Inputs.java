@@ -0,0 +1,76 @@
+package lang24.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Inputs of benchmarks.
+ * <p>
+ * An input is either the name of a source file or a synthetic program produced
+ * by {@link ProgramGenerator}:
+ * <ul>
+ * <li>{@code scaled:}<i>n</i> denotes a program with <i>n</i> top-level
+ * functions,</li>
+ * <li>{@code lines:}<i>n</i> denotes a program with (at least) <i>n</i> lines,
+ * and</li>
+ * <li>{@code gen:}<i>name</i>{@code =}<i>value</i>{@code ,}... denotes a
+ * program with the specified parameters, e.g.,
+ * {@code gen:functions=500,depth=5,loops=40}.</li>
+ * </ul>
+ * All other parameters of synthetic programs are the default ones.
+ */
+public class Inputs {
+
+	/** Synthetic programs written so far (by their inputs). */
+	private static final Map<String, String> generated = new HashMap<>();
+
+	/** (Unused.) */
+	private Inputs() {
+	}
+
+	/**
+	 * Returns the name of the source file of an input, writing the synthetic
+	 * program to a temporary file if necessary.
+	 *
+	 * @param input The input.
+	 * @return The name of the source file.
+	 * @throws IOException If the synthetic program cannot be written.
+	 */
+	public static synchronized String srcFileName(final String input) throws IOException {
+		final ProgramGenerator.Params params = params(input);
+		if (params == null)
+			return input;
+		String srcFileName = generated.get(input);
+		if (srcFileName == null) {
+			final Path srcFile = Files.createTempFile("lang24-generated-", ".lang24");
+			srcFile.toFile().deleteOnExit();
+			Files.writeString(srcFile, new ProgramGenerator(params).generate());
+			srcFileName = srcFile.toString();
+			generated.put(input, srcFileName);
+		}
+		return srcFileName;
+	}
+
+	/**
+	 * Returns the parameters of the synthetic program denoted by an input.
+	 *
+	 * @param input The input.
+	 * @return The parameters of the synthetic program or {@code null} if the input
+	 *         is the name of a source file.
+	 */
+	private static ProgramGenerator.Params params(final String input) {
+		final int colon = input.indexOf(':');
+		if (colon < 0)
+			return null;
+		final String spec = input.substring(colon + 1);
+		return switch (input.substring(0, colon)) {
+		case "scaled" -> ProgramGenerator.Params.parse(List.of("--functions=" + spec));
+		case "lines" -> ProgramGenerator.Params.parse(List.of("--functions=0", "--lines=" + spec));
+		case "gen" -> ProgramGenerator.Params.parse(
+				spec.isEmpty() ? List.of() : Arrays.stream(spec.split(",")).map(option -> "--" + option).toList());
+		default -> null;
+		};
+	}
+
+}
@@ -0,0 +1,42 @@
+package lang24.bench;
+
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+import lang24.data.asm.*;
+import lang24.data.lin.*;
+import lang24.phase.asmgen.*;
+import lang24.phase.imclin.*;
+
+/**
+ * Instruction selection.
+ */
+public class InstrSelBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("imclin");
+	}
+
+	/**
+	 * Selects instructions of all functions (sequentially).
+	 *
+	 * @return The instructions.
+	 */
+	@Benchmark
+	public List<List<AsmInstr>> selectInstrs() {
+		final List<List<AsmInstr>> instrs = new ArrayList<>();
+		run(() -> {
+			for (final LinCodeChunk codeChunk : ImcLin.codeChunks()) {
+				final List<AsmInstr> codeInstrs = new LinkedList<>();
+				final Imc2AsmVisitor imc2AsmVisitor = new Imc2AsmVisitor(codeChunk);
+				codeChunk.stmts().forEach(stmt -> stmt.accept(imc2AsmVisitor, codeInstrs));
+				instrs.add(codeInstrs);
+			}
+		});
+		return instrs;
+	}
+
+}
@@ -0,0 +1,33 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.data.token.*;
+import lang24.phase.lexan.*;
+
+/**
+ * Lexical analysis.
+ */
+public class LexBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("none");
+	}
+
+	/**
+	 * Lexes the source file.
+	 */
+	@Benchmark
+	public void lex() {
+		run(() -> {
+			try (final LexAn lexan = new LexAn()) {
+				while (lexan.lexer.nextToken().getType() != LocLogToken.EOF) {
+				}
+			}
+		});
+	}
+
+}
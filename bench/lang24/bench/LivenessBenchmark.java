@@ -0,0 +1,36 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.data.asm.*;
+import lang24.phase.asmgen.*;
+import lang24.phase.livean.*;
+
+/**
+ * Liveness analysis.
+ */
+public class LivenessBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("asmgen");
+	}
+
+	/**
+	 * Analyses liveness of temporary variables of all functions (sequentially).
+	 *
+	 * @return The total number of iterations.
+	 */
+	@Benchmark
+	public int analyseLiveness() {
+		final int[] iterations = { 0 };
+		run(() -> {
+			for (final Code code : AsmGen.codes.get())
+				iterations[0] += new LiveAnAlyser(code.instrs).analyzeAll();
+		});
+		return iterations[0];
+	}
+
+}
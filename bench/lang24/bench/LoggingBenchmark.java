@@ -0,0 +1,157 @@
+package lang24.bench;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import lang24.Compiler;
+import lang24.common.*;
+import lang24.data.token.*;
+import lang24.phase.abstr.*;
+import lang24.phase.imcgen.*;
+import lang24.phase.lexan.*;
+import lang24.phase.memory.*;
+import lang24.phase.seman.*;
+
+/**
+ * Measures the work the compiler used to do for logging when no phase is
+ * logged, i.e., logging visitors walking the abstract syntax tree and per-token
+ * log calls, both with a {@code null} logger, next to the unlogged front end
+ * itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+	/** The input: a source file or a synthetic program (see {@link Inputs}). */
+	@Param({ "prg/bubblesort.lang24", "prg/heapsort.lang24", "prg/quicksort.lang24", "prg/listsort.lang24", "scaled:100", "scaled:1000" })
+	public String input;
+
+	/** The name of the source file. */
+	private String srcFileName;
+
+	/** The compilation holding the abstract syntax tree of the source file. */
+	private Compilation compilation;
+
+	/**
+	 * Prepares the source file and compiles it up to intermediate code.
+	 *
+	 * @throws IOException If the synthetic program cannot be written.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		srcFileName = Inputs.srcFileName(input);
+		compilation = compileFrontEnd();
+	}
+
+	/**
+	 * Compiles the source file up to intermediate code without any logging.
+	 *
+	 * @return The compilation.
+	 */
+	@Benchmark
+	public Compilation unloggedFrontEnd() {
+		return compileFrontEnd();
+	}
+
+	/**
+	 * Walks the abstract syntax tree with the logging visitors of all front end
+	 * phases and a {@code null} logger, as the unlogged front end used to.
+	 */
+	@Benchmark
+	public void nullLoggerWalks() {
+		Compilation.run(compilation, () -> {
+			final AbstrLogger abstrLogger = new AbstrLogger(null);
+			Abstr.tree.get().accept(abstrLogger, "AstDefn");
+			final AbstrLogger semanLogger = new AbstrLogger(null);
+			semanLogger.addSubvisitor(new SemAnLogger(null));
+			Abstr.tree.get().accept(semanLogger, "AstDefn");
+			final AbstrLogger memoryLogger = new AbstrLogger(null);
+			memoryLogger.addSubvisitor(new SemAnLogger(null));
+			memoryLogger.addSubvisitor(new MemLogger(null));
+			Abstr.tree.get().accept(memoryLogger, "AstDefn");
+			final AbstrLogger imcgenLogger = new AbstrLogger(null);
+			imcgenLogger.addSubvisitor(new SemAnLogger(null));
+			imcgenLogger.addSubvisitor(new MemLogger(null));
+			imcgenLogger.addSubvisitor(new ImcLogger(null));
+			Abstr.tree.get().accept(imcgenLogger, "AstDefn");
+		});
+	}
+
+	/**
+	 * Lexes the source file without per-token log calls.
+	 *
+	 * @param blackhole The sink of tokens.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	@Benchmark
+	public void lex(final Blackhole blackhole) throws IOException {
+		lex(blackhole, false);
+	}
+
+	/**
+	 * Lexes the source file with per-token log calls on a {@code null} logger,
+	 * as the unlogged lexer used to.
+	 *
+	 * @param blackhole The sink of tokens.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	@Benchmark
+	public void lexWithNullLoggerCalls(final Blackhole blackhole) throws IOException {
+		lex(blackhole, true);
+	}
+
+	/**
+	 * Compiles the source file up to intermediate code without any logging.
+	 *
+	 * @return The compilation.
+	 */
+	private Compilation compileFrontEnd() {
+		final PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+		final Compilation frontEnd = new Compilation(new File(".").toPath(), nullStream, nullStream);
+		Compilation.run(frontEnd, () -> Compiler
+				.compile(new String[] { "--src-file-name=" + srcFileName, "--target-phase=imcgen" }));
+		return frontEnd;
+	}
+
+	/**
+	 * Lexes the source file.
+	 *
+	 * @param blackhole The sink of tokens.
+	 * @param logTokens Whether each token is passed to a {@code null} logger.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	private void lex(final Blackhole blackhole, final boolean logTokens) throws IOException {
+		final Lang24Lexer lexer = new Lang24Lexer(new MappedCharStream(srcFileName));
+		lexer.setTokenFactory(new TokenFactory<LocLogToken>() {
+			@Override
+			public LocLogToken create(int type, String text) {
+				final LocLogToken token = new LocLogToken(type, text);
+				if (logTokens)
+					token.log(null);
+				return token;
+			}
+
+			@Override
+			public LocLogToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+					int start, int stop, int line, int charPositionInLine) {
+				final LocLogToken token = new LocLogToken(source, type, channel, start, stop);
+				if (logTokens)
+					token.log(null);
+				return token;
+			}
+		});
+		Token token;
+		do {
+			token = lexer.nextToken();
+			blackhole.consume(token);
+		} while (token.getType() != Token.EOF);
+	}
+
+}
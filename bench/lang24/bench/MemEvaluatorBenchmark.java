@@ -0,0 +1,32 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.memory.*;
+
+/**
+ * Memory layout.
+ */
+public class MemEvaluatorBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("seman");
+	}
+
+	/**
+	 * Evaluates the memory layout.
+	 */
+	@Benchmark
+	public void evaluateMemory() {
+		run(() -> {
+			try (final Memory memory = new Memory()) {
+				Abstr.tree.get().accept(new MemEvaluator(), null);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,39 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.seman.*;
+
+/**
+ * Name resolution, either with a {@link LinkedSymbTable} or with an
+ * {@link InternedSymbTable}. Symbol tables matter most with many nested
+ * scopes, e.g., {@code -p input=gen:depth=8,fun-depth=6}.
+ */
+public class NameResolverBenchmark extends PhaseBenchmark {
+
+	/** The symbol table: {@code linked} or {@code interned}. */
+	@Param({ "linked", "interned" })
+	public String symbTable;
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("abstr");
+	}
+
+	/**
+	 * Resolves names.
+	 */
+	@Benchmark
+	public void resolveNames() {
+		run(() -> {
+			try (final SemAn seman = new SemAn()) {
+				final SymbTable table = symbTable.equals("interned") ? new InternedSymbTable() : new LinkedSymbTable();
+				Abstr.tree.get().accept(new NameResolver(table), null);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,33 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.lexan.*;
+import lang24.phase.synan.*;
+
+/**
+ * Syntax analysis, including the construction of the abstract syntax tree by
+ * the parser's actions.
+ */
+public class ParseBenchmark extends PhaseBenchmark {
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("none");
+	}
+
+	/**
+	 * Lexes and parses the source file.
+	 */
+	@Benchmark
+	public void parse() {
+		run(() -> {
+			try (final LexAn lexan = new LexAn(); final SynAn synan = new SynAn(lexan)) {
+				SynAn.tree.set(synan.parse());
+			}
+		});
+	}
+
+}
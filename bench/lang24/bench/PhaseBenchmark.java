@@ -0,0 +1,67 @@
+package lang24.bench;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import lang24.Compiler;
+import lang24.common.*;
+
+/**
+ * The base of benchmarks of individual compiler phases.
+ * <p>
+ * Before each invocation of a benchmark, the source file is compiled up to the
+ * phase preceding the measured one within a fresh compilation (see
+ * {@link Compilation}), so that each invocation measures exactly one run of
+ * the phase over the same input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class PhaseBenchmark {
+
+	/** The input: a source file or a synthetic program (see {@link Inputs}). */
+	@Param({ "prg/bubblesort.lang24", "prg/heapsort.lang24", "prg/quicksort.lang24", "prg/listsort.lang24", "scaled:100", "scaled:1000" })
+	public String input;
+
+	/** The name of the source file. */
+	protected String srcFileName;
+
+	/** The compilation the measured phase runs within. */
+	protected Compilation compilation;
+
+	/**
+	 * Prepares the source file.
+	 *
+	 * @throws IOException If the synthetic program cannot be written.
+	 */
+	@Setup(Level.Trial)
+	public void prepareInput() throws IOException {
+		srcFileName = Inputs.srcFileName(input);
+	}
+
+	/**
+	 * Compiles the source file up to the specified phase within a fresh
+	 * compilation.
+	 *
+	 * @param targetPhase The last phase to be performed.
+	 */
+	protected void compileUpTo(final String targetPhase) {
+		final PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+		compilation = new Compilation(new File(".").toPath(), nullStream, nullStream);
+		Compilation.run(compilation, () -> Compiler.compile(new String[] { "--src-file-name=" + srcFileName,
+				"--target-phase=" + targetPhase, "--num-regs=8" }));
+	}
+
+	/**
+	 * Runs a task within the compilation.
+	 *
+	 * @param task The task.
+	 */
+	protected void run(final Runnable task) {
+		Compilation.run(compilation, task);
+	}
+
+}
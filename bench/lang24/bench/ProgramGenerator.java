@@ -0,0 +1,467 @@
+package lang24.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A generator of synthetic LANG'24 programs for stress and scaling benchmarks.
+ * <p>
+ * The generated programs are syntactically and semantically valid: they follow
+ * the grammar in {@code Lang24Parser.g4} and the typing rules of
+ * {@code TypeResolver}, i.e., only values of primitive and pointer types are
+ * assigned, passed and returned, operands of binary operators are of the same
+ * type, expression statements are calls of void functions, every function
+ * returns a value of its result type, and reference parameters are passed
+ * variables. Functions only call previously defined functions, loops are
+ * bounded and array indices are in range, so the programs terminate (though
+ * not necessarily quickly). The program depends on the parameters only.
+ * <p>
+ * The generator can be run as
+ * <p>
+ * <code>$ java lang24.bench.ProgramGenerator --functions=</code><i>n</i>
+ * <code>--lines=</code><i>n</i> <code>--depth=</code><i>n</i>
+ * <code>--fun-depth=</code><i>n</i> <code>--locals=</code><i>n</i>
+ * <code>--records=</code><i>n</i> <code>--strings=</code><i>n</i>
+ * <code>--loops=</code><i>percent</i> <code>--seed=</code><i>n</i>
+ * <code>--dst-file-name=</code><i>file-name</i>
+ * <p>
+ * where all options are optional (see {@link Params}) and the program is
+ * written to the standard output unless the destination file is specified.
+ */
+public class ProgramGenerator {
+
+	/**
+	 * Parameters of a generated program.
+	 *
+	 * @param functions The number of top-level functions (besides {@code main}).
+	 * @param lines     The minimal number of lines; if positive, top-level
+	 *                  functions are added until the program is at least this
+	 *                  long.
+	 * @param depth     The maximal nesting depth of compound statements.
+	 * @param funDepth  The nesting depth of functions, i.e., each top-level
+	 *                  function contains a chain of {@code funDepth - 1} nested
+	 *                  functions.
+	 * @param locals    The number of integer local variables per frame.
+	 * @param records   The number of record (and of union) types.
+	 * @param strings   The number of string variables per frame.
+	 * @param loops     The percentage of statements that are loops.
+	 * @param seed      The seed of the random generator.
+	 */
+	public record Params(int functions, int lines, int depth, int funDepth, int locals, int records, int strings,
+			int loops, long seed) {
+
+		/** The default parameters. */
+		public static final Params DEFAULT = new Params(100, 0, 3, 2, 4, 2, 2, 20, 2024);
+
+		/**
+		 * Returns the default parameters overridden by options of the form
+		 * {@code --}<i>name</i>{@code =}<i>value</i>.
+		 *
+		 * @param options The options.
+		 * @return The parameters.
+		 */
+		public static Params parse(final List<String> options) {
+			final Map<String, Long> values = new HashMap<>();
+			for (final String option : options) {
+				final int eq = option.indexOf('=');
+				final String name = eq < 0 ? option : option.substring(0, eq);
+				switch (name) {
+				case "--functions", "--lines", "--depth", "--fun-depth", "--locals", "--records", "--strings",
+						"--loops", "--seed" -> {
+					try {
+						values.put(name, Long.parseLong(option.substring(eq + 1)));
+					} catch (final NumberFormatException | IndexOutOfBoundsException __) {
+						throw new IllegalArgumentException("Illegal value of option '" + option + "'.");
+					}
+				}
+				default -> throw new IllegalArgumentException("Unknown option '" + option + "'.");
+				}
+			}
+			return new Params(value(values, "--functions", DEFAULT.functions),
+					value(values, "--lines", DEFAULT.lines), value(values, "--depth", DEFAULT.depth),
+					value(values, "--fun-depth", DEFAULT.funDepth), value(values, "--locals", DEFAULT.locals),
+					value(values, "--records", DEFAULT.records), value(values, "--strings", DEFAULT.strings),
+					value(values, "--loops", DEFAULT.loops), values.getOrDefault("--seed", DEFAULT.seed));
+		}
+
+		/**
+		 * Returns the value of an option.
+		 *
+		 * @param values       The values of options.
+		 * @param name         The name of the option.
+		 * @param defaultValue The default value.
+		 * @return The value of the option.
+		 */
+		private static int value(final Map<String, Long> values, final String name, final int defaultValue) {
+			return values.getOrDefault(name, (long) defaultValue).intValue();
+		}
+
+	}
+
+	/** The bound of loops and the size of arrays. */
+	private static final int SIZE = 8;
+
+	/** The parameters. */
+	private final Params params;
+
+	/** The random generator. */
+	private final Random random;
+
+	/** The program being generated. */
+	private final StringBuilder program = new StringBuilder();
+
+	/** The number of lines generated so far. */
+	private int numLines = 0;
+
+	/**
+	 * Constructs a new program generator.
+	 *
+	 * @param params The parameters of the program.
+	 */
+	public ProgramGenerator(final Params params) {
+		this.params = params;
+		this.random = new Random(params.seed());
+	}
+
+	/**
+	 * Generates the program.
+	 *
+	 * @return The source code of the program.
+	 */
+	public String generate() {
+		line(0, "putint(i:int):void");
+		line(0, "putchar(c:char):void");
+		line(0, "");
+		for (int rec = 0; rec < params.records(); rec++) {
+			line(0, "rec" + rec + " = (a:int, b:char, c:bool, d:[" + SIZE + "]int)");
+			line(0, "uni" + rec + " = {i:int, c:char}");
+		}
+		line(0, "glob:[" + SIZE + "]int");
+		line(0, "");
+		line(0, "f0(n:int, ^acc:int):int = return n + acc;");
+		line(0, "");
+		int numFuns = 0;
+		while (numFuns < params.functions() || numLines < params.lines()) {
+			numFuns++;
+			function(0, new Frame("f" + numFuns, null, numFuns - 1), params.funDepth());
+			line(0, "");
+		}
+		line(0, "main():int =");
+		line(1, "{");
+		line(2, "acc = 0;");
+		line(2, "return f" + numFuns + "(" + SIZE + ", acc);");
+		line(1, "}");
+		line(1, "{ acc:int }");
+		return program.toString();
+	}
+
+	/**
+	 * A frame of a function being generated.
+	 */
+	private class Frame {
+
+		/** The name of the function. */
+		final String name;
+
+		/** The frame of the enclosing function ({@code null} at the top level). */
+		final Frame outer;
+
+		/** The highest index of a top-level function this function may call. */
+		final int callable;
+
+		/** The suffix of names declared within this function. */
+		final String suffix;
+
+		/** The name of the nested function ({@code null} if none). */
+		String nested = null;
+
+		/** The number of loop counters. */
+		int numCounters = 0;
+
+		/** Loop counters of enclosing loops. */
+		final Deque<String> counters = new ArrayDeque<>();
+
+		/**
+		 * Constructs a new frame.
+		 *
+		 * @param name     The name of the function.
+		 * @param outer    The frame of the enclosing function.
+		 * @param callable The highest index of a top-level function this function
+		 *                 may call.
+		 */
+		Frame(final String name, final Frame outer, final int callable) {
+			this.name = name;
+			this.outer = outer;
+			this.callable = callable;
+			this.suffix = outer == null ? "" : outer.suffix + "_";
+		}
+
+		/**
+		 * Returns a name declared within this function.
+		 *
+		 * @param name The base name.
+		 * @return The name declared within this function.
+		 */
+		String name(final String name) {
+			return name + suffix;
+		}
+
+		/**
+		 * Returns a random integer local variable of this function.
+		 *
+		 * @return The name of the variable.
+		 */
+		String local() {
+			return params.locals() == 0 ? name("acc") : name("v" + random.nextInt(params.locals()));
+		}
+
+	}
+
+	/**
+	 * Generates a function.
+	 *
+	 * @param indent   The indentation.
+	 * @param frame    The frame of the function.
+	 * @param funDepth The nesting depth of functions within this one.
+	 */
+	private void function(final int indent, final Frame frame, final int funDepth) {
+		if (funDepth > 1)
+			frame.nested = frame.name + "_";
+
+		line(indent, frame.name + "(" + frame.name("n") + ":int, ^" + frame.name("acc") + ":int):int =");
+		line(indent + 1, "{");
+		for (int local = 0; local < params.locals(); local++)
+			line(indent + 2, frame.name("v" + local) + " = " + (local + 1) + ";");
+		for (int str = 0; str < params.strings(); str++)
+			line(indent + 2, frame.name("s" + str) + " = " + stringLit() + ";");
+		line(indent + 2, frame.name("ch") + " = 'a';");
+		line(indent + 2, frame.name("flag") + " = true;");
+		final int numStmts = 2 + random.nextInt(4);
+		for (int stmt = 0; stmt < numStmts; stmt++)
+			statement(indent + 2, frame, params.depth());
+		line(indent + 2, frame.name("acc") + " = " + frame.name("acc") + " + 1;");
+		line(indent + 2, "return " + intExpr(frame, 2) + ";");
+		line(indent + 1, "}");
+
+		final StringBuilder defns = new StringBuilder("{");
+		for (int local = 0; local < params.locals(); local++)
+			defns.append(' ').append(frame.name("v" + local)).append(":int");
+		for (int str = 0; str < params.strings(); str++)
+			defns.append(' ').append(frame.name("s" + str)).append(":^char");
+		for (int counter = 0; counter < frame.numCounters; counter++)
+			defns.append(' ').append(frame.name("i" + counter)).append(":int");
+		for (int rec = 0; rec < params.records(); rec++) {
+			defns.append(' ').append(frame.name("r" + rec)).append(":rec").append(rec);
+			defns.append(' ').append(frame.name("p" + rec)).append(":^rec").append(rec);
+			defns.append(' ').append(frame.name("u" + rec)).append(":uni").append(rec);
+		}
+		defns.append(' ').append(frame.name("ch")).append(":char");
+		defns.append(' ').append(frame.name("flag")).append(":bool");
+		if (frame.nested == null) {
+			line(indent + 1, defns.append(" }").toString());
+			return;
+		}
+		line(indent + 1, defns.toString());
+		function(indent + 2, new Frame(frame.nested, frame, frame.callable), funDepth - 1);
+		line(indent + 1, "}");
+	}
+
+	/**
+	 * Generates a statement.
+	 *
+	 * @param indent The indentation.
+	 * @param frame  The frame of the function.
+	 * @param depth  The remaining nesting depth of compound statements.
+	 */
+	private void statement(final int indent, final Frame frame, final int depth) {
+		if (depth > 0 && random.nextInt(100) < params.loops()) {
+			final String counter = frame.name("i" + frame.numCounters++);
+			line(indent, counter + " = 0;");
+			line(indent, "while " + counter + " < " + SIZE + ": {");
+			frame.counters.push(counter);
+			final int numStmts = 1 + random.nextInt(3);
+			for (int stmt = 0; stmt < numStmts; stmt++)
+				statement(indent + 1, frame, depth - 1);
+			frame.counters.pop();
+			line(indent + 1, counter + " = " + counter + " + 1;");
+			line(indent, "}");
+			return;
+		}
+		final String ch = frame.name("ch");
+		switch (random.nextInt(depth > 0 ? 8 : 7)) {
+		case 0 -> line(indent, frame.local() + " = " + intExpr(frame, 2) + ";");
+		case 1 -> {
+			if (params.records() == 0) {
+				line(indent, frame.local() + " = " + intExpr(frame, 2) + ";");
+				break;
+			}
+			final int rec = random.nextInt(params.records());
+			final String r = frame.name("r" + rec);
+			final String p = frame.name("p" + rec);
+			final String u = frame.name("u" + rec);
+			switch (random.nextInt(4)) {
+			case 0 -> line(indent, r + ".a = " + intExpr(frame, 2) + ";");
+			case 1 -> line(indent, r + ".d[" + index(frame) + "] = " + intExpr(frame, 1) + ";");
+			case 2 -> {
+				line(indent, p + " = ^" + r + ";");
+				line(indent, p + "^.b = " + ch + ";");
+				line(indent, p + "^.c = " + boolExpr(frame, 1) + ";");
+			}
+			default -> {
+				line(indent, u + ".i = " + intExpr(frame, 1) + ";");
+				line(indent, ch + " = " + u + ".c;");
+			}
+			}
+		}
+		case 2 -> {
+			if (params.strings() == 0) {
+				line(indent, ch + " = 'z';");
+				break;
+			}
+			final String str = frame.name("s" + random.nextInt(params.strings()));
+			if (random.nextBoolean())
+				line(indent, str + " = " + stringLit() + ";");
+			line(indent, ch + " = " + str + "^;");
+		}
+		case 3 -> line(indent, "glob[" + index(frame) + "] = " + intExpr(frame, 2) + ";");
+		case 4 -> line(indent, frame.name("flag") + " = " + boolExpr(frame, 2) + ";");
+		case 5 -> line(indent, frame.local() + " = f" + random.nextInt(frame.callable + 1) + "(" + intExpr(frame, 1)
+				+ ", " + frame.local() + ");");
+		case 6 -> {
+			if (frame.nested != null)
+				line(indent, frame.local() + " = " + frame.nested + "(" + intExpr(frame, 1) + ", "
+						+ frame.name("acc") + ");");
+			else
+				line(indent, "putint(" + intExpr(frame, 1) + ");");
+		}
+		default -> {
+			line(indent, "if " + boolExpr(frame, 2) + " then {");
+			final int numStmts = 1 + random.nextInt(2);
+			for (int stmt = 0; stmt < numStmts; stmt++)
+				statement(indent + 1, frame, depth - 1);
+			if (random.nextBoolean()) {
+				line(indent, "} else {");
+				statement(indent + 1, frame, depth - 1);
+			}
+			line(indent, "}");
+		}
+		}
+	}
+
+	/**
+	 * Generates an integer expression.
+	 *
+	 * @param frame The frame of the function.
+	 * @param depth The remaining depth of the expression.
+	 * @return The expression.
+	 */
+	private String intExpr(final Frame frame, final int depth) {
+		if (depth == 0 || random.nextInt(3) == 0) {
+			return switch (random.nextInt(8)) {
+			case 0 -> Integer.toString(random.nextInt(100));
+			case 1 -> frame.name("n");
+			case 2 -> frame.name("acc");
+			case 3 -> params.records() == 0 ? frame.name("n")
+					: frame.name("r" + random.nextInt(params.records())) + ".a";
+			case 4 -> "<int>" + frame.name("ch");
+			case 5 -> "glob[" + index(frame) + "]";
+			case 6 -> frame.outer != null ? frame.outer.local() : frame.local();
+			default -> frame.local();
+			};
+		}
+		return switch (random.nextInt(6)) {
+		case 0 -> intExpr(frame, depth - 1) + " + " + intExpr(frame, depth - 1);
+		case 1 -> intExpr(frame, depth - 1) + " - " + intExpr(frame, depth - 1);
+		case 2 -> "(" + intExpr(frame, depth - 1) + ") * " + intExpr(frame, depth - 1);
+		case 3 -> "(" + intExpr(frame, depth - 1) + ") / " + (1 + random.nextInt(9));
+		case 4 -> "(" + intExpr(frame, depth - 1) + ") % " + (1 + random.nextInt(9));
+		default -> "-(" + intExpr(frame, depth - 1) + ")";
+		};
+	}
+
+	/**
+	 * Generates a boolean expression.
+	 *
+	 * @param frame The frame of the function.
+	 * @param depth The remaining depth of the expression.
+	 * @return The expression.
+	 */
+	private String boolExpr(final Frame frame, final int depth) {
+		if (depth == 0 || random.nextInt(3) == 0) {
+			return switch (random.nextInt(4)) {
+			case 0 -> frame.name("flag");
+			case 1 -> frame.name("ch") + " == 'a'";
+			case 2 -> params.records() == 0 ? "true" : frame.name("r" + random.nextInt(params.records())) + ".c";
+			default -> intExpr(frame, 1) + " < " + intExpr(frame, 1);
+			};
+		}
+		return switch (random.nextInt(4)) {
+		case 0 -> "(" + boolExpr(frame, depth - 1) + ") and (" + boolExpr(frame, depth - 1) + ")";
+		case 1 -> "(" + boolExpr(frame, depth - 1) + ") or (" + boolExpr(frame, depth - 1) + ")";
+		case 2 -> "not (" + boolExpr(frame, depth - 1) + ")";
+		default -> intExpr(frame, depth - 1) + (random.nextBoolean() ? " <= " : " != ") + intExpr(frame, depth - 1);
+		};
+	}
+
+	/**
+	 * Returns an array index that is in range.
+	 *
+	 * @param frame The frame of the function.
+	 * @return The index.
+	 */
+	private String index(final Frame frame) {
+		if (!frame.counters.isEmpty() && random.nextBoolean())
+			return frame.counters.peek();
+		return Integer.toString(random.nextInt(SIZE));
+	}
+
+	/**
+	 * Returns a random string literal.
+	 *
+	 * @return The string literal.
+	 */
+	private String stringLit() {
+		final StringBuilder lit = new StringBuilder("\"");
+		final int length = random.nextInt(24);
+		for (int c = 0; c < length; c++)
+			lit.append((char) ('a' + random.nextInt(26)));
+		if (random.nextInt(4) == 0)
+			lit.append("\\n");
+		return lit.append('"').toString();
+	}
+
+	/**
+	 * Appends a line to the program.
+	 *
+	 * @param indent The indentation.
+	 * @param text   The text of the line.
+	 */
+	private void line(final int indent, final String text) {
+		program.append("\t".repeat(indent)).append(text).append('\n');
+		numLines++;
+	}
+
+	/**
+	 * Generates a program as specified on the command line.
+	 *
+	 * @param args Command line arguments.
+	 * @throws IOException If the program cannot be written.
+	 */
+	public static void main(final String[] args) throws IOException {
+		String dstFileName = null;
+		final List<String> options = new ArrayList<>();
+		for (final String arg : args) {
+			if (arg.startsWith("--dst-file-name="))
+				dstFileName = arg.substring("--dst-file-name=".length());
+			else
+				options.add(arg);
+		}
+		final String source = new ProgramGenerator(Params.parse(options)).generate();
+		if (dstFileName == null)
+			System.out.print(source);
+		else
+			Files.writeString(Paths.get(dstFileName), source);
+	}
+
+}
@@ -0,0 +1,44 @@
+package lang24.bench;
+
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.abstr.*;
+import lang24.phase.seman.*;
+
+/**
+ * Type resolution, either by {@link TypeResolver} or by
+ * {@link ParallelTypeResolver} with function bodies checked in parallel.
+ */
+public class TypeResolverBenchmark extends PhaseBenchmark {
+
+	/** The mode: {@code sequential} or {@code parallel}. */
+	@Param({ "sequential", "parallel" })
+	public String mode;
+
+	/**
+	 * Prepares the compilation, i.e., resolves names and lvalues.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("abstr");
+		run(() -> {
+			Abstr.tree.get().accept(new NameResolver(), null);
+			Abstr.tree.get().accept(new LValResolver(), null);
+		});
+	}
+
+	/**
+	 * Resolves types.
+	 */
+	@Benchmark
+	public void resolveTypes() {
+		run(() -> {
+			try (final SemAn seman = new SemAn()) {
+				if (mode.equals("parallel"))
+					Abstr.tree.get().accept(new ParallelTypeResolver(), null);
+				else
+					Abstr.tree.get().accept(new TypeResolver(), null);
+			}
+		});
+	}
+
+}
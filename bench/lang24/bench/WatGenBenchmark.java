@@ -0,0 +1,47 @@
+package lang24.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import org.openjdk.jmh.annotations.*;
+import lang24.phase.watgen.*;
+
+/**
+ * Emission of WebAssembly text.
+ */
+public class WatGenBenchmark extends PhaseBenchmark {
+
+	/** The output file. */
+	private Path dstFile;
+
+	/**
+	 * Creates the output file.
+	 *
+	 * @throws IOException If the output file cannot be created.
+	 */
+	@Setup(Level.Trial)
+	public void prepareOutput() throws IOException {
+		dstFile = Files.createTempFile("lang24-bench-", ".wat");
+		dstFile.toFile().deleteOnExit();
+	}
+
+	/**
+	 * Prepares the compilation.
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		compileUpTo("imclin");
+	}
+
+	/**
+	 * Emits the WebAssembly text file.
+	 */
+	@Benchmark
+	public void emitWat() {
+		run(() -> {
+			try (final WatGen watgen = new WatGen(dstFile.toString())) {
+				watgen.genWatFile();
+			}
+		});
+	}
+
+}
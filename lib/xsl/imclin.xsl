@@ -51,6 +51,9 @@
 	    prologue=<font style="font-family:courier new"><xsl:value-of select="@prologuelabel"/></font>
 	    body=<font style="font-family:courier new"><xsl:value-of select="@bodylabel"/></font>
 	    epilogue=<font style="font-family:courier new"><xsl:value-of select="@epiloguelabel"/></font>
+	    <xsl:if test="@stmtsbefore!=''">
+	      stmts=<xsl:value-of select="@stmtsbefore"/>&#8594;<xsl:value-of select="@stmtsafter"/>
+	    </xsl:if>
 	  </nobr>
 	</td>
       </tr>
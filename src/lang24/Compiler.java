@@ -1,6 +1,9 @@
 package lang24;
 
+import lang24.common.Compilation;
+import lang24.common.CompilationLocal;
 import lang24.common.report.Report;
+import lang24.common.stats.PhaseStats;
 import lang24.phase.abstr.Abstr;
 import lang24.phase.abstr.AbstrLogger;
 import lang24.phase.asmgen.AsmGen;
@@ -9,27 +12,36 @@ import lang24.phase.imcgen.IG2;
 import lang24.phase.imcgen.ImcGen;
 import lang24.phase.imcgen.ImcLogger;
 import lang24.phase.imclin.ChunkGenerator;
+import lang24.phase.imclin.ConstantFolder;
+import lang24.phase.imclin.ConstantPropagation;
 import lang24.phase.imclin.ImcLin;
 import lang24.phase.imclin.Interpreter;
+import lang24.phase.imclin.ValueNumbering;
 import lang24.phase.lexan.LexAn;
 import lang24.phase.livean.LiveAn;
 import lang24.phase.memory.MemEvaluator;
 import lang24.phase.memory.MemLogger;
 import lang24.phase.memory.Memory;
 import lang24.phase.regall.RegAll;
+import lang24.phase.seman.FusedResolver;
+import lang24.phase.seman.InternedSymbTable;
 import lang24.phase.seman.LValResolver;
+import lang24.phase.seman.LinkedSymbTable;
 import lang24.phase.seman.NameResolver;
+import lang24.phase.seman.ParallelTypeResolver;
 import lang24.phase.seman.SemAn;
 import lang24.phase.seman.SemAnLogger;
+import lang24.phase.seman.SymbTable;
 import lang24.phase.seman.TypeResolver;
 import lang24.phase.synan.SynAn;
 import lang24.phase.watgen.WatGen;
+import lang24.batch.BatchCompiler;
+import lang24.cache.CompileCache;
+import lang24.server.CompileServer;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -56,10 +68,15 @@ public class Compiler {
 
 	/** Names of command line options. */
 	private static final HashSet<String> cmdLineOptNames = new HashSet<String>(
-			Arrays.asList("--src-file-name", "--dst-file-name", "--target-phase", "--logged-phase", "--xml", "--xsl", "--num-regs"));
+			Arrays.asList("--src-file-name", "--dst-file-name", "--target-phase", "--logged-phase", "--xml", "--xsl", "--num-regs",
+					"--server", "--jobs", "--stats", "--cache-dir", "--cache-size", "--profile-parser",
+					"--fused-seman", "--parallel-seman", "--interned-symbols", "--packed-layout",
+					"--fold-constants", "--short-circuit", "--value-numbering",
+					"--ssa", "--propagate-constants"));
 
 	/** Values of command line options indexed by their command line option name. */
-	private static final HashMap<String, String> cmdLineOptValues = new HashMap<String, String>();
+	private static final CompilationLocal<HashMap<String, String>> cmdLineOptValues = new CompilationLocal<>(
+			HashMap::new);
 
 	/**
 	 * Returns the value of a command line option.
@@ -68,224 +85,314 @@ public class Compiler {
 	 * @return Command line option value.
 	 */
 	public static final String cmdLineOptValue(final String cmdLineOptName) {
-		return cmdLineOptValues.get(cmdLineOptName);
+		return cmdLineOptValues.get().get(cmdLineOptName);
 	}
 
 	/**
-	 * The compiler's main driver running all phases one after another.
+	 * The compiler's main entry point: compiles a single source file, compiles
+	 * several source files concurrently if more than one source file or a
+	 * directory is specified (see {@link lang24.batch}), or, if {@code --server}
+	 * is specified, starts a compile server (see {@link lang24.server}).
 	 * 
 	 * @param opts Command line arguments (see {@link lang24}).
 	 */
 	public static void main(final String[] opts) {
 		try {
-			Report.info("This is LANG'24 compiler:");
-
-			// Scan the command line.
-            for (String opt : opts) {
-                if (opt.startsWith("--")) {
-                    // Command line option.
-                    final String cmdLineOptName = opt.replaceFirst("=.*", "");
-                    final String cmdLineOptValue = opt.replaceFirst("^[^=]*=", "");
-                    if (!cmdLineOptNames.contains(cmdLineOptName)) {
-                        Report.warning("Unknown command line option '" + cmdLineOptName + "'.");
+			for (final String opt : opts) {
+				if (opt.startsWith("--server=")) {
+					CompileServer.serve(opt.replaceFirst("^[^=]*=", ""));
+					return;
+				}
+			}
+			if (BatchCompiler.isBatch(opts)) {
+				if (!BatchCompiler.compile(opts))
+					System.exit(1);
+				return;
+			}
+			compile(opts);
+		} catch (final Report.Error error) {
+			System.err.println(error.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The compiler's main driver running all phases one after another. Relative
+	 * file names are resolved against the working directory of the current
+	 * compilation (see {@link Compilation}).
+	 * 
+	 * @param opts Command line arguments (see {@link lang24}).
+	 * @throws Report.Error If the compilation fails.
+	 */
+	public static void compile(final String[] opts) {
+		final HashMap<String, String> cmdLineOptValues = Compiler.cmdLineOptValues.get();
+		Report.info("This is LANG'24 compiler:");
+
+		// Scan the command line.
+        for (String opt : opts) {
+            if (opt.startsWith("--")) {
+                // Command line option.
+                final String cmdLineOptName = opt.replaceFirst("=.*", "");
+                final String cmdLineOptValue = opt.contains("=") ? opt.replaceFirst("^[^=]*=", "") : "";
+                if (!cmdLineOptNames.contains(cmdLineOptName)) {
+                    Report.warning("Unknown command line option '" + cmdLineOptName + "'.");
+                    continue;
+                }
+                if (cmdLineOptValues.get(cmdLineOptName) == null) {
+                    // Not yet successfully specified command line option.
+
+                    // Check the value of the command line option.
+                    if ((cmdLineOptName.equals("--target-phase") && (!phaseNames.contains(cmdLineOptValue)))
+                            || (cmdLineOptName.equals("--logged-phase")
+                            && (!phaseNames.contains(cmdLineOptValue)))) {
+                        Report.warning("Illegal phase specification in '" + opt + "' ignored.");
                         continue;
                     }
-                    if (cmdLineOptValues.get(cmdLineOptName) == null) {
-                        // Not yet successfully specified command line option.
-
-                        // Check the value of the command line option.
-                        if ((cmdLineOptName.equals("--target-phase") && (!phaseNames.contains(cmdLineOptValue)))
-                                || (cmdLineOptName.equals("--logged-phase")
-                                && (!phaseNames.contains(cmdLineOptValue)))) {
-                            Report.warning("Illegal phase specification in '" + opt + "' ignored.");
-                            continue;
-                        }
 
+                    if (cmdLineOptName.equals("--src-file-name") || cmdLineOptName.equals("--dst-file-name")
+                            || cmdLineOptName.equals("--xml") || cmdLineOptName.equals("--cache-dir"))
+                        cmdLineOptValues.put(cmdLineOptName, Compilation.current().resolve(cmdLineOptValue));
+                    else
                         cmdLineOptValues.put(cmdLineOptName, cmdLineOptValue);
-                    } else {
-                        // Repeated specification of a command line option.
-                        Report.warning("Command line option '" + opt + "' ignored.");
-                        continue;
-                    }
                 } else {
-                    // Source file name.
-                    if (cmdLineOptValues.get("--src-file-name") == null) {
-                        cmdLineOptValues.put("--src-file-name", opt);
-                    } else {
-                        Report.warning("Source file '" + opt + "' ignored.");
-                    }
+                    // Repeated specification of a command line option.
+                    Report.warning("Command line option '" + opt + "' ignored.");
+                    continue;
+                }
+            } else {
+                // Source file name.
+                if (cmdLineOptValues.get("--src-file-name") == null) {
+                    cmdLineOptValues.put("--src-file-name", Compilation.current().resolve(opt));
+                } else {
+                    Report.warning("Source file '" + opt + "' ignored.");
                 }
             }
-			// Check the command line option values.
-			if (cmdLineOptValues.get("--src-file-name") == null) {
-				try {
-					// Source file has not been specified, so consider using the last modified
-					// lang24 file in the working directory.
-					final String currWorkDir = new File(".").getCanonicalPath();
-					FileTime latestTime = FileTime.fromMillis(0);
-					Path latestPath = null;
-					for (final Path path : Files.walk(Paths.get(currWorkDir))
-							.filter(path -> path.toString().endsWith(".lang24")).toArray(Path[]::new)) {
-						final FileTime time = Files.getLastModifiedTime(path);
-						if (time.compareTo(latestTime) > 0) {
-							latestTime = time;
-							latestPath = path;
-						}
+        }
+		// Check the command line option values.
+		if (cmdLineOptValues.get("--src-file-name") == null) {
+			try {
+				// Source file has not been specified, so consider using the last modified
+				// lang24 file in the working directory.
+				final Path currWorkDir = Compilation.current().workDir.toAbsolutePath();
+				FileTime latestTime = FileTime.fromMillis(0);
+				Path latestPath = null;
+				for (final Path path : Files.walk(currWorkDir)
+						.filter(path -> path.toString().endsWith(".lang24")).toArray(Path[]::new)) {
+					final FileTime time = Files.getLastModifiedTime(path);
+					if (time.compareTo(latestTime) > 0) {
+						latestTime = time;
+						latestPath = path;
 					}
-					if (latestPath != null) {
-						cmdLineOptValues.put("--src-file-name", latestPath.toString());
-						Report.warning("Source file not specified, using '" + latestPath.toString() + "'.");
-					}
-				} catch (final IOException __) {
-					throw new Report.Error("Source file not specified.");
 				}
-
-				if (cmdLineOptValues.get("--src-file-name") == null) {
-					throw new Report.Error("Source file not specified.");
+				if (latestPath != null) {
+					cmdLineOptValues.put("--src-file-name", latestPath.toString());
+					Report.warning("Source file not specified, using '" + latestPath.toString() + "'.");
 				}
+			} catch (final IOException __) {
+				throw new Report.Error("Source file not specified.");
 			}
-			if (cmdLineOptValues.get("--dst-file-name") == null) {
-				cmdLineOptValues.put("--dst-file-name",
-						// TODO: Insert the appropriate file suffix.
-                        cmdLineOptValues.get("--src-file-name").replaceFirst("\\.[^./]*$", ""));
+
+			if (cmdLineOptValues.get("--src-file-name") == null) {
+				throw new Report.Error("Source file not specified.");
 			}
-            cmdLineOptValues.putIfAbsent("--target-phase", "all");
-            cmdLineOptValues.putIfAbsent("--logged-phase", "none");
+		}
+		if (cmdLineOptValues.get("--dst-file-name") == null) {
+			cmdLineOptValues.put("--dst-file-name",
+					// TODO: Insert the appropriate file suffix.
+                    cmdLineOptValues.get("--src-file-name").replaceFirst("\\.[^./]*$", ""));
+		}
+        cmdLineOptValues.putIfAbsent("--target-phase", "all");
+        cmdLineOptValues.putIfAbsent("--logged-phase", "none");
+		if (cmdLineOptValues.get("--stats") != null)
+			Compilation.current().stats.measureResources();
 
 
-			Report.info("Compiling file: " + cmdLineOptValues.get("--src-file-name") + " to " + cmdLineOptValues.get("--dst-file-name"));
+		Report.info("Compiling file: " + cmdLineOptValues.get("--src-file-name") + " to " + cmdLineOptValues.get("--dst-file-name"));
 
-			// Carry out the compilation phase by phase.
-			while (true) {
+		// Look up the compiled file in the cache (if requested).
+		final CompileCache cache = CompileCache.open();
 
-				if (cmdLineOptValues.get("--target-phase").equals("none"))
-					break;
+		// Carry out the compilation phase by phase.
+		while (true) {
 
-				// Lexical analysis.
-				if (cmdLineOptValues.get("--target-phase").equals("lexan")) {
-					try (final LexAn lexan = new LexAn()) {
-						while (lexan.lexer.nextToken().getType() != lang24.data.token.LocLogToken.EOF) { }
-					}
-					break;
-				}
+			if (cmdLineOptValues.get("--target-phase").equals("none"))
+				break;
+
+			if (cache != null && cache.restore())
+				break;
 
-				// Syntax analysis.
-				try (LexAn lexan = new LexAn(); SynAn synan = new SynAn(lexan)) {
-					SynAn.tree = synan.parser.source();
-					synan.log(SynAn.tree);
+			// Lexical analysis.
+			if (cmdLineOptValues.get("--target-phase").equals("lexan")) {
+				try (final LexAn lexan = new LexAn()) {
+					while (lexan.lexer.nextToken().getType() != lang24.data.token.LocLogToken.EOF) { }
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("synan"))
-					break;
+				break;
+			}
 
-				// Abstract syntax.
-				try (Abstr abstr = new Abstr()) {
-					Abstr.tree = SynAn.tree.ast;
-					SynAn.tree = null;
+			// Syntax analysis.
+			try (LexAn lexan = new LexAn(); SynAn synan = new SynAn(lexan)) {
+				SynAn.tree.set(synan.parse());
+				synan.log(SynAn.tree.get());
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("synan"))
+				break;
+
+			// Abstract syntax.
+			try (Abstr abstr = new Abstr()) {
+				Abstr.tree.set(SynAn.tree.get().ast);
+				SynAn.tree.set(null);
+				if (abstr.logger != null) {
 					AbstrLogger logger = new AbstrLogger(abstr.logger);
-					Abstr.tree.accept(logger, "AstDefn");
+					Abstr.tree.get().accept(logger, "AstDefn");
+				}
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("abstr"))
+				break;
+
+			// Semantic analysis.
+			try (SemAn seman = new SemAn()) {
+				final SymbTable symbTable = cmdLineOptValues.get("--interned-symbols") != null
+						? new InternedSymbTable()
+						: new LinkedSymbTable();
+				if (cmdLineOptValues.get("--fused-seman") != null)
+					Abstr.tree.get().accept(new FusedResolver(symbTable), null);
+				else {
+					Abstr.tree.get().accept(new NameResolver(symbTable), null);
+					Abstr.tree.get().accept(new LValResolver(), null);
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("abstr"))
-					break;
-
-				// Semantic analysis.
-				try (SemAn seman = new SemAn()) {
-					Abstr.tree.accept(new NameResolver(), null);
-					Abstr.tree.accept(new LValResolver(), null);
-					Abstr.tree.accept(new TypeResolver(), null);
+				if (cmdLineOptValues.get("--parallel-seman") != null)
+					Abstr.tree.get().accept(new ParallelTypeResolver(), null);
+				else
+					Abstr.tree.get().accept(new TypeResolver(), null);
+				if (seman.logger != null) {
 					AbstrLogger logger = new AbstrLogger(seman.logger);
 					logger.addSubvisitor(new SemAnLogger(seman.logger));
-					Abstr.tree.accept(logger, "AstDefn");
+					Abstr.tree.get().accept(logger, "AstDefn");
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("seman"))
-					break;
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("seman"))
+				break;
 
-				// Memory layout.
-				try (Memory memory = new Memory()) {
-					Abstr.tree.accept(new MemEvaluator(), null);
+			// Memory layout.
+			try (Memory memory = new Memory()) {
+				if (cmdLineOptValues.get("--packed-layout") != null)
+					Memory.packed.set(true);
+				Abstr.tree.get().accept(new MemEvaluator(), null);
+				if (memory.logger != null) {
 					AbstrLogger logger = new AbstrLogger(memory.logger);
 					logger.addSubvisitor(new SemAnLogger(memory.logger));
 					logger.addSubvisitor(new MemLogger(memory.logger));
-					Abstr.tree.accept(logger, "AstDefn");
+					Abstr.tree.get().accept(logger, "AstDefn");
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("memory"))
-					break;
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("memory"))
+				break;
 
-				// Intermediate code generation.
-				try (ImcGen imcGen = new ImcGen()) {
-					Abstr.tree.accept(new IG2(), null);
+			// Intermediate code generation.
+			try (ImcGen imcGen = new ImcGen()) {
+				Abstr.tree.get().accept(new IG2(cmdLineOptValues.get("--short-circuit") != null), null);
+				if (imcGen.logger != null) {
 					AbstrLogger logger = new AbstrLogger(imcGen.logger);
 					logger.addSubvisitor(new SemAnLogger(imcGen.logger));
 					logger.addSubvisitor(new MemLogger(imcGen.logger));
 					logger.addSubvisitor(new ImcLogger(imcGen.logger));
-					Abstr.tree.accept(logger, "AstDefn");
+					Abstr.tree.get().accept(logger, "AstDefn");
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("imcgen"))
-					break;
-
-				// Linearization of intermediate code.
-				try (ImcLin imclin = new ImcLin()) {
-					Abstr.tree.accept(new ChunkGenerator(), null);
-					imclin.log();
-
-					if (Boolean.parseBoolean(System.getenv().getOrDefault("INTP_MODE", "false"))) {
-						Interpreter interpreter = new Interpreter(ImcLin.dataChunks(), ImcLin.codeChunks());
-						System.out.println("EXIT CODE: " + interpreter.run("_main"));
-					}
-				}
-				if (cmdLineOptValues.get("--target-phase").equals("imclin"))
-					break;
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("imcgen"))
+				break;
 
-				// WebAssembly code generation.
-				if (cmdLineOptValues.get("--target-phase").equals("watgen")) {
-					try (var watgen = new WatGen(cmdLineOptValues.get("--dst-file-name"))) {
-						watgen.genWatFile();
-					}
-					break;
+			// Linearization of intermediate code.
+			try (ImcLin imclin = new ImcLin()) {
+				final ConstantFolder folder = cmdLineOptValues.get("--fold-constants") != null
+						? new ConstantFolder()
+						: null;
+				final ValueNumbering numbering = cmdLineOptValues.get("--value-numbering") != null
+						? new ValueNumbering()
+						: null;
+				final ConstantPropagation propagation = cmdLineOptValues.get("--propagate-constants") != null
+						? new ConstantPropagation()
+						: null;
+				Abstr.tree.get().accept(new ChunkGenerator(folder, cmdLineOptValues.get("--ssa") != null,
+						propagation, numbering), null);
+				if (folder != null)
+					imclin.stats.count("foldedNodes", folder.removedNodes());
+				if (propagation != null) {
+					imclin.stats.count("foldedJumps", propagation.foldedJumps());
+					imclin.stats.count("removedBlocks", propagation.removedBlocks());
 				}
+				if (numbering != null)
+					imclin.stats.count("reusedExprs", numbering.reusedExprs());
+				imclin.log();
 
-				// Machine code generation.
-				try (AsmGen asmgen = new AsmGen()) {
-					asmgen.genAsmCodes();
-					asmgen.log();
+				if (Boolean.parseBoolean(System.getenv().getOrDefault("INTP_MODE", "false"))) {
+					Interpreter interpreter = new Interpreter(ImcLin.dataChunks(), ImcLin.codeChunks());
+					Compilation.current().out.println("EXIT CODE: " + interpreter.run("_main"));
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("amsgen"))
-					break;
-
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("imclin"))
+				break;
 
-				// Liveliness analysis
-				try (var livean = new LiveAn()) {
-					livean.analysis();
-					livean.log();
+			// WebAssembly code generation.
+			if (cmdLineOptValues.get("--target-phase").equals("watgen")) {
+				try (var watgen = new WatGen(cmdLineOptValues.get("--dst-file-name"))) {
+					watgen.genWatFile();
 				}
-				if (cmdLineOptValues.get("--target-phase").equals("livean"))
-					break;
+				break;
+			}
 
-				// Register allocation
-				var reg = cmdLineOptValues.get("--num-regs");
-				if (reg != null) {
-                    MAX_REGISTERS = Integer.parseInt(reg);
-                }
-				try (var regalloc = new RegAll()) {
-					regalloc.allocate();
-					regalloc.log();
-				}
-				if (cmdLineOptValues.get("--target-phase").equals("regall"))
-					break;
+			// Machine code generation.
+			try (AsmGen asmgen = new AsmGen()) {
+				asmgen.genAsmCodes();
+				asmgen.log();
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("amsgen"))
+				break;
 
-				var finall = new FinAll(cmdLineOptValues.get("--dst-file-name"));
-				finall.genAsmFile();
 
+			// Liveliness analysis
+			try (var livean = new LiveAn()) {
+				livean.analysis();
+				livean.log();
+			}
+			if (cmdLineOptValues.get("--target-phase").equals("livean"))
 				break;
+
+			// Register allocation
+			var reg = cmdLineOptValues.get("--num-regs");
+			if (reg != null) {
+                MAX_REGISTERS.set(Integer.parseInt(reg));
+            }
+			try (var regalloc = new RegAll()) {
+				regalloc.allocate();
+				regalloc.log();
 			}
+			if (cmdLineOptValues.get("--target-phase").equals("regall"))
+				break;
 
-			// Let's hope we ever come this far.
-			// But beware:
-			// 1. The generated translation of the source file might be erroneous :-o
-			// 2. The source file might not be what the programmer intended it to be ;-)
-			Report.info("Done.");
-		} catch (final Report.Error error) {
-			System.err.println(error.getMessage());
-			System.exit(1);
+			final PhaseStats finallStats = Compilation.current().stats.begin("finall");
+			var finall = new FinAll(cmdLineOptValues.get("--dst-file-name"));
+			finall.genAsmFile();
+			Compilation.current().stats.end(finallStats);
+
+			break;
+		}
+
+		// Let's hope we ever come this far.
+		// But beware:
+		// 1. The generated translation of the source file might be erroneous :-o
+		// 2. The source file might not be what the programmer intended it to be ;-)
+		if (cache != null)
+			cache.store();
+		Report.info("Done.");
+
+		// Report statistics of phases.
+		final String statsFileName = cmdLineOptValues.get("--stats");
+		if (statsFileName != null) {
+			Compilation.current().stats.report();
+			if (!statsFileName.isEmpty())
+				Compilation.current().stats.writeJson(cmdLineOptValues.get("--src-file-name"),
+						Compilation.current().resolve(statsFileName));
 		}
 	}
 
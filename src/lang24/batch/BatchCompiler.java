@@ -0,0 +1,211 @@
+package lang24.batch;
+
+import lang24.Compiler;
+import lang24.common.Compilation;
+import lang24.common.report.Report;
+import lang24.common.stats.PhaseStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many source files concurrently, one compilation per worker of a
+ * fixed thread pool.
+ * <p>
+ * All command line options except {@code --src-file-name},
+ * {@code --dst-file-name}, {@code --xml} and {@code --jobs} are passed on to
+ * each compilation ({@code --stats} without the name of a JSON file). Directories are searched for {@code .lang24} files
+ * recursively. Messages of each compilation are printed once the compilation
+ * is finished, in the order the source files were specified in.
+ */
+public class BatchCompiler {
+
+	/** (Unused but included to keep javadoc happy.) */
+	private BatchCompiler() {
+		throw new Report.InternalError();
+	}
+
+	/**
+	 * The result of compiling a single source file.
+	 *
+	 * @param out        The information messages printed out.
+	 * @param err        The warnings and errors printed out.
+	 * @param succeeded  Whether the compilation succeeded.
+	 * @param phases     Statistics of phases.
+	 */
+	private record Result(byte[] out, byte[] err, boolean succeeded, List<PhaseStats> phases) {
+	}
+
+	/**
+	 * Checks whether the command line asks for a batch compilation, i.e., whether
+	 * it specifies more than one source file or a directory.
+	 *
+	 * @param opts Command line arguments (see {@link lang24}).
+	 * @return {@code true} if a batch compilation is asked for, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean isBatch(final String[] opts) {
+		final List<String> srcFileNames = srcFileNames(opts);
+		return srcFileNames.size() > 1 || (srcFileNames.size() == 1
+				&& Files.isDirectory(Compilation.current().workDir.resolve(srcFileNames.get(0))));
+	}
+
+	/**
+	 * Compiles all source files specified on the command line.
+	 *
+	 * @param opts Command line arguments (see {@link lang24}).
+	 * @return {@code true} if all source files have been compiled successfully,
+	 *         {@code false} otherwise.
+	 */
+	public static boolean compile(final String[] opts) {
+		final Compilation batch = Compilation.current();
+
+		// Split the command line.
+		int numJobs = Runtime.getRuntime().availableProcessors();
+		final List<String> commonOpts = new ArrayList<>();
+		for (final String opt : opts) {
+			if (!opt.startsWith("--"))
+				continue;
+			final String optName = opt.replaceFirst("=.*", "");
+			final String optValue = opt.replaceFirst("^[^=]*=", "");
+			switch (optName) {
+			case "--src-file-name":
+				break;
+			case "--dst-file-name":
+			case "--xml":
+				Report.warning("Command line option '" + opt + "' ignored in batch mode.");
+				break;
+			case "--stats":
+				// Statistics are printed out but not written to the same file by all compilations.
+				if (opt.contains("="))
+					Report.warning("Statistics file in '" + opt + "' ignored in batch mode.");
+				commonOpts.add("--stats");
+				break;
+			case "--jobs":
+				try {
+					numJobs = Math.max(1, Integer.parseInt(optValue));
+				} catch (final NumberFormatException __) {
+					Report.warning("Command line option '" + opt + "' ignored.");
+				}
+				break;
+			default:
+				commonOpts.add(opt);
+			}
+		}
+
+		// Collect source files.
+		final List<String> srcFileNames = new ArrayList<>();
+		for (final String srcFileName : srcFileNames(opts)) {
+			final Path srcPath = batch.workDir.resolve(srcFileName);
+			if (Files.isDirectory(srcPath)) {
+				try (final Stream<Path> paths = Files.walk(srcPath)) {
+					paths.filter(path -> path.toString().endsWith(".lang24")).sorted()
+							.forEach(path -> srcFileNames.add(path.toString()));
+				} catch (final IOException __) {
+					throw new Report.Error("Cannot read directory '" + srcPath + "'.");
+				}
+			} else
+				srcFileNames.add(srcPath.toString());
+		}
+		if (srcFileNames.isEmpty())
+			throw new Report.Error("No source files found.");
+
+		// Compile.
+		final long startTime = System.nanoTime();
+		final ExecutorService pool = Executors.newFixedThreadPool(numJobs);
+		final List<Future<Result>> results = new ArrayList<>();
+		for (final String srcFileName : srcFileNames)
+			results.add(pool.submit(() -> compile(batch.workDir, commonOpts, srcFileName)));
+		pool.shutdown();
+
+		int numFailed = 0;
+		final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+		final Map<String, Long> cacheCounters = new LinkedHashMap<>();
+		for (final Future<Result> future : results) {
+			final Result result;
+			try {
+				result = future.get();
+			} catch (final InterruptedException | ExecutionException exception) {
+				throw new Report.InternalError();
+			}
+			batch.out.write(result.out(), 0, result.out().length);
+			batch.err.write(result.err(), 0, result.err().length);
+			if (!result.succeeded())
+				numFailed++;
+			for (final PhaseStats phase : result.phases()) {
+				phaseTimes.merge(phase.phaseName, phase.wallTime(), Long::sum);
+				if (phase.phaseName.equals("cache"))
+					phase.counters().forEach((name, value) -> cacheCounters.merge(name, value, Long::sum));
+			}
+		}
+		final double seconds = (System.nanoTime() - startTime) / 1e9;
+
+		// Report the throughput.
+		Report.info(String.format("Compiled %d files (%d failed) in %.3f s using %d jobs: %.1f files/sec.",
+				srcFileNames.size(), numFailed, seconds, numJobs, srcFileNames.size() / seconds));
+		phaseTimes.forEach((phaseName, time) -> Report.info(String.format("  %-8s %10.3f ms", phaseName, time / 1e6)));
+		if (!cacheCounters.isEmpty())
+			Report.info(String.format("Cache: %d hits, %d misses.", cacheCounters.getOrDefault("hits", 0L),
+					cacheCounters.getOrDefault("misses", 0L)));
+		return numFailed == 0;
+	}
+
+	/**
+	 * Compiles a single source file as a separate compilation.
+	 *
+	 * @param workDir     The working directory.
+	 * @param commonOpts  Command line options common to all compilations.
+	 * @param srcFileName The source file name.
+	 * @return The result of the compilation.
+	 */
+	private static Result compile(final Path workDir, final List<String> commonOpts, final String srcFileName) {
+		final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+		final PrintStream out = new PrintStream(outBytes, true);
+		final PrintStream err = new PrintStream(errBytes, true);
+		final Compilation compilation = new Compilation(workDir, out, err);
+
+		final String[] opts = new String[commonOpts.size() + 1];
+		commonOpts.toArray(opts);
+		opts[commonOpts.size()] = srcFileName;
+
+		final boolean[] succeeded = { true };
+		Compilation.run(compilation, () -> {
+			try {
+				Compiler.compile(opts);
+			} catch (final Report.Error error) {
+				err.println(error.getMessage());
+				succeeded[0] = false;
+			} catch (final Throwable throwable) {
+				throwable.printStackTrace(err);
+				succeeded[0] = false;
+			}
+		});
+		return new Result(outBytes.toByteArray(), errBytes.toByteArray(), succeeded[0], compilation.stats.phases());
+	}
+
+	/**
+	 * Returns the source file (and directory) names specified on the command
+	 * line.
+	 *
+	 * @param opts Command line arguments (see {@link lang24}).
+	 * @return The source file names.
+	 */
+	private static List<String> srcFileNames(final String[] opts) {
+		final List<String> srcFileNames = new ArrayList<>();
+		for (final String opt : opts) {
+			if (opt.startsWith("--src-file-name="))
+				srcFileNames.add(opt.replaceFirst("^[^=]*=", ""));
+			else if (!opt.startsWith("--"))
+				srcFileNames.add(opt);
+		}
+		return srcFileNames;
+	}
+
+}
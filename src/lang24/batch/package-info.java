@@ -0,0 +1,5 @@
+/**
+ * Batch compilation: compiles many source files concurrently within a single
+ * invocation of the compiler.
+ */
+package lang24.batch;
@@ -0,0 +1,553 @@
+package lang24.cache;
+
+import lang24.Compiler;
+import lang24.common.CompilationLocal;
+import lang24.common.report.Report;
+import lang24.data.asm.*;
+import lang24.data.imc.code.expr.*;
+import lang24.data.imc.code.stmt.*;
+import lang24.data.imc.visitor.ImcVisitor;
+import lang24.data.lin.LinCodeChunk;
+import lang24.data.mem.MemFrame;
+import lang24.data.mem.MemLabel;
+import lang24.data.mem.MemTemp;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An on-disk cache of register allocated codes of individual functions.
+ * <p>
+ * An entry is keyed by a hash of the canonical form of the function's
+ * linearized intermediate code, its frame, the number of registers and the
+ * compiler version. In the canonical form, temporary variables and anonymous
+ * labels are renumbered in the order of their first appearance, so an
+ * unchanged function hits the cache even if the numbering of temporary
+ * variables and labels in the rest of the program has changed. Functions
+ * found in the cache skip instruction selection, liveness analysis and register
+ * allocation.
+ * <p>
+ * Entries are kept in the {@code code} subdirectory of the cache directory
+ * (see {@link CompileCache}) and count towards the same cap on its total size.
+ */
+public class CodeCache {
+
+	/** The version of the format of entries. */
+	private static final int FORMAT_VERSION = 2;
+
+	/** The subdirectory of the cache directory entries are kept in. */
+	static final String CODE_DIR = "code";
+
+	/**
+	 * The pattern of anonymous labels. Named labels such as {@code _x_L3} (of a
+	 * function named {@code x_L3}) merely end like anonymous ones.
+	 */
+	private static final Pattern ANON_LABEL = Pattern.compile("(?<![\\w`])_L\\d+(?!\\w)");
+
+	/** The pattern of canonical anonymous labels. */
+	private static final Pattern CANON_LABEL = Pattern.compile("`l(\\d+)");
+
+	/** The code cache of each compilation ({@code null} if disabled). */
+	private static final CompilationLocal<Optional<CodeCache>> codeCache = new CompilationLocal<>(
+			() -> Optional.ofNullable(open()));
+
+	/** The directory of entries. */
+	private final Path cacheDir;
+
+	/** The cap on the total size of the cache (in bytes). */
+	private final long maxSize;
+
+	/** The compiler version and the number of registers as specified. */
+	private final String context;
+
+	/** Canonical forms of functions not found in the cache (by entry labels). */
+	private final Map<MemLabel, Canon> misses = new ConcurrentHashMap<>();
+
+	/** Register maps of functions found in the cache (by entry labels). */
+	private final Map<MemLabel, Map<MemTemp, Integer>> hits = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new code cache.
+	 *
+	 * @param cacheDir The directory of entries.
+	 * @param maxSize  The cap on the total size of the cache (in bytes).
+	 */
+	private CodeCache(final Path cacheDir, final long maxSize) {
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+		final String numRegs = Compiler.cmdLineOptValue("--num-regs");
+		this.context = CompileCache.compilerVersion() + "\0" + (numRegs == null ? "" : numRegs);
+	}
+
+	/**
+	 * Opens the code cache for the current compilation.
+	 *
+	 * @return The code cache or {@code null} if caching has not been requested or
+	 *         the current compilation is being logged.
+	 */
+	private static CodeCache open() {
+		final String cacheDirName = Compiler.cmdLineOptValue("--cache-dir");
+		if (cacheDirName == null)
+			return null;
+		if (!Compiler.cmdLineOptValue("--logged-phase").equals("none"))
+			return null;
+		return new CodeCache(Paths.get(cacheDirName, CODE_DIR), CompileCache.maxSize());
+	}
+
+	/**
+	 * Returns the code cache of the current compilation.
+	 *
+	 * @return The code cache or {@code null} if disabled.
+	 */
+	public static CodeCache current() {
+		return codeCache.get().orElse(null);
+	}
+
+	/**
+	 * Looks up the code of a function.
+	 *
+	 * @param codeChunk The code chunk of the function.
+	 * @return The register allocated code or {@code null} if not found.
+	 */
+	public Code lookup(final LinCodeChunk codeChunk) {
+		final Canon canon = new Canon(codeChunk);
+		final Path entry = cacheDir.resolve(canon.key);
+		if (Files.exists(entry)) {
+			try (final DataInputStream in = new DataInputStream(
+					new BufferedInputStream(Files.newInputStream(entry)))) {
+				final Code code = read(in, canon, codeChunk);
+				Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+				return code;
+			} catch (final IOException | RuntimeException __) {
+				// Unreadable or stale entry: treat it as a miss.
+			}
+		}
+		misses.put(codeChunk.entryLabel(), canon);
+		return null;
+	}
+
+	/**
+	 * Checks whether a code has been taken from the cache.
+	 *
+	 * @param code The code.
+	 * @return {@code true} if the code has been taken from the cache,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isCached(final Code code) {
+		return hits.containsKey(code.entryLabel);
+	}
+
+	/**
+	 * Returns the mapping of temporary variables to registers of a code taken
+	 * from the cache.
+	 *
+	 * @param code The code.
+	 * @return The mapping of temporary variables to registers.
+	 */
+	public Map<MemTemp, Integer> tempToReg(final Code code) {
+		return hits.get(code.entryLabel);
+	}
+
+	/**
+	 * Stores a register allocated code of a function not found in the cache.
+	 *
+	 * @param code      The code.
+	 * @param tempToReg The mapping of temporary variables to registers.
+	 */
+	public void store(final Code code, final Map<MemTemp, Integer> tempToReg) {
+		final Canon canon = misses.remove(code.entryLabel);
+		if (canon == null)
+			return;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final DataOutputStream out = new DataOutputStream(bytes)) {
+			if (!write(out, canon, code, tempToReg))
+				return;
+		} catch (final IOException __) {
+			throw new Report.InternalError();
+		}
+		try {
+			Files.createDirectories(cacheDir);
+			final Path tmpFile = Files.createTempFile(cacheDir, "tmp-", "");
+			Files.write(tmpFile, bytes.toByteArray());
+			Files.move(tmpFile, cacheDir.resolve(canon.key), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException exception) {
+			Report.warning("Cannot write cache entry of '" + code.frame.label.name() + "': " + exception.getMessage());
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries (of both compiled files and codes of
+	 * functions) if the cache is too large.
+	 */
+	public void evict() {
+		CompileCache.evict(cacheDir.getParent(), maxSize);
+	}
+
+	/**
+	 * Writes an entry.
+	 *
+	 * @param out       The output stream.
+	 * @param canon     The canonical form of the function.
+	 * @param code      The register allocated code.
+	 * @param tempToReg The mapping of temporary variables to registers.
+	 * @return {@code true} if the entry has been written, {@code false} if the
+	 *         code cannot be cached.
+	 * @throws IOException If the entry cannot be written.
+	 */
+	private static boolean write(final DataOutputStream out, final Canon canon, final Code code,
+			final Map<MemTemp, Integer> tempToReg) throws IOException {
+		final Map<MemTemp, Integer> temps = new HashMap<>(canon.tempIndex);
+		final List<MemTemp> tempList = new ArrayList<>(canon.temps);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(code.tempCount);
+		out.writeInt(code.instrs.size());
+		for (final AsmInstr instr : code.instrs) {
+			if (instr instanceof AsmLABEL label) {
+				out.writeByte(0);
+				final String canonLabel = canon.label(label.label);
+				if (canonLabel == null)
+					return false;
+				out.writeUTF(canonLabel);
+				continue;
+			}
+			if (!(instr instanceof AsmOPER oper))
+				return false;
+			out.writeByte(instr instanceof AsmMOVE ? 2 : 1);
+			final Matcher matcher = ANON_LABEL.matcher(oper.instr());
+			final StringBuilder text = new StringBuilder();
+			while (matcher.find()) {
+				final Integer index = canon.labelIndex.get(matcher.group());
+				if (index == null)
+					return false;
+				matcher.appendReplacement(text, "`l" + index);
+			}
+			matcher.appendTail(text);
+			out.writeUTF(text.toString());
+			for (final Vector<MemTemp> operands : List.of(oper.uses(), oper.defs())) {
+				out.writeInt(operands.size());
+				for (final MemTemp temp : operands) {
+					Integer index = temps.get(temp);
+					if (index == null) {
+						index = tempList.size();
+						temps.put(temp, index);
+						tempList.add(temp);
+					}
+					out.writeInt(index);
+				}
+			}
+			out.writeInt(oper.jumps().size());
+			for (final MemLabel jump : oper.jumps()) {
+				final String canonLabel = canon.label(jump);
+				if (canonLabel == null)
+					return false;
+				out.writeUTF(canonLabel);
+			}
+		}
+		out.writeInt(tempList.size());
+		for (final MemTemp temp : tempList) {
+			final Integer reg = tempToReg.get(temp);
+			out.writeInt(reg == null ? -1 : reg);
+		}
+		return true;
+	}
+
+	/**
+	 * Reads an entry.
+	 *
+	 * @param in        The input stream.
+	 * @param canon     The canonical form of the function.
+	 * @param codeChunk The code chunk of the function.
+	 * @return The register allocated code.
+	 * @throws IOException If the entry cannot be read.
+	 */
+	private Code read(final DataInputStream in, final Canon canon, final LinCodeChunk codeChunk) throws IOException {
+		if (in.readInt() != FORMAT_VERSION)
+			throw new IOException();
+		final long tempCount = in.readLong();
+		final List<MemTemp> temps = new ArrayList<>(canon.temps);
+		final List<AsmInstr> instrs = new ArrayList<>();
+		final int numInstrs = in.readInt();
+		for (int i = 0; i < numInstrs; i++) {
+			final byte kind = in.readByte();
+			if (kind == 0) {
+				instrs.add(new AsmLABEL(canon.label(in.readUTF())));
+				continue;
+			}
+			final Matcher matcher = CANON_LABEL.matcher(in.readUTF());
+			final StringBuilder text = new StringBuilder();
+			while (matcher.find())
+				matcher.appendReplacement(text, canon.labels.get(Integer.parseInt(matcher.group(1))).name());
+			matcher.appendTail(text);
+			final Vector<MemTemp> uses = readTemps(in, temps);
+			final Vector<MemTemp> defs = readTemps(in, temps);
+			final Vector<MemLabel> jumps = new Vector<>();
+			final int numJumps = in.readInt();
+			for (int jump = 0; jump < numJumps; jump++)
+				jumps.add(canon.label(in.readUTF()));
+			instrs.add(kind == 2 ? new AsmMOVE(text.toString(), uses, defs)
+					: new AsmOPER(text.toString(), uses, defs, jumps));
+		}
+		final int numTemps = in.readInt();
+		final Map<MemTemp, Integer> tempToReg = new HashMap<>();
+		for (int temp = 0; temp < numTemps; temp++) {
+			final int reg = in.readInt();
+			if (reg >= 0)
+				tempToReg.put(temp(temps, temp), reg);
+		}
+
+		final Code code = new Code(codeChunk.frame(), codeChunk.entryLabel(), codeChunk.exitLabel(), instrs);
+		code.tempCount = tempCount;
+		hits.put(codeChunk.entryLabel(), tempToReg);
+		return code;
+	}
+
+	/**
+	 * Reads operands of an instruction.
+	 *
+	 * @param in    The input stream.
+	 * @param temps Temporary variables by their canonical indices.
+	 * @return The operands.
+	 * @throws IOException If the operands cannot be read.
+	 */
+	private static Vector<MemTemp> readTemps(final DataInputStream in, final List<MemTemp> temps)
+			throws IOException {
+		final Vector<MemTemp> operands = new Vector<>();
+		final int numOperands = in.readInt();
+		for (int operand = 0; operand < numOperands; operand++)
+			operands.add(temp(temps, in.readInt()));
+		return operands;
+	}
+
+	/**
+	 * Returns the temporary variable with the specified canonical index, creating
+	 * new temporary variables for indices not belonging to the code chunk.
+	 *
+	 * @param temps Temporary variables by their canonical indices.
+	 * @param index The canonical index.
+	 * @return The temporary variable.
+	 */
+	private static MemTemp temp(final List<MemTemp> temps, final int index) {
+		while (temps.size() <= index)
+			temps.add(new MemTemp());
+		return temps.get(index);
+	}
+
+	/**
+	 * The canonical form of a function.
+	 */
+	private class Canon implements ImcVisitor<Object, StringBuilder> {
+
+		/** Temporary variables of the function in the order of their appearance. */
+		final List<MemTemp> temps = new ArrayList<>();
+
+		/** Canonical indices of temporary variables. */
+		final Map<MemTemp, Integer> tempIndex = new HashMap<>();
+
+		/** Anonymous labels of the function in the order of their appearance. */
+		final List<MemLabel> labels = new ArrayList<>();
+
+		/** Canonical indices of anonymous labels (by their names). */
+		final Map<String, Integer> labelIndex = new HashMap<>();
+
+		/** The key of the function. */
+		final String key;
+
+		/**
+		 * Constructs the canonical form of a function.
+		 *
+		 * @param codeChunk The code chunk of the function.
+		 */
+		Canon(final LinCodeChunk codeChunk) {
+			final MemFrame frame = codeChunk.frame();
+			final StringBuilder canon = new StringBuilder(context);
+			canon.append("\0FRAME ").append(label(frame.label)).append(' ').append(frame.depth).append(' ')
+					.append(frame.size).append(' ').append(frame.localSize).append(' ').append(frame.argsSize)
+					.append(' ').append(temp(frame.FP)).append(' ').append(temp(frame.RV));
+			canon.append(" ENTRY ").append(label(codeChunk.entryLabel()));
+			canon.append(" EXIT ").append(label(codeChunk.exitLabel()));
+			for (final ImcStmt stmt : codeChunk.stmts()) {
+				canon.append('\n');
+				stmt.accept(this, canon);
+			}
+
+			try {
+				final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				key = HexFormat.of().formatHex(digest.digest(canon.toString().getBytes()));
+			} catch (final NoSuchAlgorithmException __) {
+				throw new Report.InternalError();
+			}
+		}
+
+		/**
+		 * Returns the canonical name of a temporary variable.
+		 *
+		 * @param temp The temporary variable.
+		 * @return The canonical name.
+		 */
+		String temp(final MemTemp temp) {
+			Integer index = tempIndex.get(temp);
+			if (index == null) {
+				index = temps.size();
+				tempIndex.put(temp, index);
+				temps.add(temp);
+			}
+			return "t" + index;
+		}
+
+		/**
+		 * Returns the canonical name of a label, registering the label if it is
+		 * anonymous and appears for the first time.
+		 *
+		 * @param label The label.
+		 * @return The canonical name.
+		 */
+		String label(final MemLabel label) {
+			if (!ANON_LABEL.matcher(label.name()).matches())
+				return label.name();
+			Integer index = labelIndex.get(label.name());
+			if (index == null) {
+				index = labels.size();
+				labelIndex.put(label.name(), index);
+				labels.add(label);
+			}
+			return "`l" + index;
+		}
+
+		/**
+		 * Returns the label with the specified canonical name.
+		 *
+		 * @param canonLabel The canonical name.
+		 * @return The label.
+		 */
+		MemLabel label(final String canonLabel) {
+			final Matcher matcher = CANON_LABEL.matcher(canonLabel);
+			if (matcher.matches())
+				return labels.get(Integer.parseInt(matcher.group(1)));
+			return new MemLabel(canonLabel.substring(1));
+		}
+
+		@Override
+		public Object visit(final ImcBINOP binOp, final StringBuilder canon) {
+			canon.append("(BINOP ").append(binOp.oper).append(' ');
+			binOp.fstExpr.accept(this, canon);
+			canon.append(' ');
+			binOp.sndExpr.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcCALL call, final StringBuilder canon) {
+			canon.append("(CALL ").append(label(call.label));
+			for (int arg = 0; arg < call.args.size(); arg++) {
+				canon.append(' ').append(call.offs.get(arg)).append(':');
+				call.args.get(arg).accept(this, canon);
+			}
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcCJUMP cjump, final StringBuilder canon) {
+			canon.append("(CJUMP ");
+			cjump.cond.accept(this, canon);
+			canon.append(' ').append(label(cjump.posLabel)).append(' ').append(label(cjump.negLabel)).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcCONST constant, final StringBuilder canon) {
+			canon.append("(CONST ").append(constant.value).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcESTMT eStmt, final StringBuilder canon) {
+			canon.append("(ESTMT ");
+			eStmt.expr.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcJUMP jump, final StringBuilder canon) {
+			canon.append("(JUMP ").append(label(jump.label)).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcLABEL label, final StringBuilder canon) {
+			canon.append("(LABEL ").append(label(label.label)).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcMEM mem, final StringBuilder canon) {
+			canon.append(mem.size == 8 ? "(MEM " : "(MEM" + mem.size + " ");
+			mem.addr.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcMOVE move, final StringBuilder canon) {
+			canon.append("(MOVE ");
+			move.dst.accept(this, canon);
+			canon.append(' ');
+			move.src.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcNAME name, final StringBuilder canon) {
+			canon.append("(NAME ").append(label(name.label)).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcSEXPR sExpr, final StringBuilder canon) {
+			canon.append("(SEXPR ");
+			sExpr.stmt.accept(this, canon);
+			canon.append(' ');
+			sExpr.expr.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcSTMTS stmts, final StringBuilder canon) {
+			canon.append("(STMTS");
+			for (final ImcStmt stmt : stmts.stmts) {
+				canon.append(' ');
+				stmt.accept(this, canon);
+			}
+			canon.append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcTEMP temp, final StringBuilder canon) {
+			canon.append("(TEMP ").append(temp(temp.temp)).append(')');
+			return null;
+		}
+
+		@Override
+		public Object visit(final ImcUNOP unOp, final StringBuilder canon) {
+			canon.append("(UNOP ").append(unOp.oper).append(' ');
+			unOp.subExpr.accept(this, canon);
+			canon.append(')');
+			return null;
+		}
+
+	}
+
+}
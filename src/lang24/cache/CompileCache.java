@@ -0,0 +1,247 @@
+package lang24.cache;
+
+import lang24.Compiler;
+import lang24.common.Compilation;
+import lang24.common.report.Report;
+import lang24.common.stats.PhaseStats;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A content addressed on-disk cache of compiled files.
+ * <p>
+ * An entry is keyed by a hash of the source file, the compiler version and the
+ * command line options affecting the output (the target phase, which selects
+ * the backend, the number of registers and the options changing the layout or
+ * optimizing the code). Only compilations producing a
+ * single output file, i.e., those targeting the {@code all} or the
+ * {@code watgen} phase without any logging, are cached. The total size of the
+ * cache, including the codes of functions cached by {@link CodeCache}, is
+ * capped and the least recently used entries are evicted first.
+ */
+public class CompileCache {
+
+	/** The default cap on the total size of the cache (in megabytes). */
+	public static final long DEFAULT_SIZE = 64;
+
+	/** The command line options (without values) that change the compiled code. */
+	private static final List<String> CODE_OPTS = List.of("--packed-layout", "--fold-constants",
+			"--short-circuit", "--value-numbering", "--ssa",
+			"--propagate-constants");
+
+	/** The cache directory. */
+	private final Path cacheDir;
+
+	/** The cap on the total size of the cache (in bytes). */
+	private final long maxSize;
+
+	/** The cache entry of the current compilation. */
+	private final Path entry;
+
+	/** The output file of the current compilation. */
+	private final Path dstFile;
+
+	/** Whether the output has been restored from the cache. */
+	private boolean restored = false;
+
+	/**
+	 * Constructs a new cache access.
+	 *
+	 * @param cacheDir The cache directory.
+	 * @param maxSize  The cap on the total size of the cache (in bytes).
+	 * @param key      The key of the current compilation.
+	 * @param dstFile  The output file of the current compilation.
+	 */
+	private CompileCache(final Path cacheDir, final long maxSize, final String key, final Path dstFile) {
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+		this.entry = cacheDir.resolve(key);
+		this.dstFile = dstFile;
+	}
+
+	/**
+	 * Opens the cache for the current compilation.
+	 *
+	 * @return The cache or {@code null} if caching has not been requested or the
+	 *         current compilation cannot be cached.
+	 */
+	public static CompileCache open() {
+		final String cacheDirName = Compiler.cmdLineOptValue("--cache-dir");
+		if (cacheDirName == null)
+			return null;
+		final String targetPhase = Compiler.cmdLineOptValue("--target-phase");
+		if (!targetPhase.equals("all") && !targetPhase.equals("watgen"))
+			return null;
+		if (!Compiler.cmdLineOptValue("--logged-phase").equals("none"))
+			return null;
+		if (Compiler.cmdLineOptValue("--profile-parser") != null)
+			return null;
+		if (Boolean.parseBoolean(System.getenv().getOrDefault("INTP_MODE", "false")))
+			return null;
+
+		final String srcFileName = Compiler.cmdLineOptValue("--src-file-name");
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+			digest.update(Files.readAllBytes(Paths.get(srcFileName)));
+		} catch (final NoSuchAlgorithmException __) {
+			throw new Report.InternalError();
+		} catch (final IOException __) {
+			throw new Report.Error("Cannot open file '" + srcFileName + "'.");
+		}
+		final String numRegs = Compiler.cmdLineOptValue("--num-regs");
+		final StringBuilder codeOpts = new StringBuilder();
+		for (final String codeOpt : CODE_OPTS)
+			if (Compiler.cmdLineOptValue(codeOpt) != null)
+				codeOpts.append(codeOpt);
+		for (final String part : List.of(compilerVersion(), targetPhase, numRegs == null ? "" : numRegs,
+				codeOpts.toString())) {
+			digest.update((byte) 0);
+			digest.update(part.getBytes());
+		}
+
+		return new CompileCache(Paths.get(cacheDirName), maxSize(),
+				HexFormat.of().formatHex(digest.digest()), Paths.get(Compiler.cmdLineOptValue("--dst-file-name")));
+	}
+
+	/**
+	 * Returns the cap on the total size of the cache as specified on the command
+	 * line.
+	 *
+	 * @return The cap on the total size of the cache (in bytes).
+	 */
+	static long maxSize() {
+		long maxSize = DEFAULT_SIZE;
+		final String cacheSize = Compiler.cmdLineOptValue("--cache-size");
+		if (cacheSize != null) {
+			try {
+				maxSize = Long.parseLong(cacheSize);
+			} catch (final NumberFormatException __) {
+				Report.warning("Illegal cache size '" + cacheSize + "' ignored.");
+			}
+		}
+		return maxSize * 1024 * 1024;
+	}
+
+	/**
+	 * Returns the compiler version, i.e., the implementation version of the
+	 * compiler if known and the time the compiler has been built at otherwise.
+	 *
+	 * @return The compiler version.
+	 */
+	static String compilerVersion() {
+		final String version = Compiler.class.getPackage().getImplementationVersion();
+		if (version != null)
+			return version;
+		try {
+			final URL compiler = Compiler.class.getResource("Compiler.class");
+			final URLConnection connection = compiler.openConnection();
+			connection.setUseCaches(false);
+			return Long.toString(connection.getLastModified());
+		} catch (final IOException | NullPointerException __) {
+			return "";
+		}
+	}
+
+	/**
+	 * Restores the output of the current compilation from the cache.
+	 *
+	 * @return {@code true} if the output has been found in the cache,
+	 *         {@code false} otherwise.
+	 */
+	public boolean restore() {
+		final PhaseStats stats = Compilation.current().stats.begin("cache");
+		try {
+			Files.copy(entry, dstFile, StandardCopyOption.REPLACE_EXISTING);
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			restored = true;
+		} catch (final NoSuchFileException __) {
+			restored = false;
+		} catch (final IOException exception) {
+			Report.warning("Cannot read cache entry '" + entry + "': " + exception.getMessage());
+			restored = false;
+		}
+		stats.count("hits", restored ? 1 : 0);
+		stats.count("misses", restored ? 0 : 1);
+		Compilation.current().stats.end(stats);
+		Report.info(restored ? "Cache hit, compilation skipped." : "Cache miss.");
+		return restored;
+	}
+
+	/**
+	 * Stores the output of the current compilation into the cache (unless it has
+	 * been restored from it) and evicts the least recently used entries if the
+	 * cache is too large.
+	 */
+	public void store() {
+		if (restored)
+			return;
+		try {
+			Files.createDirectories(cacheDir);
+			final Path tmpFile = Files.createTempFile(cacheDir, "tmp-", "");
+			Files.copy(dstFile, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tmpFile, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException exception) {
+			Report.warning("Cannot write cache entry '" + entry + "': " + exception.getMessage());
+			return;
+		}
+		evict(cacheDir, maxSize);
+	}
+
+	/**
+	 * Evicts the least recently used entries of a cache directory and of its
+	 * subdirectory of function codes until all entries together fit the cap.
+	 *
+	 * @param cacheDir The cache directory.
+	 * @param maxSize  The cap on the total size of entries (in bytes).
+	 */
+	static void evict(final Path cacheDir, final long maxSize) {
+		final List<Path> entries = new ArrayList<>();
+		for (final Path dir : List.of(cacheDir, cacheDir.resolve(CodeCache.CODE_DIR))) {
+			try (final Stream<Path> paths = Files.list(dir)) {
+				paths.filter(Files::isRegularFile)
+						.filter(path -> !path.getFileName().toString().startsWith("tmp-"))
+						.forEach(entries::add);
+			} catch (final IOException __) {
+				// Directory not created yet.
+			}
+		}
+		entries.sort(Comparator.comparing(CompileCache::lastModified).reversed());
+		long size = 0;
+		for (final Path path : entries) {
+			try {
+				size += Files.size(path);
+				if (size > maxSize)
+					Files.deleteIfExists(path);
+			} catch (final IOException __) {
+				// Entry removed by a concurrent compilation.
+			}
+		}
+	}
+
+	/**
+	 * Returns the time an entry has been last used at.
+	 *
+	 * @param path The entry.
+	 * @return The time the entry has been last used at.
+	 */
+	private static FileTime lastModified(final Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (final IOException __) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+/**
+ * On-disk caches of compiled files and of register allocated functions, so that
+ * unchanged source files need not be compiled again and unchanged functions of
+ * changed source files need not pass through the backend again.
+ */
+package lang24.cache;
@@ -0,0 +1,187 @@
+package lang24.common;
+
+import lang24.common.stats.PhaseStats;
+import lang24.common.stats.Stats;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A single run of the compiler.
+ * <p>
+ * Compiler phases keep their results in static fields (attributes of the
+ * abstract syntax tree, code chunks, ...). All such fields are declared as
+ * {@link CompilationLocal} and thus belong to the compilation that is currently
+ * active, so that the compiler can be run over and over again within the same
+ * JVM without any state leaking from one run into another. Each thread has
+ * its own current compilation, so several compilations can run concurrently.
+ */
+public class Compilation {
+
+	/** The compilation currently in progress within each thread. */
+	private static final ThreadLocal<Compilation> current = ThreadLocal
+			.withInitial(() -> new Compilation(Paths.get(""), System.out, System.err));
+
+	/** Whether each thread is running a parallel task whose resources are measured. */
+	private static final ThreadLocal<Boolean> inTask = ThreadLocal.withInitial(() -> false);
+
+	/** The directory relative file names are resolved against. */
+	public final Path workDir;
+
+	/** The stream information messages are printed to. */
+	public final PrintStream out;
+
+	/** The stream warnings and errors are printed to. */
+	public final PrintStream err;
+
+	/** Statistics of phases. */
+	public final Stats stats = new Stats();
+
+	/** Counter of information messages printed out. */
+	public final AtomicInteger numOfInfos = new AtomicInteger();
+
+	/** Counter of warnings printed out. */
+	public final AtomicInteger numOfWarnings = new AtomicInteger();
+
+	/**
+	 * Values of compilation local variables indexed by their slots. Slots are
+	 * read without locking; values are stored (rarely, as a value is mostly set
+	 * once per compilation) under the compilation's lock, which replaces the
+	 * array by a larger copy if the slot lies beyond its end.
+	 */
+	private volatile AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(CompilationLocal.numSlots());
+
+	/**
+	 * Constructs a new compilation.
+	 *
+	 * @param workDir The directory relative file names are resolved against.
+	 * @param out     The stream information messages are printed to.
+	 * @param err     The stream warnings and errors are printed to.
+	 */
+	public Compilation(final Path workDir, final PrintStream out, final PrintStream err) {
+		this.workDir = workDir;
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Returns the compilation currently in progress within this thread.
+	 *
+	 * @return The compilation currently in progress.
+	 */
+	public static Compilation current() {
+		return current.get();
+	}
+
+	/**
+	 * Runs a task as a part of the specified compilation within this thread. Once
+	 * the task is finished, the previously active compilation becomes active
+	 * again.
+	 *
+	 * @param compilation The compilation the task belongs to.
+	 * @param task        The task.
+	 */
+	public static void run(final Compilation compilation, final Runnable task) {
+		final Compilation previous = current.get();
+		current.set(compilation);
+		try {
+			task.run();
+		} finally {
+			current.set(previous);
+		}
+	}
+
+	/**
+	 * Applies a function to all items in parallel, each application running as a
+	 * part of this compilation.
+	 *
+	 * @param <T>      The type of items.
+	 * @param <R>      The type of results.
+	 * @param items    The items.
+	 * @param function The function.
+	 * @return The results in the order of items.
+	 */
+	public <T, R> List<R> parallelMap(final List<T> items, final Function<? super T, ? extends R> function) {
+		final PhaseStats phase = stats.measuredPhase();
+		return items.parallelStream().<R>map(item -> {
+			final Compilation previous = current.get();
+			current.set(this);
+			// Tasks run by the phase's own thread or within another measured task are measured already.
+			final boolean measured = phase != null && !phase.isPhaseThread() && !inTask.get();
+			final long startCpuTime = measured ? PhaseStats.currentThreadCpuTime() : 0;
+			final long startAllocatedBytes = measured ? PhaseStats.currentThreadAllocatedBytes() : 0;
+			if (measured)
+				inTask.set(true);
+			try {
+				return function.apply(item);
+			} finally {
+				if (measured) {
+					inTask.set(false);
+					phase.addTask(PhaseStats.currentThreadCpuTime() - startCpuTime,
+							PhaseStats.currentThreadAllocatedBytes() - startAllocatedBytes);
+				}
+				current.set(previous);
+			}
+		}).toList();
+	}
+
+	/**
+	 * Performs an action on all items in parallel, each action running as a part
+	 * of this compilation.
+	 *
+	 * @param <T>    The type of items.
+	 * @param items  The items.
+	 * @param action The action.
+	 */
+	public <T> void parallelForEach(final List<T> items, final Consumer<? super T> action) {
+		parallelMap(items, item -> {
+			action.accept(item);
+			return item;
+		});
+	}
+
+	/**
+	 * Resolves a file name against the working directory of this compilation.
+	 *
+	 * @param fileName The file name.
+	 * @return The resolved file name.
+	 */
+	public String resolve(final String fileName) {
+		return workDir.resolve(fileName).toString();
+	}
+
+	/**
+	 * Returns the value stored in the specified slot.
+	 *
+	 * @param slot The slot.
+	 * @return The value (or {@code null} if no value has been stored yet).
+	 */
+	Object value(final int slot) {
+		final AtomicReferenceArray<Object> values = this.values;
+		return slot < values.length() ? values.get(slot) : null;
+	}
+
+	/**
+	 * Stores the value in the specified slot.
+	 *
+	 * @param slot  The slot.
+	 * @param value The value.
+	 */
+	synchronized void setValue(final int slot, final Object value) {
+		if (slot >= values.length()) {
+			final AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(
+					Math.max(slot + 1, 2 * values.length()));
+			for (int i = 0; i < values.length(); i++)
+				grown.set(i, values.get(i));
+			values = grown;
+		}
+		values.set(slot, value);
+	}
+
+}
@@ -0,0 +1,76 @@
+package lang24.common;
+
+import java.util.function.Supplier;
+
+/**
+ * A variable with a separate value for each compilation (see
+ * {@link Compilation}). Its value is initialized lazily on the first access
+ * within a compilation.
+ *
+ * @param <T> The type of the value.
+ */
+public final class CompilationLocal<T> {
+
+	/** The number of slots taken so far. */
+	private static int numSlots = 0;
+
+	/** The slot the value is stored in within each compilation. */
+	private final int slot;
+
+	/** Produces the initial value. */
+	private final Supplier<? extends T> initialValue;
+
+	/**
+	 * Returns the number of slots taken so far.
+	 *
+	 * @return The number of slots.
+	 */
+	static synchronized int numSlots() {
+		return numSlots;
+	}
+
+	/**
+	 * Constructs a new compilation local variable.
+	 *
+	 * @param initialValue Produces the initial value.
+	 */
+	public CompilationLocal(final Supplier<? extends T> initialValue) {
+		synchronized (CompilationLocal.class) {
+			this.slot = numSlots++;
+		}
+		this.initialValue = initialValue;
+	}
+
+	/**
+	 * Returns the value within the compilation currently in progress.
+	 *
+	 * @return The value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		final Compilation compilation = Compilation.current();
+		Object value = compilation.value(slot);
+		if (value == null) {
+			// Several threads of the same compilation must share the initial value, so
+			// only the lazy initialization is done under the compilation's lock.
+			synchronized (compilation) {
+				value = compilation.value(slot);
+				if (value == null) {
+					value = initialValue.get();
+					compilation.setValue(slot, value);
+				}
+			}
+		}
+		return (T) value;
+	}
+
+	/**
+	 * Sets the value within the compilation currently in progress.
+	 *
+	 * @param value The value.
+	 */
+	public void set(final T value) {
+		Compilation.current().setValue(slot, value);
+	}
+
+}
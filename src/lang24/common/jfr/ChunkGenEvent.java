@@ -0,0 +1,22 @@
+package lang24.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Linearization of the intermediate code of a single function.
+ */
+@Name("lang24.ChunkGen")
+@Label("Code Chunk Generation")
+@Category({ "LANG'24", "Compiler", "Function" })
+@Description("Linearization of the intermediate code of a single function")
+public class ChunkGenEvent extends Event {
+
+	/** The function name. */
+	@Label("Function")
+	public String function;
+
+	/** The number of statements of the linearized code. */
+	@Label("IMC Statements")
+	public int numStmts;
+
+}
@@ -0,0 +1,26 @@
+package lang24.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Instruction selection for a single function.
+ */
+@Name("lang24.InstrSel")
+@Label("Instruction Selection")
+@Category({ "LANG'24", "Compiler", "Function" })
+@Description("Instruction selection for a single function")
+public class InstrSelEvent extends Event {
+
+	/** The function name. */
+	@Label("Function")
+	public String function;
+
+	/** The number of IMC statements of the function. */
+	@Label("IMC Statements")
+	public int numStmts;
+
+	/** The number of instructions generated. */
+	@Label("Instructions")
+	public int numInstrs;
+
+}
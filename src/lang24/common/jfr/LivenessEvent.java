@@ -0,0 +1,26 @@
+package lang24.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Liveness analysis of a single function.
+ */
+@Name("lang24.Liveness")
+@Label("Liveness Analysis")
+@Category({ "LANG'24", "Compiler", "Function" })
+@Description("Liveness analysis of a single function")
+public class LivenessEvent extends Event {
+
+	/** The function name. */
+	@Label("Function")
+	public String function;
+
+	/** The number of instructions of the function. */
+	@Label("Instructions")
+	public int numInstrs;
+
+	/** The number of iterations needed to reach the fixed point. */
+	@Label("Iterations")
+	public int iterations;
+
+}
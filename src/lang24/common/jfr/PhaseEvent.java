@@ -0,0 +1,22 @@
+package lang24.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A compiler phase, from its construction until it is closed.
+ */
+@Name("lang24.Phase")
+@Label("Phase")
+@Category({ "LANG'24", "Compiler" })
+@Description("A compiler phase from its construction until it is closed")
+public class PhaseEvent extends Event {
+
+	/** The phase name. */
+	@Label("Phase")
+	public String phaseName;
+
+	/** The name of the source file being compiled. */
+	@Label("Source File")
+	public String srcFileName;
+
+}
@@ -0,0 +1,39 @@
+package lang24.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A single round of register allocation of a single function, i.e., building
+ * and coloring the interference graph and, if needed, spilling.
+ */
+@Name("lang24.RegAllocRound")
+@Label("Register Allocation Round")
+@Category({ "LANG'24", "Compiler", "Function" })
+@Description("Building and coloring the interference graph of a single function and spilling if needed")
+public class RegAllocRoundEvent extends Event {
+
+	/** The function name. */
+	@Label("Function")
+	public String function;
+
+	/** The number of the round (starting with 1). */
+	@Label("Round")
+	public int round;
+
+	/** The number of instructions of the function. */
+	@Label("Instructions")
+	public int numInstrs;
+
+	/** The number of nodes of the interference graph. */
+	@Label("Graph Nodes")
+	public int graphNodes;
+
+	/** The number of edges of the interference graph. */
+	@Label("Graph Edges")
+	public int graphEdges;
+
+	/** The number of variables spilled. */
+	@Label("Spilled")
+	public int numSpilled;
+
+}
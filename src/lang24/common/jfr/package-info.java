@@ -0,0 +1,5 @@
+/**
+ * Java Flight Recorder events emitted by the compiler: one per phase and one
+ * per function processed by the phases working function by function.
+ */
+package lang24.common.jfr;
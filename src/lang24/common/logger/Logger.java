@@ -1,17 +1,19 @@
 package lang24.common.logger;
 
 import java.io.*;
+import java.nio.charset.*;
 import java.util.*;
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.*;
-import javax.xml.transform.stream.*;
-import org.w3c.dom.*;
+import javax.xml.stream.*;
 import lang24.common.report.*;
 
 /**
  * A logger generating an XML/XSL log of an individual compiler phase.
- * 
+ * <p>
+ * The log is streamed to the XML file as it is being produced, so the memory
+ * used by the logger does not depend on the size of the log. Consequently,
+ * attributes must be added to the active XML element before any XML element is
+ * nested within it.
+ *
  * @author bostjan.slivnik@fri.uni-lj.si
  */
 public class Logger implements AutoCloseable {
@@ -22,15 +24,24 @@ public class Logger implements AutoCloseable {
 	/** The name of the relating XSL file (to be included in the XML header). */
 	private final String xslFileName;
 
-	/** The entire XML document being constructed. */
-	private final Document doc;
+	/** The writer of the XML file ({@code null} if the file cannot be written). */
+	private XMLStreamWriter writer;
 
-	/** The stack of the XML documents (used during construction). */
-	private final Stack<Element> elements = new Stack<Element>();
+	/** The output the XML file is written to. */
+	private Writer output;
+
+	/** The stack of the tag names of open XML elements. */
+	private final Stack<String> elements = new Stack<String>();
+
+	/** The tag name of the active XML element if its start tag is not written yet. */
+	private String pendingTagName = null;
+
+	/** The attributes of the active XML element if its start tag is not written yet. */
+	private final LinkedHashMap<String, String> pendingAttrs = new LinkedHashMap<String, String>();
 
 	/**
 	 * Constructs a new logger.
-	 * 
+	 *
 	 * @param phaseName   The name of the phase being logged.
 	 * @param xmlFileName The name of the XML file to be produced.
 	 * @param xslFileName The name of the relating XSL file.
@@ -39,60 +50,55 @@ public class Logger implements AutoCloseable {
 		this.xmlFileName = xmlFileName;
 		this.xslFileName = xslFileName;
 
-		// Prepare a new log document.
+		// Prepare a new log file.
 		try {
-			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (final ParserConfigurationException ex) {
-			throw new Report.InternalError();
+			output = new WhiteSpaceEscaper(new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(xmlFileName), StandardCharsets.UTF_8), 1 << 16));
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output);
+			writer.writeStartDocument("UTF-8", "1.0");
+
+			// Add XSL declaration.
+			writer.writeProcessingInstruction("xml-stylesheet",
+					"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
+		} catch (final IOException | XMLStreamException ex) {
+			failed();
 		}
 
-		// Create the root element representing the entire phase.
-		final Element phase = doc.createElement(phaseName);
-		doc.appendChild(phase);
-		elements.push(phase);
-
-		// Add XSL declaration.
-		final ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
-				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
-		doc.insertBefore(xsl, phase);
+		// Start the root element representing the entire phase.
+		pendingTagName = phaseName;
+		elements.push(phaseName);
 	}
 
 	@Override
 	public void close() {
-		try {
-			elements.pop();
-		} catch (EmptyStackException ex) {
-			throw new Report.InternalError();
-		}
+		endElement();
 		if (!elements.empty())
 			throw new Report.InternalError();
 
-		// Dump the log document out.
+		// Finish the log file.
+		if (writer == null)
+			return;
 		try {
-			final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			final javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
-			final DOMSource source = new DOMSource(doc);
-			final StreamResult result = new StreamResult(new File(xmlFileName));
-			transformer.transform(source, result);
-		} catch (final TransformerException ex) {
-			Report.warning("Cannot open log file '" + xmlFileName + "'.");
+			writer.writeEndDocument();
+			writer.close();
+			output.close();
+		} catch (final IOException | XMLStreamException ex) {
+			failed();
 		}
 	}
 
 	/**
 	 * Starts a new XML element (within the active XML element) and makes it active.
 	 * Only one XML element can be active at each moment.
-	 * 
+	 *
 	 * @param tagName The tag name of a new XML element.
 	 */
 	public void begElement(final String tagName) {
-		try {
-			final Element element = doc.createElement(tagName);
-			elements.peek().appendChild(element);
-			elements.push(element);
-		} catch (final EmptyStackException ex) {
+		if (elements.empty())
 			throw new Report.InternalError();
-		}
+		writePendingStartTag(false);
+		pendingTagName = tagName;
+		elements.push(tagName);
 	}
 
 	/**
@@ -105,20 +111,118 @@ public class Logger implements AutoCloseable {
 		} catch (final EmptyStackException ex) {
 			throw new Report.InternalError();
 		}
+		if (pendingTagName != null) {
+			writePendingStartTag(true);
+			return;
+		}
+		if (writer == null)
+			return;
+		try {
+			writer.writeEndElement();
+		} catch (final XMLStreamException ex) {
+			failed();
+		}
 	}
 
 	/**
 	 * Adds an attribute to the active XML element.
-	 * 
+	 *
 	 * @param attrName  The name of an attribute.
-	 * @param attrValue The value of an attribute.
+	 * @param attrValue The value of an attribute ({@code null} stands for an empty
+	 *                  value).
 	 */
 	public void addAttribute(final String attrName, final String attrValue) {
-		try {
-			elements.peek().setAttribute(attrName, attrValue);
-		} catch (final EmptyStackException ex) {
+		if (pendingTagName == null)
 			throw new Report.InternalError();
+		pendingAttrs.put(attrName, attrValue == null ? "" : attrValue);
+	}
+
+	/**
+	 * Writes the start tag of the active XML element unless it has already been
+	 * written.
+	 *
+	 * @param isEmpty Whether the active XML element has been ended without any
+	 *                nested XML elements.
+	 */
+	private void writePendingStartTag(final boolean isEmpty) {
+		if (pendingTagName == null)
+			return;
+		if (writer != null) {
+			try {
+				if (isEmpty)
+					writer.writeEmptyElement(pendingTagName);
+				else
+					writer.writeStartElement(pendingTagName);
+				for (final Map.Entry<String, String> attr : pendingAttrs.entrySet())
+					writer.writeAttribute(attr.getKey(), attr.getValue());
+			} catch (final XMLStreamException ex) {
+				failed();
+			}
+		}
+		pendingTagName = null;
+		pendingAttrs.clear();
+	}
+
+	/**
+	 * Reports that the log file cannot be written and stops writing it.
+	 */
+	private void failed() {
+		Report.warning("Cannot open log file '" + xmlFileName + "'.");
+		writer = null;
+		if (output != null) {
+			try {
+				output.close();
+			} catch (final IOException __) {
+			}
 		}
 	}
 
+	/**
+	 * A writer escaping tabs, carriage returns and line feeds, which would
+	 * otherwise be normalized to blanks within attribute values when the XML file
+	 * is read. As the log contains no character data and is not indented, all
+	 * such characters belong to attribute values.
+	 */
+	private static class WhiteSpaceEscaper extends FilterWriter {
+
+		/**
+		 * Constructs a new escaping writer.
+		 *
+		 * @param out The underlying writer.
+		 */
+		WhiteSpaceEscaper(final Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int c) throws IOException {
+			switch (c) {
+			case '\t' -> out.write("&#9;");
+			case '\n' -> out.write("&#10;");
+			case '\r' -> out.write("&#13;");
+			default -> out.write(c);
+			}
+		}
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			write(new String(cbuf, off, len), 0, len);
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			int beg = off;
+			for (int i = off; i < off + len; i++) {
+				final char c = str.charAt(i);
+				if (c == '\t' || c == '\n' || c == '\r') {
+					out.write(str, beg, i - beg);
+					write(c);
+					beg = i + 1;
+				}
+			}
+			out.write(str, beg, off + len - beg);
+		}
+
+	}
+
 }
@@ -1,5 +1,7 @@
 package lang24.common.report;
 
+import lang24.common.Compilation;
+
 /**
  * Generating reports.
  * 
@@ -12,16 +14,14 @@ public class Report {
 		throw new Report.InternalError();
 	}
 
-	/** Counter of information messages printed out. */
-	private static int numOfInfos = 0;
-
 	/**
-	 * Returns the number of information messages printed out.
+	 * Returns the number of information messages printed out by the current
+	 * compilation.
 	 * 
 	 * @return The number of information messages printed out.
 	 */
 	public static int numOfInfos() {
-		return numOfInfos;
+		return Compilation.current().numOfInfos.get();
 	}
 
 	/**
@@ -30,8 +30,9 @@ public class Report {
 	 * @param message The information message to be printed out.
 	 */
 	public static void info(final String message) {
-		numOfInfos++;
-		System.out.println(":-) " + message);
+		final Compilation compilation = Compilation.current();
+		compilation.numOfInfos.incrementAndGet();
+		compilation.out.println(":-) " + message);
 	}
 
 	/**
@@ -42,20 +43,18 @@ public class Report {
 	 * @param message  The information message to be printed.
 	 */
 	public static void info(final Locatable location, final String message) {
-		numOfInfos++;
-		System.out.println(":-) " + "[" + location.location() + "] " + message);
+		final Compilation compilation = Compilation.current();
+		compilation.numOfInfos.incrementAndGet();
+		compilation.out.println(":-) " + "[" + location.location() + "] " + message);
 	}
 
-	/** Counter of warnings printed out. */
-	private static int numOfWarnings = 0;
-
 	/**
-	 * Returns the number of warnings printed out.
+	 * Returns the number of warnings printed out by the current compilation.
 	 * 
 	 * @return The number of warnings printed out.
 	 */
 	public static int numOfWarnings() {
-		return numOfWarnings;
+		return Compilation.current().numOfWarnings.get();
 	}
 
 	/**
@@ -64,8 +63,9 @@ public class Report {
 	 * @param message The warning message to be printed out.
 	 */
 	public static void warning(final String message) {
-		numOfWarnings++;
-		System.err.println(":-o " + message);
+		final Compilation compilation = Compilation.current();
+		compilation.numOfWarnings.incrementAndGet();
+		compilation.err.println(":-o " + message);
 	}
 
 	/**
@@ -75,8 +75,9 @@ public class Report {
 	 * @param message  The warning message to be printed out.
 	 */
 	public static void warning(final Locatable location, final Object message) {
-		numOfWarnings++;
-		System.err.println(":-o " + "[" + location.location() + "] " + message);
+		final Compilation compilation = Compilation.current();
+		compilation.numOfWarnings.incrementAndGet();
+		compilation.err.println(":-o " + "[" + location.location() + "] " + message);
 	}
 
 	/**
@@ -0,0 +1,260 @@
+package lang24.common.stats;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Statistics of a single compiler phase.
+ * <p>
+ * The wall time and the phase specific counters are always recorded. CPU time,
+ * allocated bytes and heap usage are measured only if resources are measured
+ * (see {@link Stats#measureResources()}): CPU time and allocated bytes are those
+ * of the thread running the phase plus those of the parallel tasks it runs on
+ * other threads (see {@link lang24.common.Compilation#parallelMap}). The peak
+ * heap usage is the highest heap usage observed during the phase: it is sampled
+ * at the start and at the end of the phase and every millisecond in between.
+ * It is a figure for the entire JVM and thus only approximate if several
+ * compilations run at the same time.
+ */
+public class PhaseStats {
+
+	/** The thread management bean. */
+	private static final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/** The memory management bean. */
+	private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	/** The period of sampling the heap usage (in nanoseconds). */
+	private static final long SAMPLING_PERIOD = 1_000_000;
+
+	/** The phases in progress whose heap usage is sampled. */
+	private static final Set<PhaseStats> sampledPhases = ConcurrentHashMap.newKeySet();
+
+	/** The thread sampling the heap usage (or {@code null} if not started yet). */
+	private static Thread sampler = null;
+
+	/** The phase name. */
+	public final String phaseName;
+
+	/** Whether CPU time, allocated bytes and heap usage are measured. */
+	final boolean measured;
+
+	/** The thread running the phase. */
+	private final Thread thread;
+
+	/** The wall time the phase started at (in nanoseconds). */
+	private final long startWallTime;
+
+	/** The CPU time the phase started at (in nanoseconds). */
+	private final long startCpuTime;
+
+	/** The number of bytes allocated before the phase started. */
+	private final long startAllocatedBytes;
+
+	/** The wall time spent in the phase (in nanoseconds). */
+	private long wallTime = 0;
+
+	/** The CPU time spent in the phase (in nanoseconds). */
+	private long cpuTime = 0;
+
+	/** The number of bytes allocated during the phase. */
+	private long allocatedBytes = 0;
+
+	/** The CPU time spent in parallel tasks of the phase (in nanoseconds). */
+	private final AtomicLong taskCpuTime = new AtomicLong();
+
+	/** The number of bytes allocated by parallel tasks of the phase. */
+	private final AtomicLong taskAllocatedBytes = new AtomicLong();
+
+	/** The peak heap usage during the phase (in bytes). */
+	private final AtomicLong peakHeap = new AtomicLong();
+
+	/** Phase specific counters. */
+	private final Map<String, Long> counters = new LinkedHashMap<>();
+
+	/**
+	 * Starts measuring a phase.
+	 *
+	 * @param phaseName The phase name.
+	 * @param measured  Whether CPU time, allocated bytes and heap usage are
+	 *                  measured.
+	 */
+	PhaseStats(final String phaseName, final boolean measured) {
+		this.phaseName = phaseName;
+		this.measured = measured;
+		this.thread = Thread.currentThread();
+		if (measured) {
+			startSampling(this);
+			this.startCpuTime = threadBean.getCurrentThreadCpuTime();
+			this.startAllocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+		} else {
+			this.startCpuTime = 0;
+			this.startAllocatedBytes = 0;
+		}
+		this.startWallTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring the phase.
+	 */
+	void stop() {
+		wallTime = System.nanoTime() - startWallTime;
+		if (measured) {
+			cpuTime = threadBean.getCurrentThreadCpuTime() - startCpuTime + taskCpuTime.get();
+			allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes
+					+ taskAllocatedBytes.get();
+			sampledPhases.remove(this);
+			observeHeap(memoryBean.getHeapMemoryUsage().getUsed());
+		}
+	}
+
+	/**
+	 * Records a heap usage observed during the phase.
+	 *
+	 * @param used The heap usage (in bytes).
+	 */
+	private void observeHeap(final long used) {
+		peakHeap.accumulateAndGet(used, Math::max);
+	}
+
+	/**
+	 * Starts sampling the heap usage of a phase, starting the sampling thread if
+	 * necessary.
+	 *
+	 * @param phaseStats Statistics of the phase.
+	 */
+	private static synchronized void startSampling(final PhaseStats phaseStats) {
+		phaseStats.observeHeap(memoryBean.getHeapMemoryUsage().getUsed());
+		sampledPhases.add(phaseStats);
+		if (sampler == null)
+			sampler = Thread.ofPlatform().name("heap-sampler").daemon().start(PhaseStats::sample);
+		else
+			LockSupport.unpark(sampler);
+	}
+
+	/**
+	 * Samples the heap usage while any phase is sampled and waits otherwise.
+	 */
+	private static void sample() {
+		while (true) {
+			if (sampledPhases.isEmpty()) {
+				LockSupport.park();
+				continue;
+			}
+			final long used = memoryBean.getHeapMemoryUsage().getUsed();
+			for (final PhaseStats phaseStats : sampledPhases)
+				phaseStats.observeHeap(used);
+			LockSupport.parkNanos(SAMPLING_PERIOD);
+		}
+	}
+
+	/**
+	 * Returns the CPU time of the current thread.
+	 *
+	 * @return The CPU time (in nanoseconds).
+	 */
+	public static long currentThreadCpuTime() {
+		return threadBean.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread.
+	 *
+	 * @return The number of bytes allocated.
+	 */
+	public static long currentThreadAllocatedBytes() {
+		return threadBean.getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Returns whether the current thread is the one running the phase.
+	 *
+	 * @return {@code true} if the current thread runs the phase, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isPhaseThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Adds the resources used by a parallel task of the phase run on a thread
+	 * other than the one running the phase.
+	 *
+	 * @param cpuTime        The CPU time of the task (in nanoseconds).
+	 * @param allocatedBytes The number of bytes allocated by the task.
+	 */
+	public void addTask(final long cpuTime, final long allocatedBytes) {
+		taskCpuTime.addAndGet(cpuTime);
+		taskAllocatedBytes.addAndGet(allocatedBytes);
+	}
+
+	/**
+	 * Adds a value to a counter.
+	 *
+	 * @param counterName The counter name.
+	 * @param value       The value to be added.
+	 */
+	public synchronized void count(final String counterName, final long value) {
+		counters.merge(counterName, value, Long::sum);
+	}
+
+	/**
+	 * Raises a counter to a value unless it already exceeds it.
+	 *
+	 * @param counterName The counter name.
+	 * @param value       The value.
+	 */
+	public synchronized void max(final String counterName, final long value) {
+		counters.merge(counterName, value, Math::max);
+	}
+
+	/**
+	 * Returns the wall time spent in the phase.
+	 *
+	 * @return The wall time (in nanoseconds).
+	 */
+	public long wallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * Returns the CPU time spent in the phase.
+	 *
+	 * @return The CPU time (in nanoseconds).
+	 */
+	public long cpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * Returns the number of bytes allocated during the phase.
+	 *
+	 * @return The number of bytes allocated.
+	 */
+	public long allocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns the (approximate, JVM-wide) peak heap usage during the phase.
+	 *
+	 * @return The peak heap usage (in bytes).
+	 */
+	public long peakHeap() {
+		return peakHeap.get();
+	}
+
+	/**
+	 * Returns the phase specific counters.
+	 *
+	 * @return The counters in the order they were first recorded in.
+	 */
+	public synchronized Map<String, Long> counters() {
+		return new LinkedHashMap<>(counters);
+	}
+
+}
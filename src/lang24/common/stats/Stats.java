@@ -0,0 +1,144 @@
+package lang24.common.stats;
+
+import java.io.*;
+import java.util.*;
+import lang24.common.report.*;
+
+/**
+ * Statistics of all phases of a single compilation.
+ */
+public class Stats {
+
+	/** Statistics of phases in the order the phases started in. */
+	private final List<PhaseStats> phases = new ArrayList<>();
+
+	/** The phases started but not stopped yet, the innermost one last. */
+	private final List<PhaseStats> active = new ArrayList<>();
+
+	/** Whether CPU time, allocated bytes and heap usage of phases are measured. */
+	private volatile boolean measured = false;
+
+	/**
+	 * Measures CPU time, allocated bytes and heap usage of phases started from
+	 * now on (only wall times and counters are recorded otherwise).
+	 */
+	public void measureResources() {
+		measured = true;
+	}
+
+	/**
+	 * Starts measuring a phase.
+	 *
+	 * @param phaseName The phase name.
+	 * @return Statistics of the phase.
+	 */
+	public synchronized PhaseStats begin(final String phaseName) {
+		final PhaseStats phaseStats = new PhaseStats(phaseName, measured);
+		phases.add(phaseStats);
+		active.add(phaseStats);
+		return phaseStats;
+	}
+
+	/**
+	 * Stops measuring a phase.
+	 *
+	 * @param phaseStats Statistics of the phase.
+	 */
+	public void end(final PhaseStats phaseStats) {
+		phaseStats.stop();
+		synchronized (this) {
+			active.remove(phaseStats);
+		}
+	}
+
+	/**
+	 * Returns the innermost phase in progress if its resources are measured.
+	 *
+	 * @return Statistics of the phase (or {@code null} if no phase is in progress
+	 *         or its resources are not measured).
+	 */
+	public synchronized PhaseStats measuredPhase() {
+		final PhaseStats phaseStats = active.isEmpty() ? null : active.getLast();
+		return phaseStats != null && phaseStats.measured ? phaseStats : null;
+	}
+
+	/**
+	 * Returns statistics of all phases.
+	 *
+	 * @return Statistics of phases in the order the phases started in.
+	 */
+	public synchronized List<PhaseStats> phases() {
+		return new ArrayList<>(phases);
+	}
+
+	/**
+	 * Prints statistics of all phases as information messages.
+	 */
+	public void report() {
+		Report.info(String.format("%-8s %10s %10s %10s %10s  %s", "phase", "wall[ms]", "cpu[ms]", "alloc[MB]",
+				"peak[MB]", "counters"));
+		for (final PhaseStats phase : phases()) {
+			final StringBuilder counters = new StringBuilder();
+			phase.counters().forEach((name, value) -> counters.append(" " + name + "=" + value));
+			Report.info(String.format("%-8s %10.3f %10.3f %10.3f %10.3f %s", phase.phaseName, phase.wallTime() / 1e6,
+					phase.cpuTime() / 1e6, phase.allocatedBytes() / 1e6, phase.peakHeap() / 1e6, counters));
+		}
+	}
+
+	/**
+	 * Writes statistics of all phases to a JSON file.
+	 *
+	 * @param srcFileName  The name of the source file compiled.
+	 * @param jsonFileName The name of the JSON file.
+	 */
+	public void writeJson(final String srcFileName, final String jsonFileName) {
+		try (final PrintWriter json = new PrintWriter(jsonFileName)) {
+			json.println("{");
+			json.println("  \"source\": " + quote(srcFileName) + ",");
+			json.println("  \"phases\": [");
+			final List<PhaseStats> phases = phases();
+			for (int i = 0; i < phases.size(); i++) {
+				final PhaseStats phase = phases.get(i);
+				json.print("    { \"name\": " + quote(phase.phaseName));
+				json.print(", \"wallNanos\": " + phase.wallTime());
+				json.print(", \"cpuNanos\": " + phase.cpuTime());
+				json.print(", \"allocatedBytes\": " + phase.allocatedBytes());
+				json.print(", \"peakHeapBytes\": " + phase.peakHeap());
+				json.print(", \"counters\": {");
+				final StringJoiner counters = new StringJoiner(", ", " ", " ");
+				counters.setEmptyValue("");
+				phase.counters().forEach((name, value) -> counters.add(quote(name) + ": " + value));
+				json.print(counters + "} }");
+				json.println(i + 1 < phases.size() ? "," : "");
+			}
+			json.println("  ]");
+			json.println("}");
+		} catch (final IOException __) {
+			throw new Report.Error("Cannot write to file '" + jsonFileName + "'.");
+		}
+	}
+
+	/**
+	 * Quotes a string as a JSON string literal.
+	 *
+	 * @param string The string.
+	 * @return The JSON string literal.
+	 */
+	private static String quote(final String string) {
+		final StringBuilder quoted = new StringBuilder("\"");
+		for (final char c : string.toCharArray()) {
+			switch (c) {
+			case '"' -> quoted.append("\\\"");
+			case '\\' -> quoted.append("\\\\");
+			default -> {
+				if (c < 0x20)
+					quoted.append(String.format("\\u%04x", (int) c));
+				else
+					quoted.append(c);
+			}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Statistics of compiler phases (time, memory and phase specific counters).
+ */
+package lang24.common.stats;
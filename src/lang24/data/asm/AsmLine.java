@@ -28,7 +28,7 @@ public class AsmLine {
     }
 
     public static AsmLine of(AsmInstr instr) {
-        return new AsmLine(TAB + TAB + instr.toString(RegAll.tempToReg));
+        return new AsmLine(TAB + TAB + instr.toString(RegAll.tempToReg.get()));
     }
 
     public static List<AsmLine> of(List<AsmInstr> instrs) {
@@ -1,56 +1,100 @@
 package lang24.data.ast.attribute;
 
 import java.util.*;
+import lang24.common.*;
 import lang24.data.ast.tree.*;
 
 /**
  * An attribute of the abstract syntax tree node.
+ * <p>
+ * The memory taken by an attribute depends on the number of nodes it is
+ * associated with rather than on the total number of nodes (see
+ * {@link IdTable}).
  *
  * @param <Node>  Nodes that values are associated with.
  * @param <Value> Values associated with nodes.
- * 
+ *
  * @author bostjan.slivnik@fri.uni-lj.si
  */
 public class Attribute<Node extends AstNode, Value> {
 
-	/** Mapping of nodes to values. */
-	private final Vector<Value> mapping;
+	/** Mapping of nodes to values (within each compilation). */
+	private final CompilationLocal<Table<Value>> mappings;
 
 	/**
 	 * Constructs a new attribute.
 	 */
 	public Attribute() {
-		this.mapping = new Vector<Value>();
+		this.mappings = new CompilationLocal<Table<Value>>(Table::new);
 	}
 
 	/**
 	 * Associates a value with the specified abstract syntax tree node.
-	 * 
+	 *
 	 * @param node  The specified abstract syntax tree node.
 	 * @param value The value.
 	 * @return The value.
 	 */
 	public Value put(final Node node, final Value value) {
-		int id = node.id();
-		while (id >= mapping.size()) {
-            mapping.setSize(id + 1000);
-        }
-		mapping.set(id, value);
+		final Table<Value> mapping = mappings.get();
+		// The index must be computed first as adding the node may replace the array.
+		final int index = mapping.add(node.id());
+		mapping.values[index] = value;
 		return value;
 	}
 
 	/**
 	 * Returns a value associated with the specified abstract syntax tree node.
-	 * 
+	 *
 	 * @param node The specified abstract syntax tree node.
 	 * @return The value (or {@code null} if the value is not found).
 	 */
 	public Value get(final Node node) {
-		int id = node.id();
-		if (id >= mapping.size()) {
-            return null;
-        }
-		return mapping.get(id);
+		final Table<Value> mapping = mappings.get();
+		final int index = mapping.find(node.id());
+		return index < 0 ? null : mapping.values[index];
+	}
+
+	/**
+	 * Makes room for values of all nodes with ids below the specified number, so
+	 * that values of distinct nodes can be put concurrently afterwards.
+	 *
+	 * @param numNodes The number of nodes.
+	 */
+	public void reserve(final int numNodes) {
+		mappings.get().reserve(numNodes);
+	}
+
+	/**
+	 * A table of values of an attribute within a single compilation.
+	 *
+	 * @param <Value> Values associated with nodes.
+	 */
+	private static final class Table<Value> extends IdTable {
+
+		/** The values. */
+		@SuppressWarnings("unchecked")
+		private Value[] values = (Value[]) new Object[INIT_CAPACITY];
+
+		@Override
+		int capacity() {
+			return values.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void resize(final int capacity, final int[] moves) {
+			if (moves == null) {
+				values = Arrays.copyOf(values, capacity);
+				return;
+			}
+			final Value[] oldValues = values;
+			values = (Value[]) new Object[capacity];
+			for (int index = 0; index < moves.length; index++)
+				if (moves[index] >= 0)
+					values[moves[index]] = oldValues[index];
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package lang24.data.ast.attribute;
+
+import java.lang.invoke.*;
+import java.util.*;
+import lang24.common.*;
+import lang24.data.ast.tree.*;
+
+/**
+ * A boolean attribute of the abstract syntax tree node, i.e., a set of nodes,
+ * stored as a bit set indexed by node ids. A node the attribute has not been
+ * set for has value {@code false}.
+ * <p>
+ * Bits are set and cleared atomically, so once room has been made by
+ * {@link #reserve(int)}, values of distinct nodes can be put concurrently even
+ * if they share a word.
+ *
+ * @param <Node> Nodes that values are associated with.
+ */
+public class BoolAttribute<Node extends AstNode> {
+
+	/** Atomic access to the words of bit sets. */
+	private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/** Nodes with value {@code true} (within each compilation). */
+	private final CompilationLocal<Bits> mappings;
+
+	/**
+	 * Constructs a new attribute.
+	 */
+	public BoolAttribute() {
+		this.mappings = new CompilationLocal<Bits>(Bits::new);
+	}
+
+	/**
+	 * Associates a value with the specified abstract syntax tree node.
+	 *
+	 * @param node  The specified abstract syntax tree node.
+	 * @param value The value.
+	 * @return The value.
+	 */
+	public boolean put(final Node node, final boolean value) {
+		final Bits mapping = mappings.get();
+		final int id = node.id();
+		if ((id >>> 6) >= mapping.words.length) {
+			if (!value)
+				return value;
+			mapping.words = Arrays.copyOf(mapping.words, Math.max((id >>> 6) + 1, 2 * mapping.words.length));
+		}
+		if (value)
+			WORD.getAndBitwiseOr(mapping.words, id >>> 6, 1L << id);
+		else
+			WORD.getAndBitwiseAnd(mapping.words, id >>> 6, ~(1L << id));
+		return value;
+	}
+
+	/**
+	 * Returns a value associated with the specified abstract syntax tree node.
+	 *
+	 * @param node The specified abstract syntax tree node.
+	 * @return The value ({@code false} if the value has not been set).
+	 */
+	public boolean get(final Node node) {
+		final long[] words = mappings.get().words;
+		final int id = node.id();
+		return (id >>> 6) < words.length && (words[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Makes room for values of all nodes with ids below the specified number, so
+	 * that values of distinct nodes can be put concurrently afterwards.
+	 *
+	 * @param numNodes The number of nodes.
+	 */
+	public void reserve(final int numNodes) {
+		final Bits mapping = mappings.get();
+		if (((numNodes + 63) >>> 6) > mapping.words.length)
+			mapping.words = Arrays.copyOf(mapping.words, (numNodes + 63) >>> 6);
+	}
+
+	/**
+	 * A bit set of nodes within a single compilation.
+	 */
+	private static final class Bits {
+
+		/** The words of the bit set. */
+		private long[] words = new long[1];
+
+	}
+
+}
@@ -0,0 +1,203 @@
+package lang24.data.ast.attribute;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+/**
+ * A table of values associated with node ids within a single compilation.
+ * <p>
+ * While few nodes are annotated, the table is an open addressing hash table, so
+ * its size depends on the number of annotated nodes rather than on the ids of
+ * nodes. Once at least a quarter of all ids up to the highest annotated one is
+ * present, the values are indexed by ids directly. Both representations grow
+ * geometrically. The table is not synchronized: values of an attribute are put
+ * by one thread at a time and read only after they have all been put. The only
+ * exception are tables switched to direct indexing by {@link #reserve(int)}:
+ * values for distinct ids below the reserved number can be put concurrently.
+ * <p>
+ * Subclasses store the values in arrays of the appropriate (possibly primitive)
+ * type; this class only computes the index of the value of each node.
+ */
+abstract class IdTable {
+
+	/** The initial length of the arrays holding the values. */
+	static final int INIT_CAPACITY = 16;
+
+	/**
+	 * The keys of the hash table, i.e., ids incremented by one (0 for an empty
+	 * entry), or {@code null} if the values are indexed by ids directly.
+	 */
+	private int[] keys = new int[INIT_CAPACITY];
+
+	/** The mask of the index within the hash table. */
+	private int mask = INIT_CAPACITY - 1;
+
+	/** The shift of the hash code yielding the index within the hash table. */
+	private int shift = Integer.numberOfLeadingZeros(INIT_CAPACITY - 1);
+
+	/**
+	 * The bit set of ids present if the values are indexed by ids directly (set
+	 * atomically as neighbouring ids share words).
+	 */
+	private long[] present = null;
+
+	/** Atomic access to the words of {@link #present}. */
+	private static final VarHandle PRESENT = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/** The number of ids present (while the table is a hash table). */
+	private int size = 0;
+
+	/** The highest id present (while the table is a hash table). */
+	private int maxId = -1;
+
+	/**
+	 * Returns the index of the value associated with an id.
+	 *
+	 * @param id The id.
+	 * @return The index of the value or {@code -1} if the id is not present.
+	 */
+	final int find(final int id) {
+		if (keys == null)
+			return (id >>> 6) < present.length && (present[id >>> 6] & (1L << id)) != 0 ? id : -1;
+		for (int index = hash(id);; index = (index + 1) & mask) {
+			final int key = keys[index];
+			if (key == id + 1)
+				return index;
+			if (key == 0)
+				return -1;
+		}
+	}
+
+	/**
+	 * Returns the index of the value associated with an id, adding the id if it
+	 * is not present.
+	 *
+	 * @param id The id.
+	 * @return The index of the value.
+	 */
+	final int add(final int id) {
+		if (keys == null) {
+			if (id >= capacity()) {
+				final int capacity = Math.max(id + 1, 2 * capacity());
+				present = Arrays.copyOf(present, words(capacity));
+				resize(capacity, null);
+			}
+			if ((present[id >>> 6] & (1L << id)) == 0)
+				PRESENT.getAndBitwiseOr(present, id >>> 6, 1L << id);
+			return id;
+		}
+		int index = hash(id);
+		for (; keys[index] != 0; index = (index + 1) & mask)
+			if (keys[index] == id + 1)
+				return index;
+		if (2 * (size + 1) <= keys.length) {
+			keys[index] = id + 1;
+			size++;
+			maxId = Math.max(maxId, id);
+			return index;
+		}
+		rehash(Math.max(maxId, id));
+		return add(id);
+	}
+
+	/**
+	 * Enlarges the hash table or switches to indexing by ids directly if dense
+	 * enough.
+	 *
+	 * @param maxId The highest id present after the id being added is added.
+	 */
+	private void rehash(final int maxId) {
+		final int[] oldKeys = keys;
+		if (4 * (size + 1) >= maxId + 1) {
+			index(Math.max(maxId + 1, 2 * oldKeys.length));
+			return;
+		}
+		final int[] moves = new int[oldKeys.length];
+		keys = new int[2 * oldKeys.length];
+		mask = keys.length - 1;
+		shift--;
+		for (int index = 0; index < oldKeys.length; index++) {
+			moves[index] = -1;
+			if (oldKeys[index] == 0)
+				continue;
+			int newIndex = hash(oldKeys[index] - 1);
+			while (keys[newIndex] != 0)
+				newIndex = (newIndex + 1) & mask;
+			keys[newIndex] = oldKeys[index];
+			moves[index] = newIndex;
+		}
+		resize(keys.length, moves);
+	}
+
+	/**
+	 * Makes room for all ids below the specified number, so that values for
+	 * distinct ids can be put concurrently afterwards.
+	 *
+	 * @param ids The number of ids.
+	 */
+	final void reserve(final int ids) {
+		if (keys != null)
+			index(Math.max(ids, capacity()));
+		else if (ids > capacity()) {
+			present = Arrays.copyOf(present, words(ids));
+			resize(ids, null);
+		}
+	}
+
+	/**
+	 * Switches from the hash table to indexing by ids directly.
+	 *
+	 * @param capacity The length of the new arrays.
+	 */
+	private void index(final int capacity) {
+		final int[] oldKeys = keys;
+		final int[] moves = new int[oldKeys.length];
+		keys = null;
+		present = new long[words(capacity)];
+		for (int index = 0; index < oldKeys.length; index++) {
+			final int id = oldKeys[index] - 1;
+			moves[index] = id;
+			if (id >= 0)
+				present[id >>> 6] |= 1L << id;
+		}
+		resize(capacity, moves);
+	}
+
+	/**
+	 * Returns the number of words of a bit set of the specified length.
+	 *
+	 * @param bits The length of the bit set.
+	 * @return The number of words.
+	 */
+	private static int words(final int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	/**
+	 * Returns the index within the hash table an id is looked up at first.
+	 *
+	 * @param id The id.
+	 * @return The index.
+	 */
+	private int hash(final int id) {
+		return (id * 0x9E3779B9) >>> shift;
+	}
+
+	/**
+	 * Returns the length of the arrays holding the values.
+	 *
+	 * @return The length of the arrays holding the values.
+	 */
+	abstract int capacity();
+
+	/**
+	 * Replaces the arrays holding the values with longer ones.
+	 *
+	 * @param capacity The length of the new arrays.
+	 * @param moves    The new index of the value at each old index (negative if
+	 *                 there is no value), or {@code null} if values keep their
+	 *                 indices.
+	 */
+	abstract void resize(int capacity, int[] moves);
+
+}
@@ -1,5 +1,7 @@
 package lang24.data.ast.tree;
 
+import java.util.concurrent.atomic.*;
+import lang24.common.*;
 import lang24.common.report.*;
 import lang24.data.ast.visitor.*;
 
@@ -10,8 +12,8 @@ import lang24.data.ast.visitor.*;
  */
 public abstract class AstNode implements Locatable {
 
-	/** The number of nodes constructed so far. */
-	private static int numNodes = 0;
+	/** The number of nodes constructed so far (within each compilation). */
+	private static final CompilationLocal<AtomicInteger> numNodes = new CompilationLocal<>(AtomicInteger::new);
 
 	/** The unique id of this node. */
 	public final int id;
@@ -28,10 +30,20 @@ public abstract class AstNode implements Locatable {
 	 * @param location The location.
 	 */
 	public AstNode(final Locatable location) {
-		id = numNodes++;
+		id = numNodes.get().getAndIncrement();
 		this.location = location.location();
 	}
 
+	/**
+	 * Returns the number of nodes constructed so far (within the current
+	 * compilation).
+	 * 
+	 * @return The number of nodes constructed so far.
+	 */
+	public static int numNodes() {
+		return numNodes.get().get();
+	}
+
 	/**
 	 * Returns the unique id of this node.
 	 * 
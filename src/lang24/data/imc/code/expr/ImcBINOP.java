@@ -13,6 +13,8 @@ public class ImcBINOP extends ImcExpr {
 
 	public enum Oper {
 		OR, AND, EQU, NEQ, LTH, GTH, LEQ, GEQ, ADD, SUB, MUL, DIV, MOD,
+		/** Shift left (introduced by {@link lang24.phase.imclin.ConstantFolder}). */
+		SHL,
 	}
 
 	/** The operator. */
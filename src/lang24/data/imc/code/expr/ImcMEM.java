@@ -16,12 +16,29 @@ public class ImcMEM extends ImcExpr {
 	public final ImcExpr addr;
 
 	/**
-	 * Constucts a memory access.
+	 * The number of bytes accessed: either 8 or, for packed chars and bools, 1
+	 * (the value read is zero extended, the value written is truncated).
+	 */
+	public final long size;
+
+	/**
+	 * Constucts a memory access of 8 bytes.
 	 * 
 	 * @param addr The memory address.
 	 */
 	public ImcMEM(ImcExpr addr) {
+		this(addr, 8);
+	}
+
+	/**
+	 * Constucts a memory access.
+	 * 
+	 * @param addr The memory address.
+	 * @param size The number of bytes accessed.
+	 */
+	public ImcMEM(ImcExpr addr, long size) {
 		this.addr = addr;
+		this.size = size;
 	}
 
 	@Override
@@ -32,14 +49,14 @@ public class ImcMEM extends ImcExpr {
 	@Override
 	public void log(Logger logger) {
 		logger.begElement("imc");
-		logger.addAttribute("instruction", "MEM");
+		logger.addAttribute("instruction", size == 8 ? "MEM" : "MEM" + size);
 		addr.log(logger);
 		logger.endElement();
 	}
 
 	@Override
 	public String toString() {
-		return "MEM(" + addr.toString() + ")";
+		return (size == 8 ? "MEM(" : "MEM" + size + "(") + addr.toString() + ")";
 	}
 
 }
@@ -1,5 +1,9 @@
 package lang24.data.mem;
 
+import lang24.common.CompilationLocal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * A label.
  *
@@ -8,13 +12,12 @@ package lang24.data.mem;
  */
 public record MemLabel(String name) implements Comparable<MemLabel> {
 
-	/** Counter of anonymous labels. */
-	private static long count = 0;
+	/** Counter of anonymous labels (within each compilation). */
+	private static final CompilationLocal<AtomicLong> count = new CompilationLocal<>(AtomicLong::new);
 
 	/** Creates a new anonymous label. */
 	public MemLabel() {
-		this("L" + count);
-		count++;
+		this("L" + count.get().getAndIncrement());
 	}
 
 	/**
@@ -0,0 +1,52 @@
+package lang24.data.mem;
+
+/**
+ * The layout of values of a type in memory: their size, their alignment and,
+ * for record types, the offsets of their components.
+ */
+public class MemLayout {
+
+	/** The size in bytes. */
+	public final long size;
+
+	/** The alignment in bytes (a power of two). */
+	public final long alignment;
+
+	/** The offsets of components (empty unless the type is a record type). */
+	private final long[] offsets;
+
+	/**
+	 * Constructs a new layout.
+	 *
+	 * @param size      The size in bytes.
+	 * @param alignment The alignment in bytes (a power of two).
+	 * @param offsets   The offsets of components (empty unless the type is a
+	 *                  record type).
+	 */
+	public MemLayout(long size, long alignment, long[] offsets) {
+		this.size = size;
+		this.alignment = alignment;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Returns the size rounded up to a multiple of the alignment, i.e., the space
+	 * taken by a value of the type within an array, a record or a frame.
+	 *
+	 * @return The rounded size in bytes.
+	 */
+	public long roundedSize() {
+		return (size + alignment - 1) & -alignment;
+	}
+
+	/**
+	 * Returns the offset of a component of a record type.
+	 *
+	 * @param index The index of the component.
+	 * @return The offset in bytes.
+	 */
+	public long offset(int index) {
+		return offsets[index];
+	}
+
+}
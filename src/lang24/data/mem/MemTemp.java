@@ -1,5 +1,9 @@
 package lang24.data.mem;
 
+import lang24.common.CompilationLocal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * A temporary variable.
  *
@@ -10,13 +14,12 @@ public class MemTemp implements Comparable<MemTemp> {
 	/** The name of a temporary variable. */
 	public final long temp;
 
-	/** Counter of temporary variables. */
-	private static long count = 0;
+	/** Counter of temporary variables (within each compilation). */
+	private static final CompilationLocal<AtomicLong> count = new CompilationLocal<>(AtomicLong::new);
 
 	/** Creates a new temporary variable. */
 	public MemTemp() {
-		this.temp = count;
-		count++;
+		this.temp = count.get().getAndIncrement();
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package lang24.data.type;
 
+import java.util.concurrent.*;
+import lang24.common.*;
 import lang24.data.type.visitor.*;
 
 /**
@@ -15,6 +17,10 @@ public class SemArrayType extends SemValueType {
 	/** The size of this array. */
 	public final long size;
 
+	/** Interned array types indexed by their element types and sizes. */
+	private static final CompilationLocal<ConcurrentHashMap<Key, SemArrayType>> interned = new CompilationLocal<>(
+			ConcurrentHashMap::new);
+
 	/**
 	 * Constructs an array type.
 	 * 
@@ -26,6 +32,29 @@ public class SemArrayType extends SemValueType {
 		this.size = size;
 	}
 
+	/**
+	 * Returns the array type with the specified element type and size, i.e., the
+	 * same object for the same element type and size within a compilation. If
+	 * element types are interned as well, structurally equivalent array types are
+	 * identical.
+	 * 
+	 * @param elemType The type of elements in the array.
+	 * @param size     The size of the array.
+	 * @return The array type.
+	 */
+	public static SemArrayType of(final SemType elemType, final long size) {
+		return interned.get().computeIfAbsent(new Key(elemType, size), key -> new SemArrayType(elemType, size));
+	}
+
+	/**
+	 * The key of an interned array type (element types are compared by identity).
+	 * 
+	 * @param elemType The type of elements in the array.
+	 * @param size     The size of the array.
+	 */
+	private record Key(SemType elemType, long size) {
+	}
+
 	@Override
 	public String toString() {
 		var sizeStr = size < 0 ? "" : Long.toString(size);
@@ -1,5 +1,7 @@
 package lang24.data.type;
 
+import java.util.concurrent.*;
+import lang24.common.*;
 import lang24.common.report.*;
 import lang24.data.type.visitor.*;
 
@@ -21,6 +23,10 @@ public class SemPointerType extends SemSimpleType {
 	/** The base type (or {@code null} if it denotes <code>nil</code>). */
 	public final SemType baseType;
 
+	/** Interned pointer types indexed by their base types. */
+	private static final CompilationLocal<ConcurrentHashMap<SemType, SemPointerType>> interned = new CompilationLocal<>(
+			ConcurrentHashMap::new);
+
 	/**
 	 * Constructs a pointer type.
 	 * 
@@ -32,6 +38,22 @@ public class SemPointerType extends SemSimpleType {
 		this.baseType = baseType;
 	}
 
+	/**
+	 * Returns the pointer type with the specified base type, i.e., the same
+	 * object for the same base type within a compilation ({@link #type} and
+	 * {@link #stringType} included).
+	 * 
+	 * @param baseType The base type.
+	 * @return The pointer type.
+	 */
+	public static SemPointerType of(final SemType baseType) {
+		if (baseType == SemVoidType.type)
+			return type;
+		if (baseType == SemCharType.type)
+			return stringType;
+		return interned.get().computeIfAbsent(baseType, SemPointerType::new);
+	}
+
 	@Override
 	public String toString() {
 		return "^" + baseType;
@@ -3,6 +3,7 @@ package lang24.data.type;
 import lang24.data.type.visitor.SemVisitor;
 
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A type.
@@ -12,14 +13,14 @@ import java.util.HashSet;
 public abstract class SemType {
 
 	/** The number of nodes constructed so far. */
-	private static int numNodes = 0;
+	private static final AtomicInteger numNodes = new AtomicInteger();
 
 	/** The unique id of this node. */
 	public final int id;
 
 	/** Constructs a new type. */
 	public SemType() {
-		id = numNodes++;
+		id = numNodes.getAndIncrement();
 	}
 
 	/**
@@ -50,6 +50,7 @@ public class WatVisitor implements ImcFullVisitor<Boolean, Void> {
             case MOD -> "i64.rem_s";
             case AND -> "i64.and";
             case OR  -> "i64.or";
+            case SHL -> "i64.shl";
             default  -> {
                 String comp = switch (binOp.oper) {
                     case EQU -> "i64.eq";
@@ -85,7 +86,7 @@ public class WatVisitor implements ImcFullVisitor<Boolean, Void> {
     public Boolean visit(ImcMEM mem, Void arg) {
         mem.addr.accept(this, arg);
         out.println("i32.wrap_i64");
-        out.println("i64.load");
+        out.println(mem.size == 1 ? "i64.load8_u" : "i64.load");
         return true;
     }
 
@@ -108,7 +109,7 @@ public class WatVisitor implements ImcFullVisitor<Boolean, Void> {
             mem.addr.accept(this, null);
             out.println("i32.wrap_i64");
             if (move.src.accept(this, null)) {
-                out.println("i64.store");
+                out.println(mem.size == 1 ? "i64.store8" : "i64.store");
             } else {
                 // If the source was void, we have an address on the stack
                 // but no value to store. We must clear the address!
@@ -122,7 +123,7 @@ public class WatVisitor implements ImcFullVisitor<Boolean, Void> {
     @Override
     public Boolean visit(ImcCALL call, Void arg) {
         String name = call.label.name();
-        boolean external = Memory.externalFns.containsKey(call.label);
+        boolean external = Memory.externalFns.get().containsKey(call.label);
 
         if (external) {
             for (int i = 1; i < call.args.size(); i++) {
@@ -141,7 +142,7 @@ public class WatVisitor implements ImcFullVisitor<Boolean, Void> {
 
         out.println("(call $%s)", name);
 
-        var resType = Memory.resultTypes.get(call.label);
+        var resType = Memory.resultTypes.get().get(call.label);
         return !(resType instanceof SemVoidType);
     }
 
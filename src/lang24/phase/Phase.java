@@ -1,6 +1,9 @@
 package lang24.phase;
 
+import lang24.common.*;
+import lang24.common.jfr.*;
 import lang24.common.logger.*;
+import lang24.common.stats.*;
 
 /**
  * An abstract compiler phase. All concrete compiler phases should be
@@ -12,6 +15,12 @@ public abstract class Phase implements AutoCloseable {
 	/** The logger used to produce the log of this phase. */
 	public final Logger logger;
 
+	/** Statistics of this phase. */
+	public final PhaseStats stats;
+
+	/** The flight recorder event spanning this phase. */
+	private final PhaseEvent event = new PhaseEvent();
+
 	/**
 	 * Constructs a new phase of a compiler. If logging of this phase has been
 	 * requested, it prepares a logger using the phase name for naming the XML and
@@ -20,6 +29,10 @@ public abstract class Phase implements AutoCloseable {
 	 * @param phaseName The phase name.
 	 */
 	protected Phase(final String phaseName) {
+		stats = Compilation.current().stats.begin(phaseName);
+		event.phaseName = phaseName;
+		event.srcFileName = lang24.Compiler.cmdLineOptValue("--src-file-name");
+		event.begin();
 		final String loggedPhase = lang24.Compiler.cmdLineOptValue("--logged-phase");
 		if (loggedPhase.matches(phaseName + "|all")) {
 			// Prepare the name of the xml file.
@@ -45,6 +58,8 @@ public abstract class Phase implements AutoCloseable {
 	public void close() {
 		if (logger != null)
 			logger.close();
+		Compilation.current().stats.end(stats);
+		event.commit();
 	}
 
 }
\ No newline at end of file
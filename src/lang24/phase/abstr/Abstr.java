@@ -1,5 +1,6 @@
 package lang24.phase.abstr;
 
+import lang24.common.*;
 import lang24.data.ast.tree.*;
 import lang24.phase.*;
 
@@ -11,7 +12,7 @@ import lang24.phase.*;
 public class Abstr extends Phase {
 
 	/** The abstract syntax tree. */
-	public static AstNode tree;
+	public static final CompilationLocal<AstNode> tree = new CompilationLocal<>(() -> null);
 
 	/**
 	 * Phase construction.
@@ -20,4 +21,10 @@ public class Abstr extends Phase {
 		super("abstr");
 	}
 
+	@Override
+	public void close() {
+		stats.count("astNodes", AstNode.numNodes());
+		super.close();
+	}
+
 }
\ No newline at end of file
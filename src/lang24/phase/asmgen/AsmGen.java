@@ -1,5 +1,9 @@
 package lang24.phase.asmgen;
 
+import lang24.cache.CodeCache;
+import lang24.common.Compilation;
+import lang24.common.CompilationLocal;
+import lang24.common.jfr.InstrSelEvent;
 import lang24.data.asm.AsmInstr;
 import lang24.data.asm.Code;
 import lang24.data.lin.LinCodeChunk;
@@ -14,27 +18,56 @@ import java.util.Vector;
  */
 public class AsmGen extends Phase {
 
-    public static Vector<Code> codes = new Vector<>();
+    public static final CompilationLocal<Vector<Code>> codes = new CompilationLocal<>(Vector::new);
 
 
     public AsmGen() {
         super("asmgen");
     }
 
+    /**
+     * Generates machine code of all functions; functions are processed in
+     * parallel but the codes are kept in the order of code chunks. Functions
+     * found in the code cache are taken from it instead.
+     */
     public void genAsmCodes() {
-        for (LinCodeChunk codeChunk : ImcLin.codeChunks()) {
-            var asmInstrs = new LinkedList<AsmInstr>();
-            final Imc2AsmVisitor imc2AsmVisitor = new Imc2AsmVisitor(codeChunk);
-            codeChunk.stmts().forEach(stmt -> stmt.accept(imc2AsmVisitor, asmInstrs));
-            Code code = new Code(codeChunk.frame(), codeChunk.entryLabel(), codeChunk.exitLabel(), asmInstrs);
-            codes.add(code);
+        final CodeCache cache = CodeCache.current();
+        codes.get().addAll(Compilation.current().parallelMap(ImcLin.codeChunks(), codeChunk -> {
+            final Code code = cache == null ? null : cache.lookup(codeChunk);
+            return code == null ? genAsmCode(codeChunk) : code;
+        }));
+        stats.count("codes", codes.get().size());
+        for (Code code : codes.get()) {
+            stats.count("asmInstrs", code.instrs.size());
+            stats.max("maxAsmInstrsPerCode", code.instrs.size());
+            if (cache != null)
+                stats.count(cache.isCached(code) ? "codeCacheHits" : "codeCacheMisses", 1);
         }
     }
 
+    private static Code genAsmCode(LinCodeChunk codeChunk) {
+        final InstrSelEvent event = new InstrSelEvent();
+        event.begin();
+
+        var asmInstrs = new LinkedList<AsmInstr>();
+        final Imc2AsmVisitor imc2AsmVisitor = new Imc2AsmVisitor(codeChunk);
+        final var stmts = codeChunk.stmts();
+        stmts.forEach(stmt -> stmt.accept(imc2AsmVisitor, asmInstrs));
+        Code code = new Code(codeChunk.frame(), codeChunk.entryLabel(), codeChunk.exitLabel(), asmInstrs);
+
+        if (event.shouldCommit()) {
+            event.function = codeChunk.frame().label.name();
+            event.numStmts = stmts.size();
+            event.numInstrs = code.instrs.size();
+            event.commit();
+        }
+        return code;
+    }
+
     public void log() {
         if (logger == null)
             return;
-        for (Code code : AsmGen.codes) {
+        for (Code code : AsmGen.codes.get()) {
             logger.begElement("code");
             logger.addAttribute("prologue", code.entryLabel.name());
             logger.addAttribute("body", code.entryLabel.name());
@@ -43,6 +43,14 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
 
     @Override
     public MemTemp visit(ImcBINOP binOp, List<AsmInstr> instructions) {
+        if (binOp.oper == ImcBINOP.Oper.SHL && binOp.sndExpr instanceof ImcCONST shift) {
+            // Shift amounts are constant, so they fit in the immediate operand
+            var fstDefs = binOp.fstExpr.accept(this, instructions);
+            final var shiftResult = new MemTemp();
+            instructions.add(genOper("SLU `d0,`s0," + shift.value, Vector_of(fstDefs), Vector_of(shiftResult), null));
+            return shiftResult;
+        }
+
         var fstDefs = binOp.fstExpr.accept(this, instructions);
         var snDefs = binOp.sndExpr.accept(this, instructions);
 
@@ -58,6 +66,7 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
             case SUB -> "SUB `d0,`s0,`s1";
             case MUL -> "MUL `d0,`s0,`s1";
             case DIV -> "DIV `d0,`s0,`s1";
+            case SHL -> "SLU `d0,`s0,`s1";
             case MOD -> {
                 // Modulo is a bit more complex
                 var divResTmp = new MemTemp();
@@ -121,7 +130,7 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
         }
 
         // Perform the function call
-        String instr = String.format("PUSHJ $%d,%s", RegAlloc.MAX_REGISTERS, call.label.name());
+        String instr = String.format("PUSHJ $%d,%s", RegAlloc.MAX_REGISTERS.get(), call.label.name());
         var jumps = Vector_of(call.label);
 
         var callOper = genOper(instr, null, null, jumps);
@@ -186,7 +195,7 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
 
         final var resultTemp = new MemTemp();
 
-        var memInstr = genOper("LDOU `d0,`s0,0", Vector_of(addrDefs), Vector_of(resultTemp), null);
+        var memInstr = genOper(loadInstruction(mem) + " `d0,`s0,0", Vector_of(addrDefs), Vector_of(resultTemp), null);
         instructions.add(memInstr);
 
         return resultTemp;
@@ -219,7 +228,7 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
         var destRegister = move.dst.accept(this, instructions);
 
         // Generate load
-        var loadInstr = genOper("LDOU `d0,`s0,0", Vector_of(addrDefs), Vector_of(destRegister), null);
+        var loadInstr = genOper(loadInstruction(mem) + " `d0,`s0,0", Vector_of(addrDefs), Vector_of(destRegister), null);
         instructions.add(loadInstr);
 
         return destRegister;
@@ -235,12 +244,34 @@ public class Imc2AsmVisitor implements ImcVisitor<MemTemp, List<AsmInstr>> {
         var uses = Vector_of(valueDefs, addrDefs);
 
         // Generate store
-        var storeInstr = genOper("STOU `s0,`s1,0", uses, null, null);
+        var storeInstr = genOper(storeInstruction(mem) + " `s0,`s1,0", uses, null, null);
         instructions.add(storeInstr);
 
         return null;
     }
 
+    /**
+     * Returns the load instruction matching the size of a memory access; bytes
+     * are zero extended, as packed chars and bools are never negative.
+     *
+     * @param mem The memory access.
+     * @return The mnemonic of the load instruction.
+     */
+    private static String loadInstruction(ImcMEM mem) {
+        return mem.size == 1 ? "LDBU" : "LDOU";
+    }
+
+    /**
+     * Returns the store instruction matching the size of a memory access; bytes
+     * are truncated (unlike STB, STBU does not trap on values out of range).
+     *
+     * @param mem The memory access.
+     * @return The mnemonic of the store instruction.
+     */
+    private static String storeInstruction(ImcMEM mem) {
+        return mem.size == 1 ? "STBU" : "STOU";
+    }
+
     @Override
     public MemTemp visit(ImcNAME name, List<AsmInstr> instructions) {
         // Move name to temp and return it
@@ -5,6 +5,7 @@ import lang24.data.asm.AsmLine;
 import lang24.data.asm.Code;
 import lang24.phase.asmgen.AsmGen;
 import lang24.phase.imclin.ImcLin;
+import lang24.phase.memory.Memory;
 import lang24.phase.regall.RegAll;
 
 import java.io.IOException;
@@ -30,7 +31,7 @@ public record FinAll(String filename) {
         // Add stdlib
         instructions.addAll(StdLib.STD_LIB_INSTRS);
 
-        for (var code : AsmGen.codes) {
+        for (var code : AsmGen.codes.get()) {
             instructions.add(AsmLine.EMPTY);
             instructions.add(AsmLine.EMPTY);
             instructions.addAll(genPrologue(code));
@@ -80,7 +81,7 @@ public record FinAll(String filename) {
         instructions.addAll(setRegisterToConstantVal(252, HEAP_POINTER));
 
         // Jump to _main
-        instructions.add(AsmLine.instr("PUSHJ $" + MAX_REGISTERS + ",_main"));
+        instructions.add(AsmLine.instr("PUSHJ $" + MAX_REGISTERS.get() + ",_main"));
 
         // Load return value
         instructions.add(AsmLine.instr("LDO $0,SP,#0"));
@@ -100,7 +101,8 @@ public record FinAll(String filename) {
                 var value = chunk.init.chars()
                         .mapToObj(String::valueOf)
                         .collect(Collectors.joining(","));
-                instructions.add(AsmLine.labeled(label.name(), "OCTA " + value + ",0"));  // Add null terminator
+                var unit = Memory.packed.get() ? "BYTE " : "OCTA ";
+                instructions.add(AsmLine.labeled(label.name(), unit + value + ",0"));  // Add null terminator
             } else {
                 boolean isCustomSize = false;
                 var size = switch ((int) chunk.size) {
@@ -118,6 +120,10 @@ public record FinAll(String filename) {
                     instructions.add(AsmLine.instr(String.format("LOC @+#%x", (chunk.size - 1))));
                 }
             }
+            if (Memory.packed.get()) {
+                // Packed chunks need not end at a multiple of 8, but the next one must start there
+                instructions.add(AsmLine.instr("LOC @+(8-@)&7"));
+            }
         }
     }
 
@@ -172,7 +178,7 @@ public record FinAll(String filename) {
 
         // Store return value
         instructions.add(AsmLine.comment("Store return value on stack"));
-        var returnReg = RegAll.tempToReg.get(code.frame.RV);
+        var returnReg = RegAll.tempToReg.get().get(code.frame.RV);
         instructions.add(AsmLine.instr("STO $" + returnReg + ",FP,0"));
 
         // Add to SP in order to then restore old FP and return address
@@ -14,6 +14,7 @@ import lang24.data.ast.tree.expr.AstBinExpr;
 import lang24.data.ast.tree.expr.AstCallExpr;
 import lang24.data.ast.tree.expr.AstCastExpr;
 import lang24.data.ast.tree.expr.AstCmpExpr;
+import lang24.data.ast.tree.expr.AstExpr;
 import lang24.data.ast.tree.expr.AstNameExpr;
 import lang24.data.ast.tree.expr.AstPfxExpr;
 import lang24.data.ast.tree.expr.AstSfxExpr;
@@ -34,6 +35,7 @@ import lang24.data.imc.code.expr.ImcCONST;
 import lang24.data.imc.code.expr.ImcExpr;
 import lang24.data.imc.code.expr.ImcMEM;
 import lang24.data.imc.code.expr.ImcNAME;
+import lang24.data.imc.code.expr.ImcSEXPR;
 import lang24.data.imc.code.expr.ImcTEMP;
 import lang24.data.imc.code.expr.ImcUNOP;
 import lang24.data.imc.code.stmt.ImcCJUMP;
@@ -46,6 +48,7 @@ import lang24.data.imc.code.stmt.ImcStmt;
 import lang24.data.mem.MemAbsAccess;
 import lang24.data.mem.MemLabel;
 import lang24.data.mem.MemRelAccess;
+import lang24.data.mem.MemTemp;
 import lang24.data.type.SemArrayType;
 import lang24.data.type.SemCharType;
 import lang24.data.type.SemVoidType;
@@ -63,6 +66,30 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
 
     private static final ImcExpr STATIC_LINK_DUMMY = new ImcCONST(541);
 
+    /**
+     * Whether {@code and} and {@code or} are lowered to conditional jumps that
+     * skip the second operand if the first one decides the result.
+     */
+    private final boolean shortCircuit;
+
+    /**
+     * Constructs a new intermediate code generator evaluating both operands of
+     * {@code and} and {@code or}.
+     */
+    public IG2() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new intermediate code generator.
+     *
+     * @param shortCircuit Whether {@code and} and {@code or} are evaluated
+     *                     by conditional jumps.
+     */
+    public IG2(boolean shortCircuit) {
+        this.shortCircuit = shortCircuit;
+    }
+
     @Override
     public ImcInstr visit(AstNodes<? extends AstNode> nodes, AstFunDefn currentFn) {
         var stmtList = new LinkedList<ImcStmt>();
@@ -124,11 +151,45 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
                 // Overwrite original
                 ImcGen.stmtImc.put(funDefn.stmt, newStmts);
             }
+
+            if (Memory.packed.get()) {
+                narrowParameters(funDefn);
+            }
         }
 
         return null;
     }
 
+    /**
+     * Prepends moves of packed char and bool parameters into the first bytes of
+     * their slots to the function body. Arguments are passed as whole words, but
+     * a packed value is accessed as a single byte at its address, which holds the
+     * least significant byte of the word on little endian targets only.
+     *
+     * @param funDefn The function definition.
+     */
+    private static void narrowParameters(AstFunDefn funDefn) {
+        var frame = Memory.frames.get(funDefn);
+        var stmts = new LinkedList<ImcStmt>();
+
+        for (var parDefn : funDefn.pars) {
+            var accessSize = MemEvaluator.getAccessSizeInBytes(SemAn.ofType.get(parDefn));
+            if (parDefn instanceof AstRefParDefn || accessSize == MemEvaluator.POINTER_SIZE) {
+                continue;
+            }
+
+            var offset = Memory.parAccesses.get(parDefn).offset;
+            var dst = new ImcMEM(new ImcBINOP(Oper.ADD, new ImcTEMP(frame.FP), new ImcCONST(offset)), accessSize);
+            var src = new ImcMEM(new ImcBINOP(Oper.ADD, new ImcTEMP(frame.FP), new ImcCONST(offset)));
+            stmts.add(new ImcMOVE(dst, src));
+        }
+
+        if (!stmts.isEmpty()) {
+            stmts.add(ImcGen.stmtImc.get(funDefn.stmt));
+            ImcGen.stmtImc.put(funDefn.stmt, new ImcSTMTS(stmts));
+        }
+    }
+
     @Override
     public ImcInstr visit(AstArrExpr arrExpr, AstFunDefn currentFn) {
         var array = (ImcExpr) arrExpr.arr.accept(this, currentFn);
@@ -150,7 +211,7 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         // Add offset to the array to get the memory access address
         var binOp = new ImcBINOP(Oper.ADD, array, offset);
 
-        var memAcc = new ImcMEM(binOp);
+        var memAcc = new ImcMEM(binOp, MemEvaluator.getAccessSizeInBytes(arrType.elemType));
         ImcGen.exprImc.put(arrExpr, memAcc);
 
         return memAcc;
@@ -221,6 +282,12 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
 
     @Override
     public ImcInstr visit(AstBinExpr binExpr, AstFunDefn currentFn) {
+        if (shortCircuit && isLogical(binExpr)) {
+            var imc = logicalValue(binExpr, currentFn);
+            ImcGen.exprImc.put(binExpr, imc);
+            return imc;
+        }
+
         // Get child expressions
         var fstExpr = (ImcExpr) binExpr.fstExpr.accept(this, currentFn);
         var sndExpr = (ImcExpr) binExpr.sndExpr.accept(this, currentFn);
@@ -248,6 +315,62 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         return binImc;
     }
 
+    private static boolean isLogical(AstBinExpr binExpr) {
+        return binExpr.oper == AstBinExpr.Oper.AND || binExpr.oper == AstBinExpr.Oper.OR;
+    }
+
+    /**
+     * Computes the value of {@code and} or {@code or} outside of a condition:
+     * the result is set to 1 on the positive outcome of the conditional jumps.
+     *
+     * @param binExpr   The logical expression.
+     * @param currentFn The parent function definition.
+     * @return The expression yielding 1 or 0.
+     */
+    private ImcExpr logicalValue(AstBinExpr binExpr, AstFunDefn currentFn) {
+        var result = new ImcTEMP(new MemTemp());
+        var trueLabel = new MemLabel();
+        var falseLabel = new MemLabel();
+
+        var stmts = new LinkedList<ImcStmt>();
+        stmts.add(new ImcMOVE(result, new ImcCONST(0)));
+        condJumps(binExpr, trueLabel, falseLabel, currentFn, stmts);
+        stmts.add(new ImcLABEL(trueLabel));
+        stmts.add(new ImcMOVE(result, new ImcCONST(1)));
+        stmts.add(new ImcLABEL(falseLabel));
+
+        return new ImcSEXPR(new ImcSTMTS(stmts), result);
+    }
+
+    /**
+     * Lowers a condition to conditional jumps. The first operand of {@code and}
+     * and {@code or} jumps past the second one if it decides the outcome, and
+     * {@code not} swaps the labels; any other condition is a single jump.
+     *
+     * @param cond      The condition.
+     * @param posLabel  The label jumped to if the condition holds.
+     * @param negLabel  The label jumped to if it does not.
+     * @param currentFn The parent function definition.
+     * @param stmts     The list the jumps are appended to.
+     */
+    private void condJumps(AstExpr cond, MemLabel posLabel, MemLabel negLabel, AstFunDefn currentFn, List<ImcStmt> stmts) {
+        switch (cond) {
+            case AstBinExpr binExpr when isLogical(binExpr) -> {
+                var sndLabel = new MemLabel();
+                if (binExpr.oper == AstBinExpr.Oper.AND) {
+                    condJumps(binExpr.fstExpr, sndLabel, negLabel, currentFn, stmts);
+                } else {
+                    condJumps(binExpr.fstExpr, posLabel, sndLabel, currentFn, stmts);
+                }
+                stmts.add(new ImcLABEL(sndLabel));
+                condJumps(binExpr.sndExpr, posLabel, negLabel, currentFn, stmts);
+            }
+            case AstPfxExpr pfxExpr when pfxExpr.oper == AstPfxExpr.Oper.NOT ->
+                    condJumps(pfxExpr.expr, negLabel, posLabel, currentFn, stmts);
+            default -> stmts.add(new ImcCJUMP((ImcExpr) cond.accept(this, currentFn), posLabel, negLabel));
+        }
+    }
+
     /**
      * Function call expressions.
      *
@@ -350,9 +473,10 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
 
         // Our result is at leftExpr + offset
         var binImc = new ImcBINOP(Oper.ADD, leftExpr, new ImcCONST(memAccess.offset));
-        ImcGen.exprImc.put(cmpExpr, binImc);
+        var memImc = new ImcMEM(binImc, MemEvaluator.getAccessSizeInBytes(SemAn.ofType.get(cmpExpr)));
+        ImcGen.exprImc.put(cmpExpr, memImc);
 
-        return binImc;
+        return memImc;
     }
 
     // ex7 rule
@@ -390,11 +514,14 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         };
 
         // Memory access instruction
-        var memImc = new ImcMEM(address);
+        var accessSize = MemEvaluator.getAccessSizeInBytes(SemAn.ofType.get(nameExpr));
+        ImcMEM memImc;
 
         // If defn is reference, apply one more MEM over it
         if (defn instanceof AstRefParDefn) {
-            memImc = new ImcMEM(memImc);
+            memImc = new ImcMEM(new ImcMEM(address), accessSize);
+        } else {
+            memImc = new ImcMEM(address, accessSize);
         }
 
         ImcGen.exprImc.put(nameExpr, memImc);
@@ -428,7 +555,7 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         var expr = (ImcExpr) sfxExpr.expr.accept(this, currentFn);
 
         ImcExpr imc = switch (sfxExpr.oper) {
-            case PTR -> new ImcMEM(expr);
+            case PTR -> new ImcMEM(expr, MemEvaluator.getAccessSizeInBytes(SemAn.ofType.get(sfxExpr)));
         };
 
         ImcGen.exprImc.put(sfxExpr, imc);
@@ -489,7 +616,7 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
 
     @Override
     public ImcInstr visit(AstIfStmt ifStmt, AstFunDefn currentFn) {
-        var cond = (ImcExpr) ifStmt.cond.accept(this, currentFn);
+        var cond = shortCircuit ? null : (ImcExpr) ifStmt.cond.accept(this, currentFn);
         var thenStmt = (ImcStmt) ifStmt.thenStmt.accept(this, currentFn);
 
         // Whether it has else part
@@ -512,8 +639,11 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         var jumpToExit = new ImcJUMP(exitLabel);
 
         // If no else part, jump to exit directly
-        var cjump = new ImcCJUMP(cond, thenLabel, hasElseStatements ? elseLabel : exitLabel);
-        stmts.add(cjump);
+        if (shortCircuit) {
+            condJumps(ifStmt.cond, thenLabel, hasElseStatements ? elseLabel : exitLabel, currentFn, stmts);
+        } else {
+            stmts.add(new ImcCJUMP(cond, thenLabel, hasElseStatements ? elseLabel : exitLabel));
+        }
 
         // Else part
         if (hasElseStatements) {
@@ -566,7 +696,7 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
 
     @Override
     public ImcInstr visit(AstWhileStmt whileStmt, AstFunDefn currentFn) {
-        var condExpr = (ImcExpr) whileStmt.cond.accept(this, currentFn);
+        var condExpr = shortCircuit ? null : (ImcExpr) whileStmt.cond.accept(this, currentFn);
         var stmtExpr = (ImcStmt) whileStmt.stmt.accept(this, currentFn);
 
         var stmts = new LinkedList<ImcStmt>();
@@ -575,7 +705,11 @@ public class IG2 implements AstFullVisitor<ImcInstr, AstFunDefn> {
         var exitLabel = new MemLabel();
 
         stmts.add(new ImcLABEL(loopLabel));
-        stmts.add(new ImcCJUMP(condExpr, bodyLabel, exitLabel));
+        if (shortCircuit) {
+            condJumps(whileStmt.cond, bodyLabel, exitLabel, currentFn, stmts);
+        } else {
+            stmts.add(new ImcCJUMP(condExpr, bodyLabel, exitLabel));
+        }
         stmts.add(new ImcLABEL(bodyLabel));
         stmts.add(stmtExpr);
         stmts.add(new ImcJUMP(loopLabel));
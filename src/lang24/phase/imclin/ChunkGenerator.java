@@ -1,5 +1,6 @@
 package lang24.phase.imclin;
 
+import lang24.common.jfr.ChunkGenEvent;
 import lang24.data.ast.tree.defn.AstFunDefn;
 import lang24.data.ast.tree.defn.AstVarDefn;
 import lang24.data.ast.tree.expr.AstAtomExpr;
@@ -17,6 +18,56 @@ import java.util.List;
 
 public class ChunkGenerator implements AstFullVisitor<Void, List<ImcStmt>> {
 
+    /**
+     * The folder applied to function bodies before they are linearized (or
+     * {@code null} if bodies are linearized as they are).
+     */
+    private final ConstantFolder folder;
+
+    /**
+     * Whether linearized function bodies are translated into SSA form (and
+     * back again).
+     */
+    private final boolean ssa;
+
+    /**
+     * The constant propagation applied to linearized function bodies in SSA
+     * form (or {@code null} if constants are not propagated).
+     */
+    private final ConstantPropagation propagation;
+
+    /**
+     * The value numbering applied to linearized function bodies (or
+     * {@code null} if common subexpressions are not eliminated).
+     */
+    private final ValueNumbering numbering;
+
+    /**
+     * Constructs a new chunk generator.
+     */
+    public ChunkGenerator() {
+        this(null, false, null, null);
+    }
+
+    /**
+     * Constructs a new chunk generator optimizing function bodies.
+     *
+     * @param folder      The folder applied to function bodies before they are
+     *                    linearized (or {@code null}).
+     * @param ssa         Whether linearized function bodies are translated
+     *                    into SSA form and back.
+     * @param propagation The constant propagation applied to linearized
+     *                    function bodies in SSA form (or {@code null}).
+     * @param numbering   The value numbering applied to linearized function
+     *                    bodies (or {@code null}).
+     */
+    public ChunkGenerator(ConstantFolder folder, boolean ssa, ConstantPropagation propagation,
+                          ValueNumbering numbering) {
+        this.folder = folder;
+        this.ssa = ssa;
+        this.propagation = propagation;
+        this.numbering = numbering;
+    }
 
     @Override
     public Void visit(AstVarDefn varDefn, List<ImcStmt> stmtList) {
@@ -38,11 +89,17 @@ public class ChunkGenerator implements AstFullVisitor<Void, List<ImcStmt>> {
         }
         AstFullVisitor.super.visit(funDefn, stmtList);
 
+        final ChunkGenEvent event = new ChunkGenEvent();
+        event.begin();
+
         // Statement list for the body of the function
         var bodyStmts = new LinkedList<ImcStmt>();
 
         // Get the body of the function & unpack ImcSTMTS to List<ImcStmt>
         var body = ImcGen.stmtImc.get(funDefn.stmt);
+        if (folder != null) {
+            body = folder.fold(body);
+        }
         body.accept(new CodeLinearizator(), bodyStmts);
 
         // Sort the blocks of code
@@ -59,9 +116,33 @@ public class ChunkGenerator implements AstFullVisitor<Void, List<ImcStmt>> {
         // Get function information
         var fnFrame = Memory.frames.get(funDefn);
 
+        List<ImcStmt> chunkStmts = permutedStmts;
+        if (ssa || propagation != null) {
+            // The frame pointer and the return value are used by the prologue and the epilogue
+            var ssaForm = new SsaForm(chunkStmts, List.of(fnFrame.FP, fnFrame.RV));
+            if (propagation != null) {
+                propagation.propagate(ssaForm);
+            }
+            chunkStmts = ssaForm.toStmts();
+        }
+        int unnumberedSize = chunkStmts.size();
+        if (numbering != null) {
+            // Eliminate common subexpressions
+            chunkStmts = numbering.number(chunkStmts);
+        }
+
         // Create function code chunk
-        var codeChunk = new LinCodeChunk(fnFrame, permutedStmts, entryLabel, exitLabel);
+        var codeChunk = new LinCodeChunk(fnFrame, chunkStmts, entryLabel, exitLabel);
         ImcLin.addCodeChunk(codeChunk);
+        if (numbering != null) {
+            ImcLin.setUnnumberedSize(codeChunk, unnumberedSize);
+        }
+
+        if (event.shouldCommit()) {
+            event.function = funDefn.name;
+            event.numStmts = chunkStmts.size();
+            event.commit();
+        }
 
         return null;
     }
@@ -168,15 +168,9 @@ public class CodeLinearizator implements AbstractImcVisitor<ImcExpr, List<ImcStm
 
     @Override
     public ImcExpr visit(ImcSEXPR sExpr, List<ImcStmt> linStmts) {
+        // The statement is linearized in place, only the expression remains
         sExpr.stmt.accept(this, linStmts);
-        var newExpr = sExpr.expr.accept(this, linStmts);
-
-        if (newExpr != sExpr.expr) {
-            return new ImcSEXPR(sExpr.stmt, newExpr);
-        }
-
-        // Stayed the same, no need to change it
-        return sExpr;
+        return sExpr.expr.accept(this, linStmts);
     }
 
     @Override
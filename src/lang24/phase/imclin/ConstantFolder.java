@@ -0,0 +1,339 @@
+package lang24.phase.imclin;
+
+import lang24.common.report.Report;
+import lang24.data.imc.code.ImcInstr;
+import lang24.data.imc.code.expr.ImcBINOP;
+import lang24.data.imc.code.expr.ImcBINOP.Oper;
+import lang24.data.imc.code.expr.ImcCALL;
+import lang24.data.imc.code.expr.ImcCONST;
+import lang24.data.imc.code.expr.ImcExpr;
+import lang24.data.imc.code.expr.ImcMEM;
+import lang24.data.imc.code.expr.ImcNAME;
+import lang24.data.imc.code.expr.ImcSEXPR;
+import lang24.data.imc.code.expr.ImcTEMP;
+import lang24.data.imc.code.expr.ImcUNOP;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcESTMT;
+import lang24.data.imc.code.stmt.ImcJUMP;
+import lang24.data.imc.code.stmt.ImcLABEL;
+import lang24.data.imc.code.stmt.ImcMOVE;
+import lang24.data.imc.code.stmt.ImcSTMTS;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.imc.visitor.AbstractImcVisitor;
+
+import java.util.LinkedList;
+
+/**
+ * Folds constant subexpressions of the intermediate code of a function body
+ * and simplifies it using algebraic identities before the body is linearized.
+ * <p>
+ * Besides evaluating operations on constants, the folder removes additions of
+ * and multiplications by neutral elements, replaces multiplications by powers
+ * of two with shifts and merges chains of constant offsets such as
+ * {@code (FP + c1) + c2} into a single one; negative offsets are turned into
+ * subtractions of positive ones, which are cheaper to materialize. Division and
+ * modulo are folded only if both operands are nonnegative (and the divisor is
+ * nonzero), as the targets round negative quotients differently. Operands are
+ * dropped (e.g., in {@code x * 0}) only if they contain no calls.
+ */
+public class ConstantFolder implements AbstractImcVisitor<ImcInstr, Object> {
+
+    /**
+     * The number of nodes removed so far.
+     */
+    private long removedNodes = 0;
+
+    /**
+     * Folds the body of a function.
+     *
+     * @param body The body of the function.
+     * @return The folded body.
+     */
+    public ImcStmt fold(ImcStmt body) {
+        var folded = (ImcStmt) body.accept(this, null);
+        removedNodes += countNodes(body) - countNodes(folded);
+        return folded;
+    }
+
+    /**
+     * Returns the number of nodes removed from all bodies folded so far.
+     *
+     * @return The number of nodes removed.
+     */
+    public long removedNodes() {
+        return removedNodes;
+    }
+
+    @Override
+    public ImcInstr visit(ImcBINOP binOp, Object arg) {
+        var fstExpr = (ImcExpr) binOp.fstExpr.accept(this, arg);
+        var sndExpr = (ImcExpr) binOp.sndExpr.accept(this, arg);
+
+        var folded = simplify(binOp.oper, fstExpr, sndExpr);
+        if (folded instanceof ImcBINOP newBinOp && newBinOp.oper == binOp.oper
+                && newBinOp.fstExpr == binOp.fstExpr && newBinOp.sndExpr == binOp.sndExpr) {
+            // Stayed the same, no need to change it
+            return binOp;
+        }
+        return folded;
+    }
+
+    @Override
+    public ImcInstr visit(ImcCALL call, Object arg) {
+        var newArgs = new LinkedList<ImcExpr>();
+        boolean changed = false;
+        for (var callArg : call.args) {
+            var newArg = (ImcExpr) callArg.accept(this, arg);
+            changed |= newArg != callArg;
+            newArgs.add(newArg);
+        }
+
+        return changed ? new ImcCALL(call.label, call.offs, newArgs) : call;
+    }
+
+    @Override
+    public ImcInstr visit(ImcCJUMP cjump, Object arg) {
+        var newCond = (ImcExpr) cjump.cond.accept(this, arg);
+        return newCond != cjump.cond ? new ImcCJUMP(newCond, cjump.posLabel, cjump.negLabel) : cjump;
+    }
+
+    @Override
+    public ImcInstr visit(ImcCONST constant, Object arg) {
+        return constant;
+    }
+
+    @Override
+    public ImcInstr visit(ImcESTMT eStmt, Object arg) {
+        var newExpr = (ImcExpr) eStmt.expr.accept(this, arg);
+        return newExpr != eStmt.expr ? new ImcESTMT(newExpr) : eStmt;
+    }
+
+    @Override
+    public ImcInstr visit(ImcJUMP jump, Object arg) {
+        return jump;
+    }
+
+    @Override
+    public ImcInstr visit(ImcLABEL label, Object arg) {
+        return label;
+    }
+
+    @Override
+    public ImcInstr visit(ImcMEM mem, Object arg) {
+        var newAddr = (ImcExpr) mem.addr.accept(this, arg);
+        return newAddr != mem.addr ? new ImcMEM(newAddr, mem.size) : mem;
+    }
+
+    @Override
+    public ImcInstr visit(ImcMOVE move, Object arg) {
+        var newDst = (ImcExpr) move.dst.accept(this, arg);
+        var newSrc = (ImcExpr) move.src.accept(this, arg);
+        return newDst != move.dst || newSrc != move.src ? new ImcMOVE(newDst, newSrc) : move;
+    }
+
+    @Override
+    public ImcInstr visit(ImcNAME name, Object arg) {
+        return name;
+    }
+
+    @Override
+    public ImcInstr visit(ImcSEXPR sExpr, Object arg) {
+        var newStmt = (ImcStmt) sExpr.stmt.accept(this, arg);
+        var newExpr = (ImcExpr) sExpr.expr.accept(this, arg);
+        return newStmt != sExpr.stmt || newExpr != sExpr.expr ? new ImcSEXPR(newStmt, newExpr) : sExpr;
+    }
+
+    @Override
+    public ImcInstr visit(ImcSTMTS stmts, Object arg) {
+        var newStmts = new LinkedList<ImcStmt>();
+        boolean changed = false;
+        for (var stmt : stmts.stmts) {
+            var newStmt = (ImcStmt) stmt.accept(this, arg);
+            changed |= newStmt != stmt;
+            newStmts.add(newStmt);
+        }
+
+        return changed ? new ImcSTMTS(newStmts) : stmts;
+    }
+
+    @Override
+    public ImcInstr visit(ImcTEMP temp, Object arg) {
+        return temp;
+    }
+
+    @Override
+    public ImcInstr visit(ImcUNOP unOp, Object arg) {
+        var subExpr = (ImcExpr) unOp.subExpr.accept(this, arg);
+
+        if (subExpr instanceof ImcCONST constant) {
+            return switch (unOp.oper) {
+                case NEG -> new ImcCONST(-constant.value);
+                case NOT -> new ImcCONST(constant.value == 0 ? 1 : 0);
+            };
+        }
+        if (unOp.oper == ImcUNOP.Oper.NEG && subExpr instanceof ImcUNOP subUnOp && subUnOp.oper == ImcUNOP.Oper.NEG) {
+            // -(-x) = x
+            return subUnOp.subExpr;
+        }
+
+        return subExpr != unOp.subExpr ? new ImcUNOP(unOp.oper, subExpr) : unOp;
+    }
+
+    /**
+     * Simplifies a binary operation on already simplified operands.
+     *
+     * @param oper    The operator.
+     * @param fstExpr The first operand.
+     * @param sndExpr The second operand.
+     * @return The simplified expression.
+     */
+    private static ImcExpr simplify(Oper oper, ImcExpr fstExpr, ImcExpr sndExpr) {
+        if (fstExpr instanceof ImcCONST fst && sndExpr instanceof ImcCONST snd) {
+            var value = evaluate(oper, fst.value, snd.value);
+            if (value != null) {
+                return new ImcCONST(value);
+            }
+            return new ImcBINOP(oper, fstExpr, sndExpr);
+        }
+
+        // Constants go to the right of commutative operators
+        if (fstExpr instanceof ImcCONST && isCommutative(oper)) {
+            var tmp = fstExpr;
+            fstExpr = sndExpr;
+            sndExpr = tmp;
+        }
+
+        if (fstExpr instanceof ImcCONST fst) {
+            if (oper == Oper.SUB && fst.value == 0) {
+                // 0 - x = -x
+                return new ImcUNOP(ImcUNOP.Oper.NEG, sndExpr);
+            }
+            return new ImcBINOP(oper, fstExpr, sndExpr);
+        }
+
+        if (!(sndExpr instanceof ImcCONST snd)) {
+            return new ImcBINOP(oper, fstExpr, sndExpr);
+        }
+        long value = snd.value;
+
+        return switch (oper) {
+            case ADD, SUB -> {
+                // Merge (x +- c1) +- c2 into x + c
+                long offset = oper == Oper.ADD ? value : -value;
+                if (fstExpr instanceof ImcBINOP inner && inner.sndExpr instanceof ImcCONST innerSnd
+                        && (inner.oper == Oper.ADD || inner.oper == Oper.SUB)) {
+                    offset += inner.oper == Oper.ADD ? innerSnd.value : -innerSnd.value;
+                    fstExpr = inner.fstExpr;
+                }
+                yield offset(fstExpr, offset);
+            }
+            case MUL -> {
+                if (value == 0 && !containsCall(fstExpr)) {
+                    yield new ImcCONST(0);
+                }
+                if (value == 1) {
+                    yield fstExpr;
+                }
+                if (value == -1) {
+                    yield new ImcUNOP(ImcUNOP.Oper.NEG, fstExpr);
+                }
+                if (value > 0 && Long.bitCount(value) == 1) {
+                    yield new ImcBINOP(Oper.SHL, fstExpr, new ImcCONST(Long.numberOfTrailingZeros(value)));
+                }
+                yield new ImcBINOP(oper, fstExpr, sndExpr);
+            }
+            case DIV -> value == 1 ? fstExpr : new ImcBINOP(oper, fstExpr, sndExpr);
+            case MOD -> value == 1 && !containsCall(fstExpr) ? new ImcCONST(0) : new ImcBINOP(oper, fstExpr, sndExpr);
+            case SHL -> value == 0 ? fstExpr : new ImcBINOP(oper, fstExpr, sndExpr);
+            default -> new ImcBINOP(oper, fstExpr, sndExpr);
+        };
+    }
+
+    /**
+     * Returns an expression adding a constant offset to an expression. A
+     * negative offset is subtracted instead.
+     *
+     * @param expr   The expression.
+     * @param offset The offset.
+     * @return The expression with the offset added.
+     */
+    private static ImcExpr offset(ImcExpr expr, long offset) {
+        if (offset == 0) {
+            return expr;
+        }
+        if (offset < 0 && offset != Long.MIN_VALUE) {
+            return new ImcBINOP(Oper.SUB, expr, new ImcCONST(-offset));
+        }
+        return new ImcBINOP(Oper.ADD, expr, new ImcCONST(offset));
+    }
+
+    /**
+     * Evaluates a binary operation on constants.
+     *
+     * @param oper The operator.
+     * @param fst  The first operand.
+     * @param snd  The second operand.
+     * @return The result or {@code null} if it is left to be computed at run time.
+     */
+    static Long evaluate(Oper oper, long fst, long snd) {
+        return switch (oper) {
+            case OR -> fst != 0 || snd != 0 ? 1L : 0L;
+            case AND -> fst != 0 && snd != 0 ? 1L : 0L;
+            case EQU -> fst == snd ? 1L : 0L;
+            case NEQ -> fst != snd ? 1L : 0L;
+            case LTH -> fst < snd ? 1L : 0L;
+            case GTH -> fst > snd ? 1L : 0L;
+            case LEQ -> fst <= snd ? 1L : 0L;
+            case GEQ -> fst >= snd ? 1L : 0L;
+            case ADD -> fst + snd;
+            case SUB -> fst - snd;
+            case MUL -> fst * snd;
+            case DIV -> fst >= 0 && snd > 0 ? fst / snd : null;
+            case MOD -> fst >= 0 && snd > 0 ? fst % snd : null;
+            case SHL -> snd >= 0 && snd < 64 ? fst << snd : null;
+        };
+    }
+
+    private static boolean isCommutative(Oper oper) {
+        return switch (oper) {
+            case OR, AND, EQU, NEQ, ADD, MUL -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean containsCall(ImcExpr expr) {
+        return switch (expr) {
+            case ImcCALL ignored -> true;
+            case ImcSEXPR ignored -> true;
+            case ImcBINOP binOp -> containsCall(binOp.fstExpr) || containsCall(binOp.sndExpr);
+            case ImcUNOP unOp -> containsCall(unOp.subExpr);
+            case ImcMEM mem -> containsCall(mem.addr);
+            case ImcCONST ignored -> false;
+            case ImcNAME ignored -> false;
+            case ImcTEMP ignored -> false;
+            default -> throw new Report.InternalError();
+        };
+    }
+
+    /**
+     * Counts the nodes of a tree of intermediate code.
+     *
+     * @param instr The root of the tree.
+     * @return The number of nodes.
+     */
+    static long countNodes(ImcInstr instr) {
+        return 1 + switch (instr) {
+            case ImcBINOP binOp -> countNodes(binOp.fstExpr) + countNodes(binOp.sndExpr);
+            case ImcCALL call -> call.args.stream().mapToLong(ConstantFolder::countNodes).sum();
+            case ImcMEM mem -> countNodes(mem.addr);
+            case ImcSEXPR sExpr -> countNodes(sExpr.stmt) + countNodes(sExpr.expr);
+            case ImcUNOP unOp -> countNodes(unOp.subExpr);
+            case ImcCJUMP cjump -> countNodes(cjump.cond);
+            case ImcESTMT eStmt -> countNodes(eStmt.expr);
+            case ImcMOVE move -> countNodes(move.dst) + countNodes(move.src);
+            case ImcSTMTS stmts -> stmts.stmts.stream().mapToLong(ConstantFolder::countNodes).sum();
+            default -> 0;
+        };
+    }
+
+}
@@ -0,0 +1,421 @@
+package lang24.phase.imclin;
+
+import lang24.data.imc.code.expr.ImcBINOP;
+import lang24.data.imc.code.expr.ImcCALL;
+import lang24.data.imc.code.expr.ImcCONST;
+import lang24.data.imc.code.expr.ImcExpr;
+import lang24.data.imc.code.expr.ImcMEM;
+import lang24.data.imc.code.expr.ImcTEMP;
+import lang24.data.imc.code.expr.ImcUNOP;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcESTMT;
+import lang24.data.imc.code.stmt.ImcJUMP;
+import lang24.data.imc.code.stmt.ImcMOVE;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.mem.MemLabel;
+import lang24.data.mem.MemTemp;
+import lang24.phase.imclin.ControlFlowGraph.Block;
+import lang24.phase.imclin.SsaForm.Phi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+
+/**
+ * Sparse conditional constant propagation over linearized code in SSA form.
+ * <p>
+ * Starting from the entry, only the edges that can be taken are followed: both
+ * edges of a conditional jump if its condition is not constant, but only one if
+ * it is. The value of each name is unknown until its assignment is reached, and
+ * becomes either a constant or not constant afterwards; a phi node merges the
+ * values passed along the edges followed so far only. Whenever the value of a
+ * name changes, the blocks using it are evaluated again.
+ * <p>
+ * Afterwards, uses of constant names and operations on constants are replaced
+ * by constants, conditional jumps on constants become unconditional ones, and
+ * blocks that cannot be reached (except for the one with the exit label) are
+ * removed together with their edges. Assignments to constant names and phi
+ * nodes merging them are removed unless a remaining phi node still needs them.
+ * Operations are evaluated like in {@link ConstantFolder}.
+ */
+public class ConstantPropagation {
+
+    /**
+     * The number of conditional jumps replaced so far.
+     */
+    private long foldedJumps = 0;
+
+    /**
+     * The number of blocks removed so far.
+     */
+    private long removedBlocks = 0;
+
+    /**
+     * Propagates constants through linearized code in SSA form.
+     *
+     * @param ssa The code in SSA form, which is changed in place.
+     */
+    public void propagate(SsaForm ssa) {
+        if (ssa.graph.blocks.isEmpty()) {
+            return;
+        }
+        var propagation = new Propagation(ssa);
+        propagation.run();
+        propagation.rewrite();
+    }
+
+    /**
+     * Returns the number of conditional jumps replaced in all chunks so far.
+     *
+     * @return The number of replaced conditional jumps.
+     */
+    public long foldedJumps() {
+        return foldedJumps;
+    }
+
+    /**
+     * Returns the number of blocks removed from all chunks so far.
+     *
+     * @return The number of removed blocks.
+     */
+    public long removedBlocks() {
+        return removedBlocks;
+    }
+
+    /**
+     * The propagation within a single chunk.
+     */
+    private class Propagation {
+
+        private final SsaForm ssa;
+
+        private final List<Block> blocks;
+
+        /**
+         * The names assigned within the code, i.e., those introduced by the SSA
+         * form (other temporaries are never constant).
+         */
+        private final Set<MemTemp> assigned = new HashSet<>();
+
+        /** The blocks using each name. */
+        private final Map<MemTemp, Set<Block>> users = new HashMap<>();
+
+        /**
+         * The value of each name: {@code null} if it is not known yet, empty if
+         * it is not constant.
+         */
+        private final Map<MemTemp, OptionalLong> values = new HashMap<>();
+
+        /** The blocks that can be reached. */
+        private final BitSet reached = new BitSet();
+
+        /** The incoming edges of each block that can be taken, by predecessors. */
+        private final List<BitSet> taken = new ArrayList<>();
+
+        /** The blocks to be evaluated (again). */
+        private final ArrayDeque<Block> work = new ArrayDeque<>();
+
+        private final BitSet inWork = new BitSet();
+
+        Propagation(SsaForm ssa) {
+            this.ssa = ssa;
+            this.blocks = ssa.graph.blocks;
+            for (var block : blocks) {
+                taken.add(new BitSet());
+                for (var phi : ssa.phis(block)) {
+                    assigned.add(phi.target);
+                    for (var arg : phi.args) {
+                        if (arg != null) {
+                            users.computeIfAbsent(arg, a -> new HashSet<>()).add(block);
+                        }
+                    }
+                }
+                for (var stmt : block.stmts) {
+                    var def = SsaForm.def(stmt);
+                    if (def != null && ssa.original(def) != def) {
+                        assigned.add(def);
+                    }
+                    SsaForm.uses(stmt, temp -> users.computeIfAbsent(temp, t -> new HashSet<>()).add(block));
+                }
+            }
+        }
+
+        void run() {
+            reach(blocks.getFirst());
+            while (!work.isEmpty()) {
+                var block = work.poll();
+                inWork.clear(block.index);
+                evaluate(block);
+            }
+        }
+
+        private void reach(Block block) {
+            reached.set(block.index);
+            enqueue(block);
+        }
+
+        private void enqueue(Block block) {
+            if (!inWork.get(block.index)) {
+                inWork.set(block.index);
+                work.add(block);
+            }
+        }
+
+        private void take(Block from, Block to) {
+            var edges = taken.get(to.index);
+            int pred = to.preds.indexOf(from);
+            if (edges.get(pred)) {
+                return;
+            }
+            edges.set(pred);
+            if (reached.get(to.index)) {
+                // Only phi nodes see the new edge
+                enqueue(to);
+            } else {
+                reach(to);
+            }
+        }
+
+        private void evaluate(Block block) {
+            var edges = taken.get(block.index);
+            for (var phi : ssa.phis(block)) {
+                OptionalLong value = null;
+                for (int p = edges.nextSetBit(0); p >= 0; p = edges.nextSetBit(p + 1)) {
+                    var arg = value(phi.args.get(p));
+                    if (arg == null) {
+                        continue;
+                    }
+                    if (value == null) {
+                        value = arg;
+                    } else if (!value.equals(arg)) {
+                        value = OptionalLong.empty();
+                    }
+                }
+                lower(phi.target, value);
+            }
+
+            for (var stmt : block.stmts) {
+                var def = SsaForm.def(stmt);
+                if (def != null && assigned.contains(def)) {
+                    lower(def, value(((ImcMOVE) stmt).src));
+                }
+            }
+
+            if (block.jump() instanceof ImcCJUMP cjump) {
+                var cond = value(cjump.cond);
+                if (cond == null) {
+                    return;
+                }
+                for (var succ : List.copyOf(block.succs)) {
+                    if (cond.isEmpty() || succ.label() == target(cjump, cond.getAsLong())) {
+                        take(block, succ);
+                    }
+                }
+            } else {
+                for (var succ : List.copyOf(block.succs)) {
+                    take(block, succ);
+                }
+            }
+        }
+
+        /**
+         * Lowers the value of a name, which may only change from unknown to
+         * constant and from constant to not constant.
+         */
+        private void lower(MemTemp name, OptionalLong value) {
+            var old = values.get(name);
+            if (value == null || (old != null && (old.isEmpty() || old.equals(value)))) {
+                return;
+            }
+            values.put(name, old == null ? value : OptionalLong.empty());
+            for (var user : users.getOrDefault(name, Set.of())) {
+                if (reached.get(user.index)) {
+                    enqueue(user);
+                }
+            }
+        }
+
+        private OptionalLong value(MemTemp name) {
+            if (name == null || !assigned.contains(name)) {
+                return OptionalLong.empty();
+            }
+            return values.get(name);
+        }
+
+        private OptionalLong value(ImcExpr expr) {
+            return switch (expr) {
+                case ImcCONST constant -> OptionalLong.of(constant.value);
+                case ImcTEMP temp -> value(temp.temp);
+                case ImcBINOP binOp -> {
+                    var fst = value(binOp.fstExpr);
+                    var snd = value(binOp.sndExpr);
+                    if (fst == null || snd == null || fst.isEmpty() || snd.isEmpty()) {
+                        yield fst != null && fst.isEmpty() || snd != null && snd.isEmpty()
+                                ? OptionalLong.empty()
+                                : null;
+                    }
+                    var value = ConstantFolder.evaluate(binOp.oper, fst.getAsLong(), snd.getAsLong());
+                    yield value == null ? OptionalLong.empty() : OptionalLong.of(value);
+                }
+                case ImcUNOP unOp -> {
+                    var sub = value(unOp.subExpr);
+                    if (sub == null || sub.isEmpty()) {
+                        yield sub;
+                    }
+                    yield OptionalLong.of(switch (unOp.oper) {
+                        case NEG -> -sub.getAsLong();
+                        case NOT -> sub.getAsLong() == 0 ? 1 : 0;
+                    });
+                }
+                default -> OptionalLong.empty();
+            };
+        }
+
+        private static MemLabel target(ImcCJUMP cjump, long cond) {
+            return cond != 0 ? cjump.posLabel : cjump.negLabel;
+        }
+
+        // *** REWRITING ***
+
+        private boolean isConstant(MemTemp name) {
+            var value = value(name);
+            return value != null && value.isPresent();
+        }
+
+        void rewrite() {
+            var exit = blocks.getLast();
+
+            // Edges that cannot be taken, and blocks that cannot be reached
+            for (var block : blocks) {
+                var edges = taken.get(block.index);
+                for (int p = block.preds.size() - 1; p >= 0; p--) {
+                    if (!edges.get(p)) {
+                        ssa.removeEdge(block.preds.get(p), block);
+                    }
+                }
+                if (!reached.get(block.index)) {
+                    ssa.phis(block).clear();
+                    if (block != exit) {
+                        block.stmts.clear();
+                        removedBlocks++;
+                    } else {
+                        // Only the exit label is kept
+                        block.stmts.subList(1, block.stmts.size()).clear();
+                    }
+                }
+            }
+
+            // Phi nodes of constant names are needed only as arguments of the other ones
+            var neededPhis = new LinkedHashSet<Phi>();
+            var needed = new HashSet<MemTemp>();
+            var phiOf = new HashMap<MemTemp, Phi>();
+            for (var block : blocks) {
+                for (var phi : ssa.phis(block)) {
+                    phiOf.put(phi.target, phi);
+                    if (!isConstant(phi.target)) {
+                        neededPhis.add(phi);
+                    }
+                }
+            }
+            var pending = new ArrayDeque<>(neededPhis);
+            while (!pending.isEmpty()) {
+                for (var arg : pending.poll().args) {
+                    if (needed.add(arg) && phiOf.containsKey(arg) && neededPhis.add(phiOf.get(arg))) {
+                        pending.add(phiOf.get(arg));
+                    }
+                }
+            }
+
+            for (var block : blocks) {
+                if (!reached.get(block.index)) {
+                    continue;
+                }
+                ssa.phis(block).retainAll(neededPhis);
+                var stmts = new ArrayList<ImcStmt>(block.stmts.size());
+                for (var stmt : block.stmts) {
+                    var def = SsaForm.def(stmt);
+                    if (def != null && isConstant(def) && !needed.contains(def)) {
+                        continue;
+                    }
+                    stmts.add(rewrite(stmt));
+                }
+                block.stmts.clear();
+                block.stmts.addAll(stmts);
+            }
+        }
+
+        private ImcStmt rewrite(ImcStmt stmt) {
+            return switch (stmt) {
+                case ImcMOVE move when move.dst instanceof ImcMEM dst -> {
+                    var addr = rewrite(dst.addr);
+                    var src = rewrite(move.src);
+                    yield addr == dst.addr && src == move.src ? move : new ImcMOVE(new ImcMEM(addr, dst.size), src);
+                }
+                case ImcMOVE move -> {
+                    var src = rewrite(move.src);
+                    yield src == move.src ? move : new ImcMOVE(move.dst, src);
+                }
+                case ImcCJUMP cjump -> {
+                    var cond = value(cjump.cond);
+                    if (cond != null && cond.isPresent()) {
+                        foldedJumps++;
+                        yield new ImcJUMP(target(cjump, cond.getAsLong()));
+                    }
+                    var newCond = rewrite(cjump.cond);
+                    yield newCond == cjump.cond ? cjump : new ImcCJUMP(newCond, cjump.posLabel, cjump.negLabel);
+                }
+                case ImcESTMT eStmt -> {
+                    var expr = rewrite(eStmt.expr);
+                    yield expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+                }
+                default -> stmt;
+            };
+        }
+
+        private ImcExpr rewrite(ImcExpr expr) {
+            if (expr instanceof ImcCONST) {
+                return expr;
+            }
+            var value = value(expr);
+            if (value != null && value.isPresent()) {
+                return new ImcCONST(value.getAsLong());
+            }
+            return switch (expr) {
+                case ImcBINOP binOp -> {
+                    var fstExpr = rewrite(binOp.fstExpr);
+                    var sndExpr = rewrite(binOp.sndExpr);
+                    yield fstExpr == binOp.fstExpr && sndExpr == binOp.sndExpr ? binOp
+                            : new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+                }
+                case ImcUNOP unOp -> {
+                    var subExpr = rewrite(unOp.subExpr);
+                    yield subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+                }
+                case ImcMEM mem -> {
+                    var addr = rewrite(mem.addr);
+                    yield addr == mem.addr ? mem : new ImcMEM(addr, mem.size);
+                }
+                case ImcCALL call -> {
+                    var args = new ArrayList<ImcExpr>(call.args.size());
+                    var changed = false;
+                    for (var arg : call.args) {
+                        var newArg = rewrite(arg);
+                        changed |= newArg != arg;
+                        args.add(newArg);
+                    }
+                    yield changed ? new ImcCALL(call.label, call.offs, args) : call;
+                }
+                default -> expr;
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package lang24.phase.imclin;
+
+import lang24.common.report.Report;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcJUMP;
+import lang24.data.imc.code.stmt.ImcLABEL;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.mem.MemLabel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The control flow graph of linearized code.
+ * <p>
+ * A basic block starts with a label or with the statement following a jump,
+ * and ends with a jump or just before the next label, in which case control
+ * falls through to the next block. The blocks are kept in the order of the
+ * statements, so concatenating them yields the code again; the first block is
+ * the entry.
+ */
+public class ControlFlowGraph {
+
+    /**
+     * A basic block.
+     */
+    public static class Block {
+
+        /** The index of the block within the graph. */
+        public final int index;
+
+        /** The statements of the block. */
+        public final List<ImcStmt> stmts = new ArrayList<>();
+
+        /** The successors of the block. */
+        public final List<Block> succs = new ArrayList<>(2);
+
+        /** The predecessors of the block. */
+        public final List<Block> preds = new ArrayList<>(2);
+
+        private Block(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Returns the label the block starts with.
+         *
+         * @return The label (or {@code null} if the block does not start with one).
+         */
+        public MemLabel label() {
+            return !stmts.isEmpty() && stmts.getFirst() instanceof ImcLABEL label ? label.label : null;
+        }
+
+        /**
+         * Returns the jump the block ends with.
+         *
+         * @return The jump (or {@code null} if control falls through).
+         */
+        public ImcStmt jump() {
+            var last = stmts.isEmpty() ? null : stmts.getLast();
+            return last instanceof ImcJUMP || last instanceof ImcCJUMP ? last : null;
+        }
+
+        @Override
+        public String toString() {
+            var label = label();
+            return label != null ? label.name() : "#" + index;
+        }
+
+    }
+
+    /** The basic blocks in the order of the statements. */
+    public final List<Block> blocks = new ArrayList<>();
+
+    /**
+     * Constructs the control flow graph of linearized code.
+     *
+     * @param stmts The statements.
+     */
+    public ControlFlowGraph(List<ImcStmt> stmts) {
+        Block block = null;
+        var labelled = new HashMap<MemLabel, Block>();
+        for (var stmt : stmts) {
+            if (block == null || (stmt instanceof ImcLABEL && !block.stmts.isEmpty())) {
+                block = new Block(blocks.size());
+                blocks.add(block);
+            }
+            if (stmt instanceof ImcLABEL label) {
+                labelled.put(label.label, block);
+            }
+            block.stmts.add(stmt);
+            if (stmt instanceof ImcJUMP || stmt instanceof ImcCJUMP) {
+                block = null;
+            }
+        }
+
+        for (var from : blocks) {
+            switch (from.jump()) {
+                case ImcJUMP jump -> addEdge(from, labelled.get(jump.label));
+                case ImcCJUMP cjump -> {
+                    addEdge(from, labelled.get(cjump.posLabel));
+                    addEdge(from, labelled.get(cjump.negLabel));
+                }
+                case null, default -> {
+                    if (from.index + 1 < blocks.size()) {
+                        addEdge(from, blocks.get(from.index + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addEdge(Block from, Block to) {
+        if (to == null) {
+            // Jumps never leave the function body
+            throw new Report.InternalError();
+        }
+        if (!from.succs.contains(to)) {
+            from.succs.add(to);
+            to.preds.add(from);
+        }
+    }
+
+    /**
+     * Returns the statements of all blocks in order.
+     *
+     * @return The statements.
+     */
+    public List<ImcStmt> stmts() {
+        var stmts = new ArrayList<ImcStmt>();
+        for (var block : blocks) {
+            stmts.addAll(block.stmts);
+        }
+        return stmts;
+    }
+
+}
@@ -0,0 +1,318 @@
+package lang24.phase.imclin;
+
+import lang24.phase.imclin.ControlFlowGraph.Block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The dominator tree of a control flow graph.
+ * <p>
+ * Immediate dominators are computed by the algorithm of Lengauer and Tarjan
+ * (with path compression but without balancing), which numbers the blocks by a
+ * depth-first search from the entry, finds their semidominators in the reverse
+ * order of the numbers and derives the immediate dominators from them. Blocks
+ * not reachable from the entry are not part of the tree.
+ */
+public final class DominatorTree {
+
+    /** The control flow graph. */
+    public final ControlFlowGraph graph;
+
+    /** The immediate dominator of each block (or {@code null} for the entry and unreachable blocks). */
+    private final Block[] idoms;
+
+    /** The children of each block in the tree. */
+    private final List<List<Block>> children;
+
+    /** The reachable blocks in the depth-first order of the graph. */
+    private final List<Block> preorder = new ArrayList<>();
+
+    /** The number of each block in the preorder of the tree (-1 if unreachable). */
+    private final int[] treePre;
+
+    /** The number of each block in the postorder of the tree. */
+    private final int[] treePost;
+
+    /** The dominance frontier of each block (or {@code null} until needed). */
+    private List<List<Block>> frontiers = null;
+
+    /**
+     * Constructs the dominator tree of a control flow graph.
+     *
+     * @param graph The control flow graph.
+     */
+    public DominatorTree(ControlFlowGraph graph) {
+        this.graph = graph;
+        int numBlocks = graph.blocks.size();
+        idoms = new Block[numBlocks];
+        children = new ArrayList<>(numBlocks);
+        for (int b = 0; b < numBlocks; b++) {
+            children.add(new ArrayList<>(2));
+        }
+        treePre = new int[numBlocks];
+        treePost = new int[numBlocks];
+        Arrays.fill(treePre, -1);
+        if (numBlocks == 0) {
+            return;
+        }
+
+        computeIdoms();
+        for (var block : graph.blocks) {
+            var idom = idoms[block.index];
+            if (idom != null) {
+                children.get(idom.index).add(block);
+            }
+        }
+        numberTree();
+    }
+
+    /**
+     * Returns the entry of the graph, i.e., the root of the tree.
+     *
+     * @return The entry block.
+     */
+    public Block root() {
+        return graph.blocks.getFirst();
+    }
+
+    /**
+     * Returns the immediate dominator of a block.
+     *
+     * @param block The block.
+     * @return The immediate dominator (or {@code null} for the entry and unreachable blocks).
+     */
+    public Block idom(Block block) {
+        return idoms[block.index];
+    }
+
+    /**
+     * Returns the blocks immediately dominated by a block.
+     *
+     * @param block The block.
+     * @return The children of the block in the tree.
+     */
+    public List<Block> children(Block block) {
+        return children.get(block.index);
+    }
+
+    /**
+     * Returns whether a block is reachable from the entry.
+     *
+     * @param block The block.
+     * @return {@code true} if the block is reachable, {@code false} otherwise.
+     */
+    public boolean isReachable(Block block) {
+        return treePre[block.index] >= 0;
+    }
+
+    /**
+     * Returns whether a block dominates another one (every block dominates
+     * itself).
+     *
+     * @param dom   The dominating block.
+     * @param block The dominated block.
+     * @return {@code true} if {@code dom} dominates {@code block}, {@code false} otherwise.
+     */
+    public boolean dominates(Block dom, Block block) {
+        return isReachable(dom) && isReachable(block)
+                && treePre[dom.index] <= treePre[block.index] && treePost[block.index] <= treePost[dom.index];
+    }
+
+    /**
+     * Returns the dominance frontier of a block, i.e., the blocks that have a
+     * predecessor dominated by the block without being strictly dominated by
+     * it themselves.
+     *
+     * @param block The block.
+     * @return The dominance frontier of the block.
+     */
+    public List<Block> frontier(Block block) {
+        if (frontiers == null) {
+            computeFrontiers();
+        }
+        return frontiers.get(block.index);
+    }
+
+    private void computeFrontiers() {
+        frontiers = new ArrayList<>(graph.blocks.size());
+        for (int b = 0; b < graph.blocks.size(); b++) {
+            frontiers.add(new ArrayList<>(2));
+        }
+        // Walk up from the predecessors of each join until its immediate dominator
+        for (var join : preorder) {
+            if (join.preds.size() < 2) {
+                continue;
+            }
+            var idom = idom(join);
+            for (var pred : join.preds) {
+                for (var runner = pred; runner != null && runner != idom && isReachable(runner); runner = idom(runner)) {
+                    var frontier = frontiers.get(runner.index);
+                    if (!frontier.isEmpty() && frontier.getLast() == join) {
+                        break;
+                    }
+                    frontier.add(join);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the reachable blocks in the depth-first order of the graph, in
+     * which each block comes after its immediate dominator.
+     *
+     * @return The reachable blocks.
+     */
+    public List<Block> preorder() {
+        return preorder;
+    }
+
+    // The arrays below are indexed by depth-first numbers rather than blocks.
+
+    /** The parent of each vertex in the depth-first spanning tree. */
+    private int[] parent;
+
+    /** The semidominator of each vertex. */
+    private int[] semi;
+
+    /** The ancestor of each vertex in the forest built so far (or -1 if it is a root). */
+    private int[] ancestor;
+
+    /** The vertex with the least semidominator on the compressed path to each vertex. */
+    private int[] best;
+
+    private void computeIdoms() {
+        int numBlocks = graph.blocks.size();
+        var dfnum = new int[numBlocks];
+        Arrays.fill(dfnum, -1);
+        parent = new int[numBlocks];
+
+        // Depth-first numbering
+        var stack = new int[numBlocks + 1];
+        var next = new int[numBlocks];
+        int top = 0;
+        stack[top++] = 0;
+        dfnum[0] = 0;
+        preorder.add(graph.blocks.getFirst());
+        parent[0] = -1;
+        while (top > 0) {
+            var block = graph.blocks.get(stack[top - 1]);
+            if (next[block.index] == block.succs.size()) {
+                top--;
+                continue;
+            }
+            var succ = block.succs.get(next[block.index]++);
+            if (dfnum[succ.index] < 0) {
+                dfnum[succ.index] = preorder.size();
+                parent[preorder.size()] = dfnum[block.index];
+                preorder.add(succ);
+                stack[top++] = succ.index;
+            }
+        }
+
+        int numVertices = preorder.size();
+        semi = new int[numVertices];
+        ancestor = new int[numVertices];
+        best = new int[numVertices];
+        var idom = new int[numVertices];
+        var sameDom = new int[numVertices];
+        var bucketHead = new int[numVertices];
+        var bucketNext = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            semi[v] = v;
+            best[v] = v;
+            ancestor[v] = -1;
+            sameDom[v] = -1;
+            bucketHead[v] = -1;
+        }
+
+        for (int n = numVertices - 1; n > 0; n--) {
+            int p = parent[n];
+
+            // The semidominator is the least vertex reaching n along a path of greater vertices
+            int s = p;
+            for (var pred : preorder.get(n).preds) {
+                int v = dfnum[pred.index];
+                if (v < 0) {
+                    continue;
+                }
+                int candidate = v <= n ? v : semi[eval(v)];
+                if (candidate < s) {
+                    s = candidate;
+                }
+            }
+            semi[n] = s;
+            bucketNext[n] = bucketHead[s];
+            bucketHead[s] = n;
+            ancestor[n] = p;
+
+            // Vertices semidominated by p are immediately dominated by p or share it with another vertex
+            for (int v = bucketHead[p]; v >= 0; v = bucketNext[v]) {
+                int y = eval(v);
+                if (semi[y] == semi[v]) {
+                    idom[v] = p;
+                } else {
+                    sameDom[v] = y;
+                }
+            }
+            bucketHead[p] = -1;
+        }
+        for (int n = 1; n < numVertices; n++) {
+            if (sameDom[n] >= 0) {
+                idom[n] = idom[sameDom[n]];
+            }
+            idoms[preorder.get(n).index] = preorder.get(idom[n]);
+        }
+
+        parent = semi = ancestor = best = null;
+    }
+
+    /**
+     * Returns the vertex with the least semidominator on the path from a vertex
+     * up to (but excluding) the root of its tree in the forest, compressing the
+     * path on the way.
+     *
+     * @param v The vertex.
+     * @return The vertex with the least semidominator.
+     */
+    private int eval(int v) {
+        var path = new ArrayList<Integer>();
+        int x = v;
+        while (ancestor[x] >= 0 && ancestor[ancestor[x]] >= 0) {
+            path.add(x);
+            x = ancestor[x];
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            int y = path.get(i);
+            int a = ancestor[y];
+            if (semi[best[a]] < semi[best[y]]) {
+                best[y] = best[a];
+            }
+            ancestor[y] = ancestor[a];
+        }
+        return best[v];
+    }
+
+    private void numberTree() {
+        int pre = 0;
+        int post = 0;
+        var stack = new ArrayList<Block>();
+        var next = new int[graph.blocks.size()];
+        stack.add(root());
+        treePre[root().index] = pre++;
+        while (!stack.isEmpty()) {
+            var block = stack.getLast();
+            var kids = children(block);
+            if (next[block.index] == kids.size()) {
+                treePost[block.index] = post++;
+                stack.removeLast();
+                continue;
+            }
+            var kid = kids.get(next[block.index]++);
+            treePre[kid.index] = pre++;
+            stack.add(kid);
+        }
+    }
+
+}
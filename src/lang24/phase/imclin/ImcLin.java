@@ -1,6 +1,7 @@
 package lang24.phase.imclin;
 
 import java.util.*;
+import lang24.common.*;
 import lang24.data.lin.*;
 import lang24.phase.*;
 
@@ -10,10 +11,13 @@ import lang24.phase.*;
 public class ImcLin extends Phase {
 
 	/** All data chunks of the program. */
-	private final static Vector<LinDataChunk> dataChunks = new Vector<LinDataChunk>();
+	private final static CompilationLocal<Vector<LinDataChunk>> dataChunks = new CompilationLocal<>(Vector::new);
 
 	/** All code chinks of the program. */
-	private final static Vector<LinCodeChunk> codeChunks = new Vector<LinCodeChunk>();
+	private final static CompilationLocal<Vector<LinCodeChunk>> codeChunks = new CompilationLocal<>(Vector::new);
+
+	/** The numbers of statements of code chunks before value numbering. */
+	private final static CompilationLocal<IdentityHashMap<LinCodeChunk, Integer>> unnumberedSizes = new CompilationLocal<>(IdentityHashMap::new);
 
 	/**
 	 * Constructs a new phase for the linearization of intermediate code.
@@ -22,11 +26,24 @@ public class ImcLin extends Phase {
 		super("imclin");
 	}
 
+	@Override
+	public void close() {
+		stats.count("dataChunks", dataChunks.get().size());
+		stats.count("codeChunks", codeChunks.get().size());
+		for (LinCodeChunk codeChunk : codeChunks.get()) {
+			stats.count("imcStmts", codeChunk.stmts().size());
+			stats.max("maxImcStmtsPerChunk", codeChunk.stmts().size());
+		}
+		super.close();
+	}
+
 	public void log() {
+		if (logger == null)
+			return;
 		LinLogger linLogger = new LinLogger(logger);
-		for (LinDataChunk dataChunk : dataChunks)
+		for (LinDataChunk dataChunk : dataChunks.get())
 			linLogger.log(dataChunk);
-		for (LinCodeChunk codeChunk : codeChunks)
+		for (LinCodeChunk codeChunk : codeChunks.get())
 			linLogger.log(codeChunk);
 	}
 
@@ -36,7 +53,7 @@ public class ImcLin extends Phase {
 	 * @param dataChunk A data chunk.
 	 */
 	public static void addDataChunk(LinDataChunk dataChunk) {
-		dataChunks.add(dataChunk);
+		dataChunks.get().add(dataChunk);
 	}
 
 	/**
@@ -45,7 +62,7 @@ public class ImcLin extends Phase {
 	 * @return A collection of all data chunks of the program.
 	 */
 	public static Vector<LinDataChunk> dataChunks() {
-		return new Vector<LinDataChunk>(dataChunks);
+		return new Vector<LinDataChunk>(dataChunks.get());
 	}
 
 	/**
@@ -54,7 +71,7 @@ public class ImcLin extends Phase {
 	 * @param codeChunk A code chunk.
 	 */
 	public static void addCodeChunk(LinCodeChunk codeChunk) {
-		codeChunks.add(codeChunk);
+		codeChunks.get().add(codeChunk);
 	}
 
 	/**
@@ -63,7 +80,28 @@ public class ImcLin extends Phase {
 	 * @return A collection of all code chunks of the program.
 	 */
 	public static Vector<LinCodeChunk> codeChunks() {
-		return new Vector<LinCodeChunk>(codeChunks);
+		return new Vector<LinCodeChunk>(codeChunks.get());
+	}
+
+	/**
+	 * Records the number of statements of a code chunk before value numbering.
+	 * 
+	 * @param codeChunk A code chunk.
+	 * @param numStmts  The number of statements before value numbering.
+	 */
+	public static void setUnnumberedSize(LinCodeChunk codeChunk, int numStmts) {
+		unnumberedSizes.get().put(codeChunk, numStmts);
+	}
+
+	/**
+	 * Returns the number of statements of a code chunk before value numbering.
+	 * 
+	 * @param codeChunk A code chunk.
+	 * @return The number of statements before value numbering (or {@code null}
+	 *         if the chunk has not been numbered).
+	 */
+	public static Integer unnumberedSize(LinCodeChunk codeChunk) {
+		return unnumberedSizes.get().get(codeChunk);
 	}
 
 }
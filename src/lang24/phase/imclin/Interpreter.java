@@ -23,6 +23,8 @@ import lang24.data.lin.LinDataChunk;
 import lang24.data.mem.MemFrame;
 import lang24.data.mem.MemLabel;
 import lang24.data.mem.MemTemp;
+import lang24.data.type.SemCharType;
+import lang24.phase.memory.MemEvaluator;
 
 import java.util.Map;
 import java.util.Random;
@@ -78,9 +80,10 @@ public class Interpreter {
             this.dataMemLabels.put(dataChunk.label, tempLD(HP, false));
             if (dataChunk.init != null) {
                 // Save strings
+                long charSize = MemEvaluator.getSizeInBytes(SemCharType.type);
                 for (int c = 0; c < dataChunk.init.length(); c++)
-                    memST(tempLD(HP, false) + 8L * c, (long) dataChunk.init.charAt(c), false);
-                memST(tempLD(HP, false) + 8L * dataChunk.init.length(), 0L, false);
+                    memST(tempLD(HP, false) + charSize * c, (long) dataChunk.init.charAt(c), charSize, false);
+                memST(tempLD(HP, false) + charSize * dataChunk.init.length(), 0L, charSize, false);
             }
             tempST(HP, tempLD(HP, false) + dataChunk.size, debug);
         }
@@ -108,9 +111,13 @@ public class Interpreter {
     }
 
     private void memST(Long address, Long value, boolean debug) {
+        memST(address, value, 8L, debug);
+    }
+
+    private void memST(Long address, Long value, long size, boolean debug) {
         if (debug)
             System.out.printf("### [%s] <- %d(=%s)\n", toHex(address), value, toHex(value));
-        for (int b = 0; b <= 7; b++) {
+        for (int b = 0; b < size; b++) {
             long longval = value % 0x100;
             byte byteval = (byte) longval;
             memory.put(address + b, byteval);
@@ -123,8 +130,12 @@ public class Interpreter {
     }
 
     private Long memLD(Long address, boolean debug) {
+        return memLD(address, 8L, debug);
+    }
+
+    private Long memLD(Long address, long size, boolean debug) {
         long value = 0L;
-        for (int b = 7; b >= 0; b--) {
+        for (int b = (int) size - 1; b >= 0; b--) {
             Byte byteval = memory.get(address + b);
             if (byteval == null) {
                 byteval = (byte) (random.nextLong() / 0x100);
@@ -233,6 +244,8 @@ public class Interpreter {
                     return fstExpr / sndExpr;
                 case MOD:
                     return fstExpr % sndExpr;
+                case SHL:
+                    return fstExpr << sndExpr;
             }
             throw new Report.InternalError();
         }
@@ -249,7 +262,7 @@ public class Interpreter {
 
         @Override
         public Long visit(ImcMEM imcMem, Object arg) {
-            return memLD(imcMem.addr.accept(this, null));
+            return memLD(imcMem.addr.accept(this, null), imcMem.size, debug);
         }
 
         @Override
@@ -329,7 +342,7 @@ public class Interpreter {
                     src = memLD(tempLD(SP));
                 } else
                     src = imcMove.src.accept(new ExprInterpreter(), null);
-                memST(dst, src);
+                memST(dst, src, ((ImcMEM) (imcMove.dst)).size, debug);
                 return null;
             }
             if (imcMove.dst instanceof ImcTEMP) {
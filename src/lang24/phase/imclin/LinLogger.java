@@ -38,6 +38,11 @@ public class LinLogger implements AstNullVisitor<Object, String> {
 		logger.addAttribute("prologuelabel", codeChunk.frame().label.name());
 		logger.addAttribute("bodylabel", codeChunk.entryLabel().name());
 		logger.addAttribute("epiloguelabel", codeChunk.exitLabel().name());
+		Integer unnumberedSize = ImcLin.unnumberedSize(codeChunk);
+		if (unnumberedSize != null) {
+			logger.addAttribute("stmtsbefore", unnumberedSize.toString());
+			logger.addAttribute("stmtsafter", Integer.toString(codeChunk.stmts().size()));
+		}
 		codeChunk.frame().log(logger);
 		for (ImcStmt stmt : codeChunk.stmts()) {
 			logger.begElement("stmt");
@@ -0,0 +1,330 @@
+package lang24.phase.imclin;
+
+import lang24.common.report.Report;
+import lang24.data.imc.code.expr.ImcTEMP;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcJUMP;
+import lang24.data.imc.code.stmt.ImcLABEL;
+import lang24.data.imc.code.stmt.ImcMOVE;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.mem.MemLabel;
+import lang24.data.mem.MemTemp;
+import lang24.phase.imclin.ControlFlowGraph.Block;
+import lang24.phase.imclin.SsaForm.Phi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translation of linearized code out of SSA form.
+ * <p>
+ * Names are merged back into as few temporaries as possible: the names a phi
+ * node merges are grouped together, and groups split from the same temporary
+ * get the temporary's own name unless they interfere, i.e., one of them is
+ * assigned while another one is live. A phi node whose names end up as the same
+ * temporary disappears; otherwise its names are copied along each incoming
+ * edge, on a new block if the edge leaves a conditional jump. The copies along
+ * an edge are ordered so that no name is overwritten before it is copied, using
+ * a new temporary to break cycles.
+ */
+class SsaDestruction {
+
+    private final SsaForm ssa;
+
+    private final List<Block> blocks;
+
+    /** The names live at the end of each reachable block. */
+    private final Map<Block, Set<MemTemp>> liveOut = new HashMap<>();
+
+    /** The names interfering with each name split from the same temporary. */
+    private final Map<MemTemp, Set<MemTemp>> interferences = new HashMap<>();
+
+    /** The group of each name (by union-find). */
+    private final Map<MemTemp, MemTemp> groups = new HashMap<>();
+
+    /** The final temporary of each name. */
+    private final Map<MemTemp, MemTemp> finals = new HashMap<>();
+
+    SsaDestruction(SsaForm ssa) {
+        this.ssa = ssa;
+        this.blocks = ssa.tree().preorder();
+    }
+
+    List<ImcStmt> run() {
+        computeLiveness();
+        findInterferences();
+        mergeNames();
+
+        // Statements and copies of phi nodes of reachable blocks
+        var stmts = new HashMap<Block, List<ImcStmt>>();
+        for (var block : blocks) {
+            var renamed = new ArrayList<ImcStmt>(block.stmts.size());
+            for (var stmt : block.stmts) {
+                var newStmt = SsaForm.rename(stmt, this::finalName, this::finalName);
+                if (!(newStmt instanceof ImcMOVE move && move.dst instanceof ImcTEMP dst
+                        && move.src instanceof ImcTEMP src && dst.temp == src.temp)) {
+                    renamed.add(newStmt);
+                }
+            }
+            stmts.put(block, renamed);
+        }
+        var edgeBlocks = new HashMap<Block, List<ImcStmt>>();
+        var jumpEdgeBlocks = new ArrayList<ImcStmt>();
+        for (var block : blocks) {
+            for (int p = 0; p < block.preds.size(); p++) {
+                var pred = block.preds.get(p);
+                var copies = copies(block, p);
+                if (copies.isEmpty() || !ssa.tree().isReachable(pred)) {
+                    continue;
+                }
+                var predStmts = stmts.get(pred);
+                var last = predStmts.getLast();
+                if (!(last instanceof ImcCJUMP cjump)) {
+                    // The only successor of the predecessor
+                    predStmts.addAll(last instanceof ImcJUMP ? predStmts.size() - 1 : predStmts.size(), copies);
+                    continue;
+                }
+
+                var edgeLabel = new MemLabel();
+                var edgeBlock = new ArrayList<ImcStmt>();
+                edgeBlock.add(new ImcLABEL(edgeLabel));
+                edgeBlock.addAll(copies);
+                edgeBlock.add(new ImcJUMP(block.label()));
+                var target = block.label();
+                var newCJump = new ImcCJUMP(cjump.cond,
+                        cjump.posLabel == target ? edgeLabel : cjump.posLabel,
+                        cjump.negLabel == target ? edgeLabel : cjump.negLabel);
+                predStmts.set(predStmts.size() - 1, newCJump);
+                if (cjump.negLabel == target) {
+                    // The negative label must follow the conditional jump
+                    edgeBlocks.computeIfAbsent(pred, b -> new ArrayList<>()).addAll(edgeBlock);
+                } else {
+                    jumpEdgeBlocks.addAll(edgeBlock);
+                }
+            }
+        }
+
+        // Blocks on edges leaving conditional jumps go after the last block ending with an unconditional one
+        var newStmts = new ArrayList<ImcStmt>();
+        int afterJump = -1;
+        for (var block : ssa.graph.blocks) {
+            var blockStmts = stmts.getOrDefault(block, block.stmts);
+            newStmts.addAll(blockStmts);
+            newStmts.addAll(edgeBlocks.getOrDefault(block, List.of()));
+            if (!blockStmts.isEmpty() && blockStmts.getLast() instanceof ImcJUMP) {
+                afterJump = newStmts.size();
+            }
+        }
+        if (!jumpEdgeBlocks.isEmpty()) {
+            if (afterJump < 0) {
+                throw new Report.InternalError();
+            }
+            newStmts.addAll(afterJump, jumpEdgeBlocks);
+        }
+        return newStmts;
+    }
+
+    private MemTemp finalName(MemTemp name) {
+        return finals.getOrDefault(name, name);
+    }
+
+    // *** LIVENESS AND INTERFERENCE ***
+
+    private void computeLiveness() {
+        var liveIn = new HashMap<Block, Set<MemTemp>>();
+        for (var block : blocks) {
+            liveIn.put(block, new HashSet<>());
+            liveOut.put(block, new HashSet<>());
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                var block = blocks.get(b);
+                var out = liveOut.get(block);
+                for (var succ : block.succs) {
+                    out.addAll(liveIn.get(succ));
+                    for (var phi : ssa.phis(succ)) {
+                        var arg = phi.args.get(succ.preds.indexOf(block));
+                        if (arg != null) {
+                            out.add(arg);
+                        }
+                    }
+                }
+
+                var live = new HashSet<>(out);
+                for (var stmt : block.stmts.reversed()) {
+                    var def = SsaForm.def(stmt);
+                    if (def != null) {
+                        live.remove(def);
+                    }
+                    SsaForm.uses(stmt, live::add);
+                }
+                for (var phi : ssa.phis(block)) {
+                    live.remove(phi.target);
+                }
+                changed |= liveIn.get(block).addAll(live);
+            }
+        }
+    }
+
+    private void findInterferences() {
+        for (var block : blocks) {
+            var live = new HashSet<>(liveOut.get(block));
+            for (var stmt : block.stmts.reversed()) {
+                var def = SsaForm.def(stmt);
+                if (def != null) {
+                    live.forEach(name -> interfere(def, name));
+                    live.remove(def);
+                }
+                SsaForm.uses(stmt, live::add);
+            }
+            // Phi nodes assign their names at once
+            var targets = ssa.phis(block).stream().map(phi -> phi.target).toList();
+            live.addAll(targets);
+            for (var target : targets) {
+                live.forEach(name -> interfere(target, name));
+            }
+        }
+    }
+
+    private void interfere(MemTemp name, MemTemp other) {
+        if (name != other && ssa.original(name) == ssa.original(other)) {
+            interferences.computeIfAbsent(name, n -> new HashSet<>()).add(other);
+            interferences.computeIfAbsent(other, n -> new HashSet<>()).add(name);
+        }
+    }
+
+    private boolean interfere(List<MemTemp> names, List<MemTemp> others) {
+        for (var name : names) {
+            var interfering = interferences.getOrDefault(name, Set.of());
+            for (var other : others) {
+                if (interfering.contains(other)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // *** MERGING NAMES ***
+
+    private MemTemp group(MemTemp name) {
+        var group = groups.getOrDefault(name, name);
+        if (group != name) {
+            group = group(group);
+            groups.put(name, group);
+        }
+        return group;
+    }
+
+    private void mergeNames() {
+        // Names in the order of their assignments
+        var names = new LinkedHashMap<MemTemp, Boolean>();
+        for (var block : blocks) {
+            for (var phi : ssa.phis(block)) {
+                names.put(phi.target, true);
+                phi.args.forEach(arg -> {
+                    if (arg != null) {
+                        names.put(arg, true);
+                    }
+                });
+            }
+            for (var stmt : block.stmts) {
+                var def = SsaForm.def(stmt);
+                if (def != null) {
+                    names.put(def, true);
+                }
+            }
+        }
+
+        // Names merged by phi nodes form groups, unless some of them interfere
+        for (var block : blocks) {
+            for (var phi : ssa.phis(block)) {
+                for (var arg : phi.args) {
+                    if (arg != null) {
+                        groups.put(group(arg), group(phi.target));
+                    }
+                }
+            }
+        }
+        var members = new LinkedHashMap<MemTemp, List<MemTemp>>();
+        for (var name : names.keySet()) {
+            members.computeIfAbsent(group(name), g -> new ArrayList<>()).add(name);
+        }
+        var candidates = new ArrayList<List<MemTemp>>();
+        for (var group : members.values()) {
+            var interfering = false;
+            for (var name : group) {
+                interfering |= interfere(List.of(name), group);
+            }
+            if (interfering) {
+                group.forEach(name -> candidates.add(List.of(name)));
+            } else {
+                candidates.add(group);
+            }
+        }
+
+        // Groups get the name of the original temporary if they do not interfere with those that got it
+        // already (including the original temporary itself, which is used where no name has been assigned)
+        var named = new HashMap<MemTemp, List<MemTemp>>();
+        for (var group : candidates) {
+            var original = ssa.original(group.getFirst());
+            var sharing = named.computeIfAbsent(original, o -> new ArrayList<>(List.of(o)));
+            var name = interfere(group, sharing) ? group.getFirst() : original;
+            if (name == original) {
+                sharing.addAll(group);
+            }
+            group.forEach(member -> finals.put(member, name));
+        }
+    }
+
+    // *** COPIES ***
+
+    /**
+     * Returns the copies of phi nodes of a block along an incoming edge, ordered
+     * so that they can be executed one after another.
+     */
+    private List<ImcStmt> copies(Block block, int pred) {
+        var pending = new LinkedHashMap<MemTemp, MemTemp>();
+        for (Phi phi : ssa.phis(block)) {
+            var arg = phi.args.get(pred);
+            if (arg == null) {
+                continue;
+            }
+            var dst = finalName(phi.target);
+            var src = finalName(arg);
+            if (dst != src) {
+                pending.put(dst, src);
+            }
+        }
+
+        var copies = new ArrayList<ImcStmt>();
+        while (!pending.isEmpty()) {
+            MemTemp ready = null;
+            for (var dst : pending.keySet()) {
+                if (!pending.containsValue(dst)) {
+                    ready = dst;
+                    break;
+                }
+            }
+            if (ready == null) {
+                // A cycle: save a value before it is overwritten
+                var saved = pending.keySet().iterator().next();
+                var temp = new MemTemp();
+                copies.add(new ImcMOVE(new ImcTEMP(temp), new ImcTEMP(saved)));
+                pending.replaceAll((dst, src) -> src == saved ? temp : src);
+                continue;
+            }
+            copies.add(new ImcMOVE(new ImcTEMP(ready), new ImcTEMP(pending.remove(ready))));
+        }
+        return copies;
+    }
+
+}
@@ -0,0 +1,410 @@
+package lang24.phase.imclin;
+
+import lang24.common.report.Report;
+import lang24.data.imc.code.expr.ImcBINOP;
+import lang24.data.imc.code.expr.ImcCALL;
+import lang24.data.imc.code.expr.ImcCONST;
+import lang24.data.imc.code.expr.ImcExpr;
+import lang24.data.imc.code.expr.ImcMEM;
+import lang24.data.imc.code.expr.ImcNAME;
+import lang24.data.imc.code.expr.ImcTEMP;
+import lang24.data.imc.code.expr.ImcUNOP;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcESTMT;
+import lang24.data.imc.code.stmt.ImcMOVE;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.mem.MemTemp;
+import lang24.phase.imclin.ControlFlowGraph.Block;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Linearized code in static single assignment form.
+ * <p>
+ * Each temporary assigned within the code, apart from the pinned ones (such as
+ * the frame pointer and the return value, which are used outside of it), is
+ * split into names assigned exactly once. Phi nodes, kept aside from the
+ * statements of blocks, merge the names reaching a block along different
+ * edges; they are placed at the iterated dominance frontiers of assignments,
+ * but only for temporaries used in a block other than the one assigning them
+ * (semi-pruned form). A temporary used before it is assigned keeps its own
+ * name. Blocks not reachable from the entry are left as they are.
+ * <p>
+ * Optimizations may change the statements of blocks in place as long as each
+ * name is still assigned at most once and only where it dominates its uses;
+ * edges are removed by {@link #removeEdge(Block, Block)}, which keeps the
+ * arguments of phi nodes in line with the predecessors.
+ * <p>
+ * {@link #toStmts()} translates the code back into ordinary linearized code,
+ * which needs no further changes before instruction selection.
+ */
+public final class SsaForm {
+
+    /**
+     * A phi node.
+     */
+    public static class Phi {
+
+        /** The temporary the phi node merges names of. */
+        public final MemTemp original;
+
+        /** The name assigned by the phi node. */
+        public MemTemp target;
+
+        /**
+         * The names merged, in the order of predecessors of the block (or
+         * {@code null} for unreachable predecessors).
+         */
+        public final List<MemTemp> args;
+
+        Phi(MemTemp original, int numPreds) {
+            this.original = original;
+            this.target = original;
+            this.args = new ArrayList<>(numPreds);
+            for (int p = 0; p < numPreds; p++) {
+                args.add(null);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return target + " = PHI" + args;
+        }
+
+    }
+
+    /** The control flow graph, the statements of which are in SSA form. */
+    public final ControlFlowGraph graph;
+
+    /** The dominator tree of the graph (or {@code null} if edges have been removed since it was computed). */
+    private DominatorTree tree;
+
+    /** The temporaries that are not renamed. */
+    private final Set<MemTemp> pinned;
+
+    /** The phi nodes of each block. */
+    private final List<List<Phi>> phis = new ArrayList<>();
+
+    /** The temporary each name has been split from. */
+    private final Map<MemTemp, MemTemp> originals = new HashMap<>();
+
+    /**
+     * Translates linearized code into SSA form.
+     *
+     * @param stmts  The statements of a function body.
+     * @param pinned The temporaries that must not be renamed.
+     */
+    public SsaForm(List<ImcStmt> stmts, Collection<MemTemp> pinned) {
+        this.graph = new ControlFlowGraph(stmts);
+        this.tree = new DominatorTree(graph);
+        this.pinned = new HashSet<>(pinned);
+        for (var ignored : graph.blocks) {
+            phis.add(new ArrayList<>());
+        }
+        if (graph.blocks.isEmpty()) {
+            return;
+        }
+        placePhis();
+        rename();
+    }
+
+    /**
+     * Returns the dominator tree of the graph.
+     *
+     * @return The dominator tree.
+     */
+    public DominatorTree tree() {
+        if (tree == null) {
+            tree = new DominatorTree(graph);
+        }
+        return tree;
+    }
+
+    /**
+     * Removes an edge of the graph together with the arguments of phi nodes
+     * passed along it.
+     *
+     * @param from The block the edge leaves.
+     * @param to   The block the edge enters.
+     */
+    public void removeEdge(Block from, Block to) {
+        int pred = to.preds.indexOf(from);
+        if (pred < 0) {
+            throw new Report.InternalError();
+        }
+        to.preds.remove(pred);
+        from.succs.remove(to);
+        for (var phi : phis(to)) {
+            phi.args.remove(pred);
+        }
+        tree = null;
+    }
+
+    /**
+     * Returns the phi nodes of a block.
+     *
+     * @param block The block.
+     * @return The phi nodes.
+     */
+    public List<Phi> phis(Block block) {
+        return phis.get(block.index);
+    }
+
+    /**
+     * Returns the temporary a name has been split from.
+     *
+     * @param name The name.
+     * @return The original temporary (the name itself if it has not been split
+     * from another temporary).
+     */
+    public MemTemp original(MemTemp name) {
+        return originals.getOrDefault(name, name);
+    }
+
+    /**
+     * Translates the code back from SSA form.
+     *
+     * @return The statements of the function body.
+     */
+    public List<ImcStmt> toStmts() {
+        return new SsaDestruction(this).run();
+    }
+
+    // *** CONSTRUCTION ***
+
+    private void placePhis() {
+        // Temporaries used in a block before they are assigned in it and the blocks assigning them
+        var globals = new LinkedHashSet<MemTemp>();
+        var defBlocks = new LinkedHashMap<MemTemp, List<Block>>();
+        for (var block : tree().preorder()) {
+            var assigned = new HashSet<MemTemp>();
+            for (var stmt : block.stmts) {
+                uses(stmt, temp -> {
+                    if (!assigned.contains(temp) && !pinned.contains(temp)) {
+                        globals.add(temp);
+                    }
+                });
+                var def = def(stmt);
+                if (def != null && !pinned.contains(def)) {
+                    assigned.add(def);
+                    var blocks = defBlocks.computeIfAbsent(def, d -> new ArrayList<>());
+                    if (blocks.isEmpty() || blocks.getLast() != block) {
+                        blocks.add(block);
+                    }
+                }
+            }
+        }
+
+        for (var temp : globals) {
+            var work = new ArrayList<>(defBlocks.getOrDefault(temp, List.of()));
+            var inWork = new BitSet();
+            work.forEach(block -> inWork.set(block.index));
+            var hasPhi = new BitSet();
+            while (!work.isEmpty()) {
+                var block = work.removeLast();
+                for (var join : tree().frontier(block)) {
+                    if (hasPhi.get(join.index)) {
+                        continue;
+                    }
+                    hasPhi.set(join.index);
+                    phis(join).add(new Phi(temp, join.preds.size()));
+                    if (!inWork.get(join.index)) {
+                        inWork.set(join.index);
+                        work.add(join);
+                    }
+                }
+            }
+        }
+    }
+
+    private void rename() {
+        var names = new HashMap<MemTemp, ArrayDeque<MemTemp>>();
+        UnaryOperator<MemTemp> current = temp -> {
+            var stack = names.get(temp);
+            return stack == null || stack.isEmpty() ? temp : stack.peek();
+        };
+
+        // The blocks to enter, and the temporaries renamed in a block once it is left
+        var work = new ArrayDeque<Object>();
+        work.push(tree().root());
+        while (!work.isEmpty()) {
+            var top = work.pop();
+            if (top instanceof List<?> renamed) {
+                for (var temp : renamed) {
+                    names.get((MemTemp) temp).pop();
+                }
+                continue;
+            }
+            var block = (Block) top;
+            var renamed = new ArrayList<MemTemp>();
+            UnaryOperator<MemTemp> define = temp -> {
+                if (pinned.contains(temp)) {
+                    return temp;
+                }
+                var name = new MemTemp();
+                originals.put(name, temp);
+                names.computeIfAbsent(temp, t -> new ArrayDeque<>()).push(name);
+                renamed.add(temp);
+                return name;
+            };
+
+            for (var phi : phis(block)) {
+                phi.target = define.apply(phi.original);
+            }
+            block.stmts.replaceAll(stmt -> rename(stmt, current, define));
+            for (var succ : block.succs) {
+                int pred = succ.preds.indexOf(block);
+                for (var phi : phis(succ)) {
+                    phi.args.set(pred, current.apply(phi.original));
+                }
+            }
+
+            work.push(renamed);
+            var children = tree().children(block);
+            for (int c = children.size() - 1; c >= 0; c--) {
+                work.push(children.get(c));
+            }
+        }
+    }
+
+    // *** TEMPORARIES WITHIN STATEMENTS ***
+
+    /**
+     * Returns the temporary assigned by a statement.
+     *
+     * @param stmt The statement.
+     * @return The temporary assigned (or {@code null} if none is).
+     */
+    static MemTemp def(ImcStmt stmt) {
+        return stmt instanceof ImcMOVE move && move.dst instanceof ImcTEMP temp ? temp.temp : null;
+    }
+
+    /**
+     * Passes the temporaries used by a statement to a consumer.
+     *
+     * @param stmt The statement.
+     * @param use  The consumer.
+     */
+    static void uses(ImcStmt stmt, Consumer<MemTemp> use) {
+        switch (stmt) {
+            case ImcMOVE move -> {
+                if (move.dst instanceof ImcMEM mem) {
+                    uses(mem.addr, use);
+                }
+                uses(move.src, use);
+            }
+            case ImcCJUMP cjump -> uses(cjump.cond, use);
+            case ImcESTMT eStmt -> uses(eStmt.expr, use);
+            default -> {
+            }
+        }
+    }
+
+    private static void uses(ImcExpr expr, Consumer<MemTemp> use) {
+        switch (expr) {
+            case ImcTEMP temp -> use.accept(temp.temp);
+            case ImcBINOP binOp -> {
+                uses(binOp.fstExpr, use);
+                uses(binOp.sndExpr, use);
+            }
+            case ImcUNOP unOp -> uses(unOp.subExpr, use);
+            case ImcMEM mem -> uses(mem.addr, use);
+            case ImcCALL call -> call.args.forEach(arg -> uses(arg, use));
+            case ImcCONST ignored -> {
+            }
+            case ImcNAME ignored -> {
+            }
+            default -> throw new Report.InternalError();
+        }
+    }
+
+    /**
+     * Renames the temporaries of a statement; the uses are renamed before the
+     * temporary assigned.
+     *
+     * @param stmt The statement.
+     * @param uses The new names of temporaries used.
+     * @param defs The new name of the temporary assigned.
+     * @return The renamed statement (the statement itself if no name changes).
+     */
+    static ImcStmt rename(ImcStmt stmt, UnaryOperator<MemTemp> uses, UnaryOperator<MemTemp> defs) {
+        return switch (stmt) {
+            case ImcMOVE move when move.dst instanceof ImcTEMP dst -> {
+                var src = rename(move.src, uses);
+                var temp = defs.apply(dst.temp);
+                yield src == move.src && temp == dst.temp ? move : new ImcMOVE(new ImcTEMP(temp), src);
+            }
+            case ImcMOVE move when move.dst instanceof ImcMEM dst -> {
+                var addr = rename(dst.addr, uses);
+                var src = rename(move.src, uses);
+                yield addr == dst.addr && src == move.src ? move : new ImcMOVE(new ImcMEM(addr, dst.size), src);
+            }
+            case ImcCJUMP cjump -> {
+                var cond = rename(cjump.cond, uses);
+                yield cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel);
+            }
+            case ImcESTMT eStmt -> {
+                var expr = rename(eStmt.expr, uses);
+                yield expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+            }
+            case ImcMOVE ignored -> throw new Report.InternalError();
+            default -> stmt;
+        };
+    }
+
+    /**
+     * Renames the temporaries of an expression.
+     *
+     * @param expr  The expression.
+     * @param names The new names of temporaries.
+     * @return The renamed expression (the expression itself if no name changes).
+     */
+    static ImcExpr rename(ImcExpr expr, UnaryOperator<MemTemp> names) {
+        return switch (expr) {
+            case ImcTEMP temp -> {
+                var name = names.apply(temp.temp);
+                yield name == temp.temp ? temp : new ImcTEMP(name);
+            }
+            case ImcBINOP binOp -> {
+                var fstExpr = rename(binOp.fstExpr, names);
+                var sndExpr = rename(binOp.sndExpr, names);
+                yield fstExpr == binOp.fstExpr && sndExpr == binOp.sndExpr ? binOp
+                        : new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+            }
+            case ImcUNOP unOp -> {
+                var subExpr = rename(unOp.subExpr, names);
+                yield subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+            }
+            case ImcMEM mem -> {
+                var addr = rename(mem.addr, names);
+                yield addr == mem.addr ? mem : new ImcMEM(addr, mem.size);
+            }
+            case ImcCALL call -> {
+                var args = new ArrayList<ImcExpr>(call.args.size());
+                var changed = false;
+                for (var arg : call.args) {
+                    var newArg = rename(arg, names);
+                    changed |= newArg != arg;
+                    args.add(newArg);
+                }
+                yield changed ? new ImcCALL(call.label, call.offs, args) : call;
+            }
+            case ImcCONST ignored -> expr;
+            case ImcNAME ignored -> expr;
+            default -> throw new Report.InternalError();
+        };
+    }
+
+}
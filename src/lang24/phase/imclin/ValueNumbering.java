@@ -0,0 +1,427 @@
+package lang24.phase.imclin;
+
+import lang24.common.report.Report;
+import lang24.data.imc.code.expr.ImcBINOP;
+import lang24.data.imc.code.expr.ImcCALL;
+import lang24.data.imc.code.expr.ImcCONST;
+import lang24.data.imc.code.expr.ImcExpr;
+import lang24.data.imc.code.expr.ImcMEM;
+import lang24.data.imc.code.expr.ImcNAME;
+import lang24.data.imc.code.expr.ImcTEMP;
+import lang24.data.imc.code.expr.ImcUNOP;
+import lang24.data.imc.code.stmt.ImcCJUMP;
+import lang24.data.imc.code.stmt.ImcESTMT;
+import lang24.data.imc.code.stmt.ImcMOVE;
+import lang24.data.imc.code.stmt.ImcStmt;
+import lang24.data.mem.MemTemp;
+import lang24.phase.imclin.ControlFlowGraph.Block;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Common subexpression elimination by dominator-based value numbering of
+ * linearized code.
+ * <p>
+ * Each operation, memory load and constant gets a value number computed from
+ * the value numbers of its operands, so equal numbers denote equal values. The
+ * blocks are numbered along the dominator tree: the values available at the
+ * start of a block are those available at the end of its immediate dominator,
+ * except for temporaries assigned and memory written on paths between the two.
+ * An operation or load whose value is available already is replaced by a
+ * temporary holding it, either the temporary the first occurrence has been
+ * moved to or a new one the first occurrence is moved to right before its
+ * statement. A store or a call changes the number of every load after it.
+ * <p>
+ * Temporaries are not in SSA form, so a value number is bound to a temporary
+ * only until the temporary is assigned again; the first occurrence is moved to
+ * a new temporary if its own one is reassigned before the value is reused. As
+ * the decision has to be made at the first occurrence, each chunk is numbered
+ * twice: first to find the values to be reused and then to rewrite the code.
+ */
+public class ValueNumbering {
+
+    /**
+     * The number of operations and loads replaced so far.
+     */
+    private long reusedExprs = 0;
+
+    /**
+     * Eliminates common subexpressions from linearized code.
+     *
+     * @param stmts The statements of a function body.
+     * @return The new statements of the function body.
+     */
+    public List<ImcStmt> number(List<ImcStmt> stmts) {
+        var graph = new ControlFlowGraph(stmts);
+        var tree = new DominatorTree(graph);
+        var kills = new Kills(tree);
+
+        var analysis = new Numbering(tree, kills, null);
+        analysis.run();
+        var rewriting = new Numbering(tree, kills, analysis.hoisted);
+        rewriting.run();
+        reusedExprs += rewriting.reused;
+
+        return graph.stmts();
+    }
+
+    /**
+     * Returns the number of operations and loads replaced in all chunks so far.
+     *
+     * @return The number of replaced operations and loads.
+     */
+    public long reusedExprs() {
+        return reusedExprs;
+    }
+
+    /**
+     * The temporaries assigned and whether memory is written on the paths from
+     * the immediate dominator of each block to the block.
+     */
+    private static class Kills {
+
+        /** The temporaries assigned on the paths to each block. */
+        final List<Set<MemTemp>> temps = new ArrayList<>();
+
+        /** Whether memory is written on the paths to each block. */
+        final BitSet memory = new BitSet();
+
+        Kills(DominatorTree tree) {
+            var blocks = tree.graph.blocks;
+            var assigned = new ArrayList<Set<MemTemp>>();
+            var writes = new BitSet();
+            for (var block : blocks) {
+                var temps = new HashSet<MemTemp>();
+                for (var stmt : block.stmts) {
+                    if (stmt instanceof ImcMOVE move && move.dst instanceof ImcTEMP temp) {
+                        temps.add(temp.temp);
+                    }
+                    if (stmt instanceof ImcMOVE move && move.dst instanceof ImcMEM || containsCall(stmt)) {
+                        writes.set(block.index);
+                    }
+                }
+                assigned.add(temps);
+            }
+
+            for (var block : blocks) {
+                var temps = new HashSet<MemTemp>();
+                this.temps.add(temps);
+                var idom = tree.idom(block);
+                if (idom == null || block.preds.size() == 1 && block.preds.getFirst() == idom) {
+                    continue;
+                }
+
+                // Blocks between the immediate dominator and the block
+                var from = reach(idom.succs, idom, true);
+                var to = reach(block.preds, idom, false);
+                from.and(to);
+                for (int b = from.nextSetBit(0); b >= 0; b = from.nextSetBit(b + 1)) {
+                    temps.addAll(assigned.get(b));
+                    if (writes.get(b)) {
+                        memory.set(block.index);
+                    }
+                }
+            }
+        }
+
+        private static BitSet reach(List<Block> start, Block barrier, boolean forward) {
+            var reached = new BitSet();
+            var work = new ArrayList<Block>();
+            for (var block : start) {
+                if (block != barrier && !reached.get(block.index)) {
+                    reached.set(block.index);
+                    work.add(block);
+                }
+            }
+            while (!work.isEmpty()) {
+                var block = work.removeLast();
+                for (var next : forward ? block.succs : block.preds) {
+                    if (next != barrier && !reached.get(next.index)) {
+                        reached.set(next.index);
+                        work.add(next);
+                    }
+                }
+            }
+            return reached;
+        }
+
+        private static boolean containsCall(ImcStmt stmt) {
+            return switch (stmt) {
+                case ImcMOVE move -> move.src instanceof ImcCALL;
+                case ImcESTMT eStmt -> eStmt.expr instanceof ImcCALL;
+                default -> false;
+            };
+        }
+
+    }
+
+    /**
+     * The key of a value: an operator together with the value numbers (or
+     * other attributes) of its operands.
+     */
+    private record Key(Object oper, long fst, long snd, long thd) {
+    }
+
+    private enum Tag {
+        CONST, MEM
+    }
+
+    /**
+     * An available value.
+     */
+    private static class Avail {
+
+        /** The index of the first occurrence within the chunk. */
+        final int index;
+
+        /** The temporary the first occurrence is moved to by its statement (or {@code null}). */
+        final MemTemp holder;
+
+        /** The new temporary the first occurrence is moved to (or {@code null}). */
+        MemTemp temp;
+
+        Avail(int index, MemTemp holder) {
+            this.index = index;
+            this.holder = holder;
+        }
+
+    }
+
+    /**
+     * The values known at a point of a chunk.
+     */
+    private static class State {
+
+        /** The value number of each temporary. */
+        final HashMap<MemTemp, Integer> temps;
+
+        /** The available values by their value numbers. */
+        final HashMap<Integer, Avail> avails;
+
+        /** The version of memory, part of the keys of loads. */
+        int memory;
+
+        State(HashMap<MemTemp, Integer> temps, HashMap<Integer, Avail> avails, int memory) {
+            this.temps = temps;
+            this.avails = avails;
+            this.memory = memory;
+        }
+
+        State copy() {
+            return new State(new HashMap<>(temps), new HashMap<>(avails), memory);
+        }
+
+    }
+
+    /**
+     * A single numbering of a chunk.
+     */
+    private static class Numbering {
+
+        final DominatorTree tree;
+
+        final Kills kills;
+
+        /**
+         * The first occurrences moved to new temporaries (or {@code null} while
+         * the chunk is analyzed rather than rewritten).
+         */
+        final BitSet toHoist;
+
+        /** The first occurrences that have to be moved to new temporaries. */
+        final BitSet hoisted = new BitSet();
+
+        /** The value numbers of keys. */
+        final HashMap<Key, Integer> numbers = new HashMap<>();
+
+        /** The number of values. */
+        int numValues = 0;
+
+        /** The number of first occurrences. */
+        int numAvails = 0;
+
+        /** The number of replaced operations and loads. */
+        long reused = 0;
+
+        /** The statements inserted before the current statement. */
+        List<ImcStmt> hoists;
+
+        Numbering(DominatorTree tree, Kills kills, BitSet toHoist) {
+            this.tree = tree;
+            this.kills = kills;
+            this.toHoist = toHoist;
+        }
+
+        void run() {
+            if (tree.graph.blocks.isEmpty()) {
+                return;
+            }
+            var work = new ArrayList<Block>();
+            var states = new HashMap<Block, State>();
+            work.add(tree.root());
+            states.put(tree.root(), new State(new HashMap<>(), new HashMap<>(), fresh()));
+            while (!work.isEmpty()) {
+                var block = work.removeLast();
+                var state = states.remove(block);
+                number(block, state);
+                var children = tree.children(block);
+                for (int c = children.size() - 1; c >= 0; c--) {
+                    var child = children.get(c);
+                    var childState = c == 0 ? state : state.copy();
+                    for (var temp : kills.temps.get(child.index)) {
+                        childState.temps.put(temp, fresh());
+                    }
+                    if (kills.memory.get(child.index)) {
+                        childState.memory = fresh();
+                    }
+                    states.put(child, childState);
+                    work.add(child);
+                }
+            }
+        }
+
+        int fresh() {
+            return numValues++;
+        }
+
+        void number(Block block, State state) {
+            var stmts = new ArrayList<ImcStmt>(block.stmts.size());
+            for (var stmt : block.stmts) {
+                hoists = stmts;
+                var newStmt = switch (stmt) {
+                    case ImcMOVE move when move.dst instanceof ImcTEMP dst -> {
+                        var src = number(move.src, state, dst.temp);
+                        state.temps.put(dst.temp, src.number);
+                        if (src.expr instanceof ImcTEMP temp && temp.temp == dst.temp) {
+                            // The temporary holds the value already
+                            yield null;
+                        }
+                        yield src.expr == move.src ? move : new ImcMOVE(move.dst, src.expr);
+                    }
+                    case ImcMOVE move when move.dst instanceof ImcMEM dst -> {
+                        var addr = number(dst.addr, state, null);
+                        var src = number(move.src, state, null);
+                        state.memory = fresh();
+                        yield addr.expr == dst.addr && src.expr == move.src ? move
+                                : new ImcMOVE(new ImcMEM(addr.expr, dst.size), src.expr);
+                    }
+                    case ImcCJUMP cjump -> {
+                        var cond = number(cjump.cond, state, null);
+                        yield cond.expr == cjump.cond ? cjump : new ImcCJUMP(cond.expr, cjump.posLabel, cjump.negLabel);
+                    }
+                    case ImcESTMT eStmt -> {
+                        var expr = number(eStmt.expr, state, null);
+                        yield expr.expr == eStmt.expr ? eStmt : new ImcESTMT(expr.expr);
+                    }
+                    case ImcMOVE ignored -> throw new Report.InternalError();
+                    default -> stmt;
+                };
+                if (newStmt != null) {
+                    stmts.add(newStmt);
+                }
+            }
+            if (toHoist != null) {
+                block.stmts.clear();
+                block.stmts.addAll(stmts);
+            }
+        }
+
+        /**
+         * Numbers an expression.
+         *
+         * @param expr   The expression.
+         * @param state  The values known before the expression.
+         * @param holder The temporary the expression is moved to (or {@code null}).
+         * @return The value number and the expression using available values.
+         */
+        Value number(ImcExpr expr, State state, MemTemp holder) {
+            return switch (expr) {
+                case ImcCONST constant -> new Value(number(new Key(Tag.CONST, constant.value, 0, 0)), expr);
+                case ImcNAME name -> new Value(number(new Key(name.label, 0, 0, 0)), expr);
+                case ImcTEMP temp -> new Value(state.temps.computeIfAbsent(temp.temp, t -> fresh()), expr);
+                case ImcBINOP binOp -> {
+                    var fst = number(binOp.fstExpr, state, null);
+                    var snd = number(binOp.sndExpr, state, null);
+                    var commutative = switch (binOp.oper) {
+                        case OR, AND, EQU, NEQ, ADD, MUL -> true;
+                        default -> false;
+                    };
+                    var key = commutative && snd.number < fst.number
+                            ? new Key(binOp.oper, snd.number, fst.number, 0)
+                            : new Key(binOp.oper, fst.number, snd.number, 0);
+                    var newExpr = fst.expr == binOp.fstExpr && snd.expr == binOp.sndExpr ? binOp
+                            : new ImcBINOP(binOp.oper, fst.expr, snd.expr);
+                    yield reuse(key, newExpr, state, holder);
+                }
+                case ImcUNOP unOp -> {
+                    var sub = number(unOp.subExpr, state, null);
+                    var newExpr = sub.expr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, sub.expr);
+                    yield reuse(new Key(unOp.oper, sub.number, 0, 0), newExpr, state, holder);
+                }
+                case ImcMEM mem -> {
+                    var addr = number(mem.addr, state, null);
+                    var newExpr = addr.expr == mem.addr ? mem : new ImcMEM(addr.expr, mem.size);
+                    yield reuse(new Key(Tag.MEM, mem.size, addr.number, state.memory), newExpr, state, holder);
+                }
+                case ImcCALL call -> {
+                    var args = new ArrayList<ImcExpr>(call.args.size());
+                    var changed = false;
+                    for (var arg : call.args) {
+                        var newArg = number(arg, state, null).expr;
+                        changed |= newArg != arg;
+                        args.add(newArg);
+                    }
+                    state.memory = fresh();
+                    yield new Value(fresh(), changed ? new ImcCALL(call.label, call.offs, args) : call);
+                }
+                default -> throw new Report.InternalError();
+            };
+        }
+
+        int number(Key key) {
+            return numbers.computeIfAbsent(key, k -> fresh());
+        }
+
+        /**
+         * Replaces an operation or a load by a temporary holding its value if it
+         * is available, or makes it available otherwise.
+         */
+        Value reuse(Key key, ImcExpr expr, State state, MemTemp holder) {
+            int number = number(key);
+            var avail = state.avails.get(number);
+            if (avail == null) {
+                avail = new Avail(numAvails++, holder);
+                state.avails.put(number, avail);
+                if (toHoist != null && toHoist.get(avail.index)) {
+                    avail.temp = new MemTemp();
+                    hoists.add(new ImcMOVE(new ImcTEMP(avail.temp), expr));
+                    return new Value(number, new ImcTEMP(avail.temp));
+                }
+                return new Value(number, expr);
+            }
+
+            if (toHoist != null) {
+                reused++;
+                if (avail.temp != null) {
+                    return new Value(number, new ImcTEMP(avail.temp));
+                }
+            } else if (avail.holder == null || !state.temps.get(avail.holder).equals(number)) {
+                hoisted.set(avail.index);
+            }
+            return new Value(number, avail.holder != null ? new ImcTEMP(avail.holder) : expr);
+        }
+
+    }
+
+    /**
+     * The value number of an expression and the expression using available values.
+     */
+    private record Value(int number, ImcExpr expr) {
+    }
+
+}
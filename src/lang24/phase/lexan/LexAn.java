@@ -15,25 +15,61 @@ public class LexAn extends Phase {
 	/** The ANTLR lexer that actually performs lexical analysis. */
 	public final Lang24Lexer lexer;
 
+	/** The number of tokens lexed so far. */
+	private long numTokens = 0;
+
 	/**
-	 * Phase construction: sets up logging and the ANTLR lexer.
+	 * Phase construction: sets up logging and the ANTLR lexer. Tokens are logged
+	 * by the token factory only if this phase is being logged.
 	 */
 	public LexAn() {
 		super("lexan");
 
 		final String srcFileName = lang24.Compiler.cmdLineOptValue("--src-file-name");
 		try {
-			lexer = new Lang24Lexer(CharStreams.fromFileName(srcFileName));
-			lexer.setTokenFactory(new LocLogTokenFactory());
+			lexer = new Lang24Lexer(new MappedCharStream(srcFileName));
+			lexer.setTokenFactory(logger == null ? new LocTokenFactory() : new LocLogTokenFactory());
 		} catch (IOException __) {
 			throw new Report.Error("Cannot open file '" + srcFileName + "'.");
 		}
 	}
 
+	@Override
+	public void close() {
+		stats.count("tokens", numTokens);
+		super.close();
+	}
+
+	/**
+	 * A customized token factory used if tokens are not logged.
+	 */
+	private class LocTokenFactory implements TokenFactory<LocLogToken> {
+
+		/**
+		 * Constructs a new token factory.
+		 */
+		private LocTokenFactory() {
+			super();
+		}
+
+		@Override
+		public LocLogToken create(int type, String text) {
+			numTokens++;
+			return new LocLogToken(type, text);
+		}
+
+		@Override
+		public LocLogToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel, int start,
+				int stop, int line, int charPositionInLine) {
+			numTokens++;
+			return new LocLogToken(source, type, channel, start, stop);
+		}
+	}
+
 	/**
 	 * A customized token factory which logs tokens.
 	 */
-	private class LocLogTokenFactory implements TokenFactory<LocLogToken> {
+	private class LocLogTokenFactory extends LocTokenFactory {
 
 		/**
 		 * Constructs a new token factory.
@@ -44,7 +80,7 @@ public class LexAn extends Phase {
 
 		@Override
 		public LocLogToken create(int type, String text) {
-			LocLogToken token = new LocLogToken(type, text);
+			LocLogToken token = super.create(type, text);
 			token.log(logger);
 			return token;
 		}
@@ -52,7 +88,7 @@ public class LexAn extends Phase {
 		@Override
 		public LocLogToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel, int start,
 				int stop, int line, int charPositionInLine) {
-			LocLogToken token = new LocLogToken(source, type, channel, start, stop);
+			LocLogToken token = super.create(source, type, text, channel, start, stop, line, charPositionInLine);
 			token.log(logger);
 			return token;
 		}
@@ -0,0 +1,114 @@
+package lang24.phase.lexan;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * A character stream reading a source file through a memory mapped buffer.
+ * <p>
+ * LANG'24 source files are ASCII (or Latin-1 at most), so each byte of the file
+ * is a single character and the file need not be decoded into an array of code
+ * points on the heap.
+ */
+public class MappedCharStream implements CharStream {
+
+	/** The contents of the source file. */
+	private final MappedByteBuffer buffer;
+
+	/** The size of the source file. */
+	private final int size;
+
+	/** The name of the source file. */
+	private final String sourceName;
+
+	/** The index of the next character. */
+	private int position = 0;
+
+	/**
+	 * Maps a source file into memory.
+	 *
+	 * @param fileName The name of the source file.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	public MappedCharStream(final String fileName) throws IOException {
+		try (final FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("File too large.");
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		this.size = buffer.capacity();
+		this.sourceName = fileName;
+	}
+
+	@Override
+	public void consume() {
+		if (position >= size)
+			throw new IllegalStateException("cannot consume EOF");
+		position++;
+	}
+
+	@Override
+	public int LA(final int i) {
+		final int index;
+		if (i > 0)
+			index = position + i - 1;
+		else if (i < 0)
+			index = position + i;
+		else
+			return 0;
+		if (index < 0 || index >= size)
+			return IntStream.EOF;
+		return buffer.get(index) & 0xFF;
+	}
+
+	@Override
+	public int mark() {
+		return -1;
+	}
+
+	@Override
+	public void release(final int marker) {
+	}
+
+	@Override
+	public int index() {
+		return position;
+	}
+
+	@Override
+	public void seek(final int index) {
+		position = index;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String getSourceName() {
+		return sourceName;
+	}
+
+	@Override
+	public String getText(final Interval interval) {
+		final int start = Math.min(interval.a, size);
+		final int length = Math.min(interval.b - interval.a + 1, size - start);
+		if (length <= 0)
+			return "";
+		final byte[] bytes = new byte[length];
+		buffer.get(start, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public String toString() {
+		return getText(Interval.of(0, size - 1));
+	}
+
+}
@@ -1,10 +1,15 @@
 package lang24.phase.livean;
 
+import lang24.cache.*;
+import lang24.common.*;
+import lang24.common.jfr.*;
 import lang24.data.mem.*;
 import lang24.data.asm.*;
 import lang24.phase.*;
 import lang24.phase.asmgen.*;
 
+import java.util.*;
+
 /**
  * Liveness analysis.
  */
@@ -14,17 +19,37 @@ public class LiveAn extends Phase {
 		super("livean");
 	}
 
+	/**
+	 * Analyses all functions in parallel (except those taken from the code cache,
+	 * which are already register allocated).
+	 */
 	public void analysis() {
-		for (Code code : AsmGen.codes) {
-			var liveAnAlyser = new LiveAnAlyser(code.instrs);
-			liveAnAlyser.analyzeAll();
+		final CodeCache cache = CodeCache.current();
+		final List<Integer> iterations = Compilation.current().parallelMap(AsmGen.codes.get(),
+				code -> {
+					if (cache != null && cache.isCached(code))
+						return 0;
+					final LivenessEvent event = new LivenessEvent();
+					event.begin();
+					final int codeIterations = new LiveAnAlyser(code.instrs).analyzeAll();
+					if (event.shouldCommit()) {
+						event.function = code.frame.label.name();
+						event.numInstrs = code.instrs.size();
+						event.iterations = codeIterations;
+						event.commit();
+					}
+					return codeIterations;
+				});
+		for (int codeIterations : iterations) {
+			stats.count("iterations", codeIterations);
+			stats.max("maxIterationsPerCode", codeIterations);
 		}
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : AsmGen.codes.get()) {
 			logger.begElement("code");
 			logger.addAttribute("prologue", code.entryLabel.name());
 			logger.addAttribute("body", code.entryLabel.name());
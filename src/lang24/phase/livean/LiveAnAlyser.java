@@ -20,7 +20,12 @@ public class LiveAnAlyser {
         this.instrs = instr;
     }
 
-    public void analyzeAll() {
+    /**
+     * Computes the in and out sets of all instructions.
+     *
+     * @return The number of iterations needed to reach the fixed point.
+     */
+    public int analyzeAll() {
         // Clear all ins and outs first
         for (var instr : this.instrs) {
             if (instr instanceof AsmOPER oper) {
@@ -31,12 +36,15 @@ public class LiveAnAlyser {
 
         // Backward analysis
         boolean changed;
+        int iterations = 0;
         do {
             changed = false;
             for (int i = this.instrs.size() - 1; i >= 0; --i) {
                 changed |= analyze(i);
             }
+            ++iterations;
         } while (changed);
+        return iterations;
     }
 
 
@@ -14,6 +14,7 @@ import lang24.data.ast.visitor.AstFullVisitor;
 import lang24.data.mem.MemAbsAccess;
 import lang24.data.mem.MemFrame;
 import lang24.data.mem.MemLabel;
+import lang24.data.mem.MemLayout;
 import lang24.data.mem.MemRelAccess;
 import lang24.data.type.SemArrayType;
 import lang24.data.type.SemBoolType;
@@ -37,6 +38,18 @@ import static java.lang.Math.max;
  * @author bostjan.slivnik@fri.uni-lj.si
  */
 public class MemEvaluator implements AstFullVisitor<Void, Integer> {
+    /**
+     * The layout of the void type.
+     */
+    private static final MemLayout VOID_LAYOUT = new MemLayout(0, 8, new long[0]);
+    /**
+     * The layout of atomic and pointer types.
+     */
+    private static final MemLayout WORD_LAYOUT = new MemLayout(8, 8, new long[0]);
+    /**
+     * The layout of chars and bools if packed (see {@link Memory#packed}).
+     */
+    private static final MemLayout BYTE_LAYOUT = new MemLayout(1, 1, new long[0]);
     /**
      * Size of static link in bytes.
      */
@@ -59,42 +72,116 @@ public class MemEvaluator implements AstFullVisitor<Void, Integer> {
      * @return The size of the type in bytes.
      */
     public static long getSizeInBytes(SemType type) {
+        return layout(type).size;
+    }
+
+
+    /**
+     * Gets the layout of a type. Layouts of array and record types are computed
+     * once per compilation (see {@link Memory#layouts}).
+     *
+     * @param type The type to get the layout of.
+     * @return The layout of the type.
+     */
+    public static MemLayout layout(SemType type) {
+        switch (type) {
+            case SemVoidType ignored -> {
+                return VOID_LAYOUT;
+            }
+            case SemPointerType ignored -> {
+                return WORD_LAYOUT;
+            }
+            case SemIntType ignored -> {
+                return WORD_LAYOUT;
+            }
+            case SemBoolType ignored -> {
+                return Memory.packed.get() ? BYTE_LAYOUT : WORD_LAYOUT;
+            }
+            case SemCharType ignored -> {
+                return Memory.packed.get() ? BYTE_LAYOUT : WORD_LAYOUT;
+            }
+            case null -> throw new Report.InternalError();
+            default -> {
+            }
+        }
+
+        // Not computeIfAbsent: computing a layout looks up layouts of components.
+        var layouts = Memory.layouts.get();
+        var layout = layouts.get(type);
+        if (layout == null) {
+            layout = computeLayout(type);
+            layouts.putIfAbsent(type, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Computes the layout of an array or a record type. Components and elements
+     * are aligned to their own alignments, and the size of a record includes the
+     * padding needed to align the record itself. As all types take a multiple of
+     * 8 bytes unless packed, every component and element is then 8-byte aligned.
+     *
+     * @param type The type to compute the layout of.
+     * @return The layout of the type.
+     */
+    private static MemLayout computeLayout(SemType type) {
         return switch (type) {
-            case SemVoidType ignored -> 0;
-            case SemPointerType ignored -> 8;
-            case SemIntType ignored -> 8;
-            case SemBoolType ignored -> 8;
-            case SemCharType ignored -> 8;
             case SemStructType semStructType -> {
+                var offsets = new long[semStructType.cmpTypes.size()];
                 long size = 0;
-                for (var cmp : semStructType.cmpTypes) {
-                    size += getRoundedSizeInBytes(cmp);
+                long alignment = 1;
+                for (int i = 0; i < offsets.length; i++) {
+                    var cmpLayout = layout(semStructType.cmpTypes.get(i));
+                    offsets[i] = alignTo(size, cmpLayout.alignment);
+                    size = offsets[i] + cmpLayout.roundedSize();
+                    alignment = max(alignment, cmpLayout.alignment);
                 }
-                yield size;
+                yield new MemLayout(alignTo(size, alignment), alignment, offsets);
             }
             case SemUnionType semUnionType -> {
+                var offsets = new long[semUnionType.cmpTypes.size()];
                 long size = 0;
+                long alignment = 1;
                 for (var cmp : semUnionType.cmpTypes) {
-                    size = max(size, getRoundedSizeInBytes(cmp));
+                    var cmpLayout = layout(cmp);
+                    size = max(size, cmpLayout.roundedSize());
+                    alignment = max(alignment, cmpLayout.alignment);
                 }
-                yield size;
+                yield new MemLayout(alignTo(size, alignment), alignment, offsets);
+            }
+            case SemArrayType semArrayType -> {
+                var elemLayout = layout(semArrayType.elemType);
+                yield new MemLayout(semArrayType.size * elemLayout.roundedSize(), elemLayout.alignment, new long[0]);
             }
-            // Array elements are always aligned to 8 bytes
-            case SemArrayType semArrayType -> semArrayType.size * getRoundedSizeInBytes(semArrayType.elemType);
-            case null, default -> throw new Report.InternalError();
+            default -> throw new Report.InternalError();
         };
     }
 
+    /**
+     * Rounds an offset up to the nearest multiple of an alignment.
+     *
+     * @param offset    The offset.
+     * @param alignment The alignment (a power of two).
+     * @return The rounded offset.
+     */
+    private static long alignTo(long offset, long alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
 
     /**
-     * Get the size of a type in bytes, rounded up to the nearest multiple of 8.
+     * Gets the number of bytes read or written when accessing a value of a type
+     * in memory: 1 for packed chars and bools and 8 otherwise (values of array
+     * and record types are never accessed as a whole).
      *
-     * @param type The type to get the size of.
-     * @return The size of the type in bytes, rounded up to the nearest multiple of 8.
+     * @param type The type of the value.
+     * @return The number of bytes accessed.
      */
-    private static long getRoundedSizeInBytes(SemType type) {
-        long size = getSizeInBytes(type);
-        return ceilTo8(size);
+    public static long getAccessSizeInBytes(SemType type) {
+        return switch (type) {
+            case SemCharType ignored -> getSizeInBytes(type);
+            case SemBoolType ignored -> getSizeInBytes(type);
+            default -> POINTER_SIZE;
+        };
     }
 
     /**
@@ -190,10 +277,10 @@ public class MemEvaluator implements AstFullVisitor<Void, Integer> {
             Memory.frames.put(funDefn, frame);
         } else {
             // External-provided function
-            Memory.externalFns.put(label, funDefn);
+            Memory.externalFns.get().put(label, funDefn);
         }
 
-        Memory.resultTypes.put(label, SemAn.ofType.get(funDefn.type.parent));
+        Memory.resultTypes.get().put(label, SemAn.ofType.get(funDefn.type.parent));
 
         return null;
     }
@@ -234,12 +321,12 @@ public class MemEvaluator implements AstFullVisitor<Void, Integer> {
 
             var type = SemAn.ofType.get(arg);
             // Round parameters & arguments
-            long size = getRoundedSizeInBytes(type);
+            long size = ceilTo8(getSizeInBytes(type));
             argSize += size;
         }
 
         // We also round the return variable
-        long returnSize = getRoundedSizeInBytes(SemAn.ofType.get(callExpr));
+        long returnSize = ceilTo8(getSizeInBytes(SemAn.ofType.get(callExpr)));
         long callSize = max(argSize, returnSize);
 
         this.maxCallSize = max(this.maxCallSize, callSize);
@@ -261,19 +348,17 @@ public class MemEvaluator implements AstFullVisitor<Void, Integer> {
     }
 
     private void processRecordType(AstRecType recType) {
-        long offset = 0;
-        for (var cmp : recType.cmps) {
+        var layout = layout(SemAn.ofType.get(recType));
+        for (int i = 0; i < recType.cmps.size(); i++) {
+            var cmp = recType.cmps.get(i);
             cmp.accept(this, -1);
 
             var type = SemAn.ofType.get(cmp);
             long size = getSizeInBytes(type);
 
             // Depth is -1 for components of a record
-            long cmpOffset = recType instanceof AstStrType ? offset : 0;
-            var memAcc = new MemRelAccess(size, cmpOffset, -1);
+            var memAcc = new MemRelAccess(size, layout.offset(i), -1);
             Memory.cmpAccesses.put(cmp, memAcc);
-
-            offset += ceilTo8(size);
         }
     }
 }
@@ -1,5 +1,6 @@
 package lang24.phase.memory;
 
+import lang24.common.*;
 import lang24.data.ast.attribute.*;
 import lang24.data.ast.tree.defn.*;
 import lang24.data.ast.tree.expr.*;
@@ -9,9 +10,8 @@ import lang24.data.type.SemType;
 import lang24.phase.*;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Memory layout phase: stack frames and variable accesses.
@@ -24,10 +24,10 @@ public class Memory extends Phase {
 	public static final Attribute<AstFunDefn, MemFrame> frames = new Attribute<>();
 
 	/** Maps labels to whether their corresponding function is external. */
-	public static final Map<MemLabel, AstFunDefn> externalFns = new HashMap<>();
+	public static final CompilationLocal<Map<MemLabel, AstFunDefn>> externalFns = new CompilationLocal<>(HashMap::new);
 
 	/** Maps every function label to its semantic result type. */
-	public static final Map<MemLabel, SemType> resultTypes = new HashMap<>();
+	public static final CompilationLocal<Map<MemLabel, SemType>> resultTypes = new CompilationLocal<>(HashMap::new);
 
 	/** Maps variable declarations to accesses. */
 	public static final Attribute<AstVarDefn, MemAccess> varAccesses = new Attribute<>();
@@ -41,6 +41,16 @@ public class Memory extends Phase {
 	/** Maps string constants to accesses. */
 	public static final Attribute<AstAtomExpr, MemAbsAccess> strings = new Attribute<>();
 
+	/** Maps array and record types to their layouts (see {@link MemEvaluator#layout}). */
+	public static final CompilationLocal<Map<SemType, MemLayout>> layouts = new CompilationLocal<>(
+			ConcurrentHashMap::new);
+
+	/**
+	 * Whether chars and bools within arrays, records and variables take a single
+	 * byte instead of eight (see {@link MemEvaluator#layout}).
+	 */
+	public static final CompilationLocal<Boolean> packed = new CompilationLocal<>(() -> false);
+
 	/**
 	 * Phase construction.
 	 */
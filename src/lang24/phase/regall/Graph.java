@@ -44,6 +44,14 @@ public class Graph {
     }
 
 
+    public int numNodes() {
+        return this.nodes.size();
+    }
+
+    public int numEdges() {
+        return this.nodes.values().stream().mapToInt(Set::size).sum() / 2;
+    }
+
     public void addNode(MemTemp node) {
         nodes.putIfAbsent(node, new TreeSet<>());
     }
@@ -1,5 +1,9 @@
 package lang24.phase.regall;
 
+import lang24.cache.CodeCache;
+import lang24.common.Compilation;
+import lang24.common.CompilationLocal;
+import lang24.common.report.Report;
 import lang24.data.asm.AsmInstr;
 import lang24.data.asm.Code;
 import lang24.data.mem.MemTemp;
@@ -7,6 +11,8 @@ import lang24.phase.Phase;
 import lang24.phase.asmgen.AsmGen;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Register allocation.
@@ -14,23 +20,51 @@ import java.util.HashMap;
 public class RegAll extends Phase {
 
 	/** Mapping of temporary variables to registers. */
-	public static final HashMap<MemTemp, Integer> tempToReg = new HashMap<>();
+	public static final CompilationLocal<HashMap<MemTemp, Integer>> tempToReg = new CompilationLocal<>(HashMap::new);
 
 	public RegAll() {
 		super("regall");
 	}
 
+	/**
+	 * Allocates registers of all functions in parallel. The results are merged in
+	 * the order of codes, so the outcome equals the one of a sequential
+	 * allocation. Functions taken from the code cache keep their cached
+	 * registers, the others are stored into the cache.
+	 */
 	public void allocate() {
-		for (Code code : AsmGen.codes) {
+		final CodeCache cache = CodeCache.current();
+		final List<Code> codes = AsmGen.codes.get();
+		final List<RegAlloc> regAllocs = Compilation.current().parallelMap(codes, code -> {
+			if (cache != null && cache.isCached(code))
+				return null;
 			var regAlloc = new RegAlloc(code);
-			regAlloc.allocate(tempToReg);
+			regAlloc.allocate();
+			return regAlloc;
+		});
+		for (int i = 0; i < codes.size(); i++) {
+			final RegAlloc regAlloc = regAllocs.get(i);
+			if (regAlloc == null) {
+				tempToReg.get().putAll(cache.tempToReg(codes.get(i)));
+				continue;
+			}
+			for (Set<MemTemp> spilled : regAlloc.spills)
+				Report.info("Spilling variables: " + spilled);
+			tempToReg.get().putAll(regAlloc.tempToReg);
+			stats.count("graphNodes", regAlloc.graphNodes);
+			stats.count("graphEdges", regAlloc.graphEdges);
+			stats.count("spillRounds", regAlloc.spills.size());
+			if (cache != null)
+				cache.store(codes.get(i), regAlloc.tempToReg);
 		}
+		if (cache != null)
+			cache.evict();
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : AsmGen.codes.get()) {
 			logger.begElement("code");
 			logger.addAttribute("body", code.entryLabel.name());
 			logger.addAttribute("epilogue", code.exitLabel.name());
@@ -39,7 +73,7 @@ public class RegAll extends Phase {
 			logger.begElement("instructions");
 			for (AsmInstr instr : code.instrs) {
 				logger.begElement("instruction");
-				logger.addAttribute("code", instr.toString(tempToReg));
+				logger.addAttribute("code", instr.toString(tempToReg.get()));
 				logger.begElement("temps");
 				logger.addAttribute("name", "use");
 				for (MemTemp temp : instr.uses()) {
@@ -1,6 +1,7 @@
 package lang24.phase.regall;
 
-import lang24.common.report.Report;
+import lang24.common.CompilationLocal;
+import lang24.common.jfr.RegAllocRoundEvent;
 import lang24.data.asm.AsmInstr;
 import lang24.data.asm.AsmOPER;
 import lang24.data.asm.Code;
@@ -10,15 +11,34 @@ import lang24.phase.asmgen.Imc2AsmVisitor;
 import lang24.phase.livean.LiveAnAlyser;
 import lang24.phase.memory.MemEvaluator;
 
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import static lang24.phase.asmgen.Imc2AsmVisitor.Vector_of;
 
 public class RegAlloc {
-    public static int MAX_REGISTERS = 8;
+    /**
+     * The number of registers available for temporaries (within each compilation).
+     */
+    public static final CompilationLocal<Integer> MAX_REGISTERS = new CompilationLocal<>(() -> 8);
     private final Code code;
 
+    /** Mapping of temporary variables of the code to registers. */
+    public final Map<MemTemp, Integer> tempToReg = new HashMap<>();
+
+    /** Variables spilled in each round of the allocation. */
+    public final List<Set<MemTemp>> spills = new LinkedList<>();
+
+    /** The number of nodes of the final interference graph. */
+    public int graphNodes = 0;
+
+    /** The number of edges of the final interference graph. */
+    public int graphEdges = 0;
+
     public RegAlloc(Code code) {
         this.code = code;
     }
@@ -26,25 +46,48 @@ public class RegAlloc {
 
     /**
      * Allocate registers for the code.
-     * @param tempToReg Mapping of temporary variables to registers.
      */
-    public void allocate(Map<MemTemp, Integer> tempToReg) {
+    public void allocate() {
+        final RegAllocRoundEvent event = new RegAllocRoundEvent();
+        event.begin();
+
         var graph = new Graph(this.code);
+        graphNodes = graph.numNodes();
+        graphEdges = graph.numEdges();
 
-        var spilled = graph.colorAll(MAX_REGISTERS);
+        var spilled = graph.colorAll(MAX_REGISTERS.get());
 
         if (!spilled.isEmpty()) {
             // Oh no, we have to spill some variables
-            Report.info("Spilling variables: " + spilled);
+            spills.add(spilled);
             spilled.forEach(this::generateSpillCode);
 
             new LiveAnAlyser(code.instrs).analyzeAll();
 
-            this.allocate(tempToReg);
+            commit(event, spilled.size());
+            this.allocate();
             return;
         }
 
         tempToReg.putAll(graph.getColors());
+        commit(event, 0);
+    }
+
+    /**
+     * Commits the flight recorder event of an allocation round.
+     * @param event The event.
+     * @param numSpilled The number of variables spilled in the round.
+     */
+    private void commit(RegAllocRoundEvent event, int numSpilled) {
+        if (!event.shouldCommit())
+            return;
+        event.function = code.frame.label.name();
+        event.round = spills.size() + (numSpilled == 0 ? 1 : 0);
+        event.numInstrs = code.instrs.size();
+        event.graphNodes = graphNodes;
+        event.graphEdges = graphEdges;
+        event.numSpilled = numSpilled;
+        event.commit();
     }
 
 
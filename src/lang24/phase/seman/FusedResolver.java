@@ -0,0 +1,159 @@
+package lang24.phase.seman;
+
+import lang24.common.report.Report;
+import lang24.data.ast.tree.AstNode;
+import lang24.data.ast.tree.AstNodes;
+import lang24.data.ast.tree.defn.AstFunDefn;
+import lang24.data.ast.tree.defn.AstTypDefn;
+import lang24.data.ast.tree.defn.AstVarDefn;
+import lang24.data.ast.tree.expr.*;
+
+/**
+ * Name and lvalue resolver.
+ * <p>
+ * Performs the work of {@link NameResolver} and {@link LValResolver} within a
+ * single traversal of the abstract syntax tree: an expression is marked as an
+ * lvalue right after the names within it have been resolved. Type resolution
+ * cannot be fused as well, because {@link TypeResolver} resolves the types of
+ * definitions when they are first used, and as names can be used before they
+ * are defined, their definitions might not have been resolved yet.
+ * <p>
+ * The attributes produced are the same as those produced by both resolvers.
+ * Errors of name resolution are reported as soon as they are found, but if an
+ * expression that must be an lvalue is not one, the tree is traversed by
+ * {@link LValResolver} once names have been resolved, so that the same error
+ * is reported as if both resolvers were run one after another.
+ */
+public class FusedResolver extends NameResolver {
+
+    /**
+     * Constructs a new name and lvalue resolver.
+     */
+    public FusedResolver() {
+    }
+
+    /**
+     * Constructs a new name and lvalue resolver using the specified symbol
+     * table.
+     *
+     * @param symbTable The symbol table.
+     */
+    public FusedResolver(SymbTable symbTable) {
+        super(symbTable);
+    }
+
+    /**
+     * The root of the tree (or {@code null} before the traversal).
+     */
+    private AstNodes<? extends AstNode> root = null;
+
+    /**
+     * The number of variable and parameter definitions the current node is
+     * nested in (their types are not traversed by {@link LValResolver}).
+     */
+    private int defnTypes = 0;
+
+    /**
+     * Whether an expression that must be an lvalue is not one.
+     */
+    private boolean notLValue = false;
+
+    @Override
+    public Void visit(AstNodes<? extends AstNode> nodes, PassType arg) {
+        if (root != null) {
+            return super.visit(nodes, arg);
+        }
+
+        root = nodes;
+        super.visit(nodes, arg);
+        if (notLValue) {
+            nodes.accept(new LValResolver(), null);
+            throw new Report.InternalError();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(AstVarDefn varDefn, PassType arg) {
+        if (arg != PassType.SECOND_PASS) {
+            return super.visit(varDefn, arg);
+        }
+
+        defnTypes++;
+        super.visit(varDefn, arg);
+        defnTypes--;
+        SemAn.isLVal.put(varDefn, true);
+        return null;
+    }
+
+    @Override
+    public Void visit(AstFunDefn.AstRefParDefn refParDefn, PassType arg) {
+        if (arg != PassType.SECOND_PASS) {
+            return super.visit(refParDefn, arg);
+        }
+
+        defnTypes++;
+        super.visit(refParDefn, arg);
+        defnTypes--;
+        SemAn.isLVal.put(refParDefn, true);
+        return null;
+    }
+
+    @Override
+    public Void visit(AstFunDefn.AstValParDefn valParDefn, PassType arg) {
+        if (arg != PassType.SECOND_PASS) {
+            return super.visit(valParDefn, arg);
+        }
+
+        defnTypes++;
+        super.visit(valParDefn, arg);
+        defnTypes--;
+        SemAn.isLVal.put(valParDefn, true);
+        return null;
+    }
+
+    @Override
+    public Void visit(AstArrExpr arrExpr, PassType arg) {
+        super.visit(arrExpr, arg);
+        if (arg == PassType.SECOND_PASS && defnTypes == 0) {
+            mark(arrExpr, arrExpr.arr);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(AstCmpExpr cmpExpr, PassType arg) {
+        super.visit(cmpExpr, arg);
+        if (arg == PassType.SECOND_PASS && defnTypes == 0) {
+            mark(cmpExpr, cmpExpr.expr);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(AstNameExpr nameExpr, PassType arg) {
+        super.visit(nameExpr, arg);
+        if (arg == PassType.SECOND_PASS && defnTypes == 0
+                && !(SemAn.definedAt.get(nameExpr) instanceof AstTypDefn)) {
+            SemAn.isLVal.put(nameExpr, true);
+        }
+        return null;
+    }
+
+    /**
+     * Marks an array element or a record component as an lvalue if the array or
+     * the record is one.
+     *
+     * @param expr The array element or the record component.
+     * @param base The array or the record.
+     */
+    private void mark(AstExpr expr, AstExpr base) {
+        // Dereferences are marked by TypeResolver but are always lvalues.
+        if (base instanceof AstSfxExpr || SemAn.isLVal.get(base)) {
+            SemAn.isLVal.put(expr, true);
+        } else {
+            notLValue = true;
+        }
+    }
+
+}
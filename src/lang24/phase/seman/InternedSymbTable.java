@@ -0,0 +1,247 @@
+package lang24.phase.seman;
+
+import lang24.common.report.Report;
+import lang24.data.ast.tree.defn.AstDefn;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A symbol table with interned names and an undo log.
+ * <p>
+ * Each name is interned as a symbol, i.e., a small integer, when it is defined
+ * for the first time; an open addressing hash table maps names to symbols.
+ * Only the visible definition of each symbol and the depth of its scope are
+ * kept in arrays indexed by symbols. A definition hidden by a new one is pushed
+ * onto the undo log together with its depth, and once the scope is destroyed,
+ * the log is unwound to the point where the scope was constructed. Hence
+ * inserting a definition, finding one and destroying a scope do not allocate
+ * (apart from occasionally enlarging the arrays).
+ */
+public final class InternedSymbTable implements SymbTable {
+
+	/** The initial length of the arrays. */
+	private static final int INIT_CAPACITY = 16;
+
+	/** The names of symbols indexed by symbols. */
+	private String[] names = new String[INIT_CAPACITY];
+
+	/** The number of symbols. */
+	private int numSymbols = 0;
+
+	/**
+	 * The hash table of symbols, i.e., symbols incremented by one (0 for an empty
+	 * entry) indexed by hash codes of their names; at most half full.
+	 */
+	private int[] slots = new int[2 * INIT_CAPACITY];
+
+	/** The visible definition of each symbol (or {@code null} if none). */
+	private AstDefn[] defns = new AstDefn[INIT_CAPACITY];
+
+	/** The depth of the scope of the visible definition of each symbol. */
+	private int[] depths = new int[INIT_CAPACITY];
+
+	/** The symbols of entries of the undo log. */
+	private int[] logSymbols = new int[INIT_CAPACITY];
+
+	/** The hidden definitions of entries of the undo log. */
+	private AstDefn[] logDefns = new AstDefn[INIT_CAPACITY];
+
+	/** The depths of hidden definitions of entries of the undo log. */
+	private int[] logDepths = new int[INIT_CAPACITY];
+
+	/** The number of entries of the undo log. */
+	private int logSize = 0;
+
+	/** The size of the undo log when each active scope was constructed. */
+	private int[] scopeMarks = new int[INIT_CAPACITY];
+
+	/** The depth of the currently active scope. */
+	private int currDepth = 0;
+
+	/** Whether the symbol table can no longer be modified or not. */
+	private boolean lock = false;
+
+	/**
+	 * Constructs a new symbol table.
+	 */
+	public InternedSymbTable() {
+		pushScope();
+	}
+
+	@Override
+	public int currDepth() {
+		return currDepth;
+	}
+
+	@Override
+	public void ins(String name, AstDefn defn) throws CannotInsNameException {
+		if (lock) {
+			throw new Report.InternalError();
+		}
+
+		final int symbol = intern(name);
+		if (defns[symbol] != null && depths[symbol] == currDepth) {
+			throw new CannotInsNameException();
+		}
+
+		if (logSize == logSymbols.length) {
+			logSymbols = Arrays.copyOf(logSymbols, 2 * logSize);
+			logDefns = Arrays.copyOf(logDefns, 2 * logSize);
+			logDepths = Arrays.copyOf(logDepths, 2 * logSize);
+		}
+		logSymbols[logSize] = symbol;
+		logDefns[logSize] = defns[symbol];
+		logDepths[logSize] = depths[symbol];
+		logSize++;
+
+		defns[symbol] = defn;
+		depths[symbol] = currDepth;
+	}
+
+	@Override
+	public AstDefn fnd(String name) throws CannotFndNameException {
+		final int symbol = lookup(name);
+		if (symbol < 0 || defns[symbol] == null) {
+			throw new CannotFndNameException();
+		}
+		return defns[symbol];
+	}
+
+	@Override
+	public void pushScope() {
+		if (lock) {
+			throw new Report.InternalError();
+		}
+
+		currDepth++;
+		if (currDepth == scopeMarks.length) {
+			scopeMarks = Arrays.copyOf(scopeMarks, 2 * currDepth);
+		}
+		scopeMarks[currDepth] = logSize;
+	}
+
+	@Override
+	public void popScope() {
+		if (lock) {
+			throw new Report.InternalError();
+		}
+
+		if (currDepth == 0) {
+			throw new Report.InternalError();
+		}
+
+		final int mark = scopeMarks[currDepth];
+		while (logSize > mark) {
+			logSize--;
+			final int symbol = logSymbols[logSize];
+			defns[symbol] = logDefns[logSize];
+			depths[symbol] = logDepths[logSize];
+			logDefns[logSize] = null;
+		}
+		currDepth--;
+	}
+
+	@Override
+	public void lock() {
+		lock = true;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return Arrays.stream(names, 0, numSymbols).sorted().iterator();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("LookupTable:\n");
+
+		for (int symbol = 0; symbol < numSymbols; symbol++) {
+			sb.append(names[symbol]).append(":\n");
+			if (defns[symbol] == null) {
+				continue;
+			}
+			sb.append("  ").append(defns[symbol]).append(" at depth ").append(depths[symbol]).append("\n");
+			for (int entry = logSize - 1; entry >= 0; entry--) {
+				if (logSymbols[entry] == symbol && logDefns[entry] != null) {
+					sb.append("  ").append(logDefns[entry]).append(" at depth ").append(logDepths[entry]).append("\n");
+				}
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the symbol of a name.
+	 *
+	 * @param name The name.
+	 * @return The symbol or {@code -1} if the name has never been defined.
+	 */
+	private int lookup(String name) {
+		final int mask = slots.length - 1;
+		for (int slot = hash(name) & mask;; slot = (slot + 1) & mask) {
+			final int symbol = slots[slot] - 1;
+			if (symbol < 0) {
+				return -1;
+			}
+			if (names[symbol].equals(name)) {
+				return symbol;
+			}
+		}
+	}
+
+	/**
+	 * Returns the symbol of a name, interning the name first if it has never been
+	 * defined.
+	 *
+	 * @param name The name.
+	 * @return The symbol.
+	 */
+	private int intern(String name) {
+		int mask = slots.length - 1;
+		int slot = hash(name) & mask;
+		for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (names[slots[slot] - 1].equals(name)) {
+				return slots[slot] - 1;
+			}
+		}
+
+		if (numSymbols == names.length) {
+			names = Arrays.copyOf(names, 2 * numSymbols);
+			defns = Arrays.copyOf(defns, 2 * numSymbols);
+			depths = Arrays.copyOf(depths, 2 * numSymbols);
+			slots = new int[4 * numSymbols];
+			mask = slots.length - 1;
+			for (int symbol = 0; symbol < numSymbols; symbol++) {
+				int newSlot = hash(names[symbol]) & mask;
+				while (slots[newSlot] != 0) {
+					newSlot = (newSlot + 1) & mask;
+				}
+				slots[newSlot] = symbol + 1;
+			}
+			slot = hash(name) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		final int symbol = numSymbols++;
+		names[symbol] = name;
+		slots[slot] = symbol + 1;
+		return symbol;
+	}
+
+	/**
+	 * Returns the hash code of a name spread over all bits.
+	 *
+	 * @param name The name.
+	 * @return The hash code.
+	 */
+	private static int hash(String name) {
+		final int hashCode = name.hashCode() * 0x9E3779B9;
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
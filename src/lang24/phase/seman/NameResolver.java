@@ -28,12 +28,22 @@ public class NameResolver implements AstFullVisitor<Void, PassType> {
      * Constructs a new name resolver.
      */
     public NameResolver() {
+        this(new LinkedSymbTable());
+    }
+
+    /**
+     * Constructs a new name resolver using the specified symbol table.
+     *
+     * @param symbTable The symbol table.
+     */
+    public NameResolver(SymbTable symbTable) {
+        this.symbTable = symbTable;
     }
 
     /**
      * The symbol table.
      */
-    private final SymbTable symbTable = new SymbTable();
+    private final SymbTable symbTable;
 
 
     @Override
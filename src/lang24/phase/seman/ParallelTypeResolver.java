@@ -0,0 +1,104 @@
+package lang24.phase.seman;
+
+import lang24.common.Compilation;
+import lang24.common.report.Report;
+import lang24.data.ast.tree.AstNode;
+import lang24.data.ast.tree.AstNodes;
+import lang24.data.ast.tree.defn.AstFunDefn;
+import lang24.data.type.SemType;
+import lang24.data.type.SemVoidType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type checking and type resolution with function bodies checked in parallel.
+ * <p>
+ * Type definitions, variable definitions and signatures of top-level functions
+ * are resolved first, one after another. Once they are, the body of a
+ * top-level function refers only to definitions resolved already or to
+ * definitions within the function itself, so the bodies are checked in
+ * parallel, each by a {@link TypeResolver} of its own. Attributes are reserved
+ * for all nodes beforehand, so values of distinct nodes are put without
+ * synchronization.
+ * <p>
+ * The outcome does not depend on scheduling: if several bodies contain errors,
+ * the error within the body that comes first in the program is reported, and
+ * warnings are reported in the order of bodies. As the bodies are not checked
+ * unless all declarations have been resolved, an error in a declaration is
+ * reported even if a body before it contains an error as well.
+ */
+public class ParallelTypeResolver extends TypeResolver {
+
+    /**
+     * Constructs a new type resolver checking function bodies in parallel.
+     */
+    public ParallelTypeResolver() {
+        super(new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(), null);
+    }
+
+    /**
+     * The root of the tree (or {@code null} before the traversal).
+     */
+    private AstNodes<? extends AstNode> root = null;
+
+    @Override
+    public SemType visit(AstNodes<? extends AstNode> nodes, Object arg) {
+        if (root != null) {
+            return super.visit(nodes, arg);
+        }
+        root = nodes;
+
+        final List<AstFunDefn> funDefns = new ArrayList<>();
+        for (final AstNode node : nodes) {
+            if (node instanceof AstFunDefn funDefn) {
+                resolveSignature(funDefn, arg);
+                funDefns.add(funDefn);
+            } else {
+                node.accept(this, arg);
+            }
+        }
+
+        // Types of components of recursive types refer to their own names as
+        // void unless resolved again once all type definitions are final.
+        for (final AstNode cmpDefn : List.copyOf(provisionalCmpDefns())) {
+            cmpDefn.accept(this, arg);
+        }
+
+        final int numNodes = AstNode.numNodes();
+        SemAn.definedAt.reserve(numNodes);
+        SemAn.isLVal.reserve(numNodes);
+        SemAn.isType.reserve(numNodes);
+        SemAn.ofType.reserve(numNodes);
+
+        final List<Body> bodies = Compilation.current().parallelMap(funDefns, funDefn -> {
+            final List<Runnable> warnings = new ArrayList<>();
+            try {
+                new TypeResolver(record2ast(), provisionalCmpDefns(), warnings).resolveBody(funDefn, arg);
+                return new Body(warnings, null);
+            } catch (final Report.Error error) {
+                return new Body(warnings, error);
+            }
+        });
+        for (final Body body : bodies) {
+            body.warnings.forEach(Runnable::run);
+            if (body.error != null) {
+                throw body.error;
+            }
+        }
+
+        return SemVoidType.type;
+    }
+
+    /**
+     * The outcome of checking a function body.
+     *
+     * @param warnings The warnings found in the body.
+     * @param error    The error found in the body (or {@code null} if there is
+     *                 none).
+     */
+    private record Body(List<Runnable> warnings, Report.Error error) {
+    }
+
+}
@@ -24,7 +24,7 @@ public class SemAn extends Phase {
 	 * Attribute specifying whether someting is an lvalue or not (where applicable).
 	 * If not present, the construct is not an lvalue.
 	 */
-	public static final Attribute<AstNode, Boolean> isLVal = new Attribute<AstNode, Boolean>();
+	public static final BoolAttribute<AstNode> isLVal = new BoolAttribute<AstNode>();
 
 	/**
 	 * Attribute specifying what type is defined by a particular language construct
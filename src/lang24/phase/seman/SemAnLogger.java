@@ -66,8 +66,7 @@ public class SemAnLogger implements AstNullVisitor<Object, Object>, SemVisitor<O
 			}
 		}
 		{
-			final Boolean lval = SemAn.isLVal.get(node);
-			if ((lval != null) && lval) {
+			if (SemAn.isLVal.get(node)) {
 				logger.begElement("lvalue");
 				logger.endElement();
 			}
@@ -48,13 +48,12 @@ import lang24.data.type.SemType;
 import lang24.data.type.SemUnionType;
 import lang24.data.type.SemVoidType;
 
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 // todo - if user defines a function, same as prototype, but with different signature, it should be an error!
 
@@ -63,7 +62,7 @@ import java.util.TreeMap;
  */
 public class TypeResolver implements AstFullVisitor<SemType, Object> {
 
-    private static final Map<SemRecordType, AstRecType> record2ast = new TreeMap<>(Comparator.comparing(semRecordType -> semRecordType.id));
+    private final Map<SemRecordType, AstRecType> record2ast;
 
     private static final Set<SemType> PRIMITIVES_NO_VOID = Set.of(SemCharType.type, SemIntType.type, SemBoolType.type, SemPointerType.type);
     private static final Set<SemType> PRIMITIVES_WITH_VOID;
@@ -81,6 +80,79 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
     private FoundReturnType foundReturnType = null;
     private AstFunDefn currentReturningFunction = null;
 
+    /**
+     * Structural equivalence of pairs of types (indexed by ids of both types)
+     * that have been compared already.
+     */
+    private final Map<Long, Boolean> equivalences = new HashMap<>();
+
+    /**
+     * Warnings postponed until the function body being checked concurrently
+     * with other bodies has been checked, or {@code null} if warnings are
+     * reported immediately. While checking such a body, definitions outside of
+     * it are never resolved again, as other bodies might be using them.
+     */
+    private final List<Runnable> postponedWarnings;
+
+    /**
+     * Components whose types have been resolved while the name of a type being
+     * defined still denoted {@code void}, or {@code null} if not tracked. The
+     * types of such components must be resolved again before they are used.
+     */
+    private final Set<AstRecType.AstCmpDefn> provisionalCmpDefns;
+
+    /**
+     * The number of type definitions being resolved, i.e., of type names that
+     * denote {@code void} for the time being.
+     */
+    private int numPlaceholders = 0;
+
+    /**
+     * Constructs a new type resolver.
+     */
+    public TypeResolver() {
+        this(new HashMap<>(), null, null);
+    }
+
+    /**
+     * Constructs a new type resolver.
+     *
+     * @param record2ast          Record types mapped to their definitions.
+     * @param provisionalCmpDefns Components whose types must be resolved again
+     *                            before they are used, or {@code null} if not
+     *                            tracked.
+     * @param postponedWarnings   Warnings postponed until the function body
+     *                            being checked concurrently with other bodies
+     *                            has been checked, or {@code null} if warnings
+     *                            are reported immediately.
+     */
+    TypeResolver(Map<SemRecordType, AstRecType> record2ast, Set<AstRecType.AstCmpDefn> provisionalCmpDefns,
+                 List<Runnable> postponedWarnings) {
+        this.record2ast = record2ast;
+        this.provisionalCmpDefns = provisionalCmpDefns;
+        this.postponedWarnings = postponedWarnings;
+    }
+
+    /**
+     * Returns record types mapped to their definitions.
+     *
+     * @return Record types mapped to their definitions.
+     */
+    Map<SemRecordType, AstRecType> record2ast() {
+        return record2ast;
+    }
+
+    /**
+     * Returns components whose types must be resolved again before they are
+     * used.
+     *
+     * @return Components whose types must be resolved again, or {@code null} if
+     * not tracked.
+     */
+    Set<AstRecType.AstCmpDefn> provisionalCmpDefns() {
+        return provisionalCmpDefns;
+    }
+
 
     /**
      * Structural equivalence of types.
@@ -91,7 +163,40 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
      * otherwise.
      */
     private boolean equiv(SemType type1, SemType type2) {
-        return equiv(type1, type2, new HashMap<>());
+        if (type1 == type2) {
+            return true;
+        }
+
+        // Array and pointer types are interned, so identical components are
+        // compared fast, but records and type synonyms are not and might be
+        // compared over and over.
+        final long pair = pair(type1, type2);
+        Boolean equivalent = equivalences.get(pair);
+        if (equivalent == null) {
+            final Map<SemType, Set<SemType>> equivs = new HashMap<>();
+            equivalent = equiv(type1, type2, equivs);
+            equivalences.put(pair, equivalent);
+            if (equivalent) {
+                // Synonyms assumed equivalent on the way were all confirmed.
+                for (Map.Entry<SemType, Set<SemType>> assumed : equivs.entrySet()) {
+                    for (SemType type : assumed.getValue()) {
+                        equivalences.put(pair(assumed.getKey(), type), true);
+                    }
+                }
+            }
+        }
+        return equivalent;
+    }
+
+    /**
+     * Returns the key of a pair of types in the map of known equivalences.
+     *
+     * @param type1 The first type.
+     * @param type2 The second type.
+     * @return The key of the pair of types.
+     */
+    private static long pair(SemType type1, SemType type2) {
+        return ((long) type1.id << 32) | type2.id;
     }
 
     /**
@@ -104,8 +209,17 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
      * otherwise.
      */
     private boolean equiv(SemType type1, SemType type2, Map<SemType, Set<SemType>> equivs) {
+        if (type1 == type2) {
+            return true;
+        }
 
         if ((type1 instanceof SemNameType) && (type2 instanceof SemNameType)) {
+            final long pair = pair(type1, type2);
+            final Boolean equivalent = equivalences.get(pair);
+            if (equivalent != null) {
+                return equivalent;
+            }
+
             if (equivs == null) {
                 equivs = new HashMap<>();
             }
@@ -126,6 +240,14 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
                 types.add(type1);
                 equivs.put(type2, types);
             }
+
+            // Assuming more synonyms equivalent can only turn a mismatch into
+            // a match, so a mismatch found under assumptions is final.
+            if (!equiv(type1.actualType(), type2.actualType(), equivs)) {
+                equivalences.put(pair, false);
+                return false;
+            }
+            return true;
         }
 
         type1 = type1.actualType();
@@ -281,9 +403,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
      * @param node The node to check.
      */
     private void checkLValueOrThrow(AstNode node) {
-        Boolean isLval = SemAn.isLVal.get(node);
-
-        if (isLval == null || !isLval) {
+        if (!SemAn.isLVal.get(node)) {
             LValResolver.throwNotLValue(node);
         }
     }
@@ -302,7 +422,9 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         // End of dummy
 
         // Actual type
+        numPlaceholders++;
         var type = typDefn.type.accept(this, arg);
+        numPlaceholders--;
 
         nameType = new SemNameType(typDefn.name());
         nameType.define(type);
@@ -389,7 +511,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         for (var expParam : funDefn.pars) {
             if (i < callPars.size()) {
                 var callParamType = callPars.get(i).accept(this, null);
-                var expParamType = expParam.accept(this, null);
+                var expParamType = definitionType(expParam);
 
                 if (!equiv(callParamType, expParamType)) {
                     var err = new ErrorAtBuilder("Type mismatch in function call `" + callExpr.name + "`. Expected `" + expParamType + "`, but got `" + callParamType + "`:")
@@ -406,7 +528,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
                         .addSourceLine(callExpr)
                         .addUnderlineWrongChar(callExpr, "Hint: try adding " + (funDefn.pars.size() - i) + " more parameter(s).")
                         .addLine("")
-                        .addLine("Expected `" + expParam.accept(this, null) + "`:")
+                        .addLine("Expected `" + definitionType(expParam) + "`:")
                         .addUnderlinedSourceNode(expParam);
                 throw new Report.Error(callExpr, err);
             }
@@ -479,7 +601,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
             throw new Report.Error(cmpExpr, err);
         }
 
-        var type = childDefn.accept(this, arg);
+        var type = definitionType(childDefn);
 
         SemAn.ofType.put(cmpExpr, type);
 
@@ -506,7 +628,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
                 var type = pfxExpr.expr.accept(this, arg);
                 // v8 rule, need to check for lvalue as well
                 checkLValueOrThrow(pfxExpr.expr);
-                yield new SemPointerType(type);
+                yield SemPointerType.of(type);
             }
         };
 
@@ -673,6 +795,19 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
 
     @Override
     public SemType visit(AstFunDefn funDefn, Object arg) {
+        var fnType = resolveSignature(funDefn, arg);
+        resolveBody(funDefn, arg);
+        return fnType;
+    }
+
+    /**
+     * Resolves the return type and the types of parameters of a function.
+     *
+     * @param funDefn The function.
+     * @param arg     The argument of the visitor.
+     * @return The return type.
+     */
+    SemType resolveSignature(AstFunDefn funDefn, Object arg) {
         var fnType = funDefn.type.accept(this, arg);
 
         // Check return type - can't be records / arrays
@@ -693,6 +828,19 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
             checkLValueOrThrow(param);
         }
 
+        return fnType;
+    }
+
+    /**
+     * Resolves the nested definitions of a function and checks its body. The
+     * signature of the function must have been resolved already.
+     *
+     * @param funDefn The function.
+     * @param arg     The argument of the visitor.
+     */
+    void resolveBody(AstFunDefn funDefn, Object arg) {
+        var fnType = SemAn.ofType.get(funDefn);
+
         for (var defn : funDefn.defns) {
             defn.accept(this, arg);
 
@@ -707,7 +855,9 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
             }*/
         }
 
+        // The body might be checked while checking the body of another function.
         var previousFn = this.currentReturningFunction;
+        var previousReturnType = this.foundReturnType;
         this.currentReturningFunction = funDefn;
         this.foundReturnType = null;
 
@@ -730,8 +880,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         }
 
         this.currentReturningFunction = previousFn;
-
-        return fnType;
+        this.foundReturnType = previousReturnType;
     }
 
     private void functionReturnError(AstFunDefn funDefn, boolean isFatal) {
@@ -762,6 +911,8 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         final String message = err.toString();
         if (isFatal) {
             throw new Report.Error(funDefn, message);
+        } else if (postponedWarnings != null) {
+            postponedWarnings.add(() -> Report.warning(funDefn, message));
         } else {
             Report.warning(funDefn, message);
         }
@@ -823,7 +974,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         // Try to get size
         if (arrType.size instanceof AstAtomExpr atomExpr) {
             if (atomExpr.type == AstAtomExpr.Type.INT) {
-                var type = new SemArrayType(elemType, Long.parseLong(atomExpr.value));
+                var type = SemArrayType.of(elemType, Long.parseLong(atomExpr.value));
 
                 SemAn.ofType.put(arrType, type);
 
@@ -874,7 +1025,7 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
 
     @Override
     public SemType visit(AstPtrType ptrType, Object arg) {
-        var type = new SemPointerType(ptrType.baseType.accept(this, arg));
+        var type = SemPointerType.of(ptrType.baseType.accept(this, arg));
         SemAn.ofType.put(ptrType, type);
 
         return type;
@@ -922,9 +1073,36 @@ public class TypeResolver implements AstFullVisitor<SemType, Object> {
         var type = cmpDefn.type.accept(this, arg);
 
         SemAn.ofType.put(cmpDefn, type);
+        if (provisionalCmpDefns != null) {
+            if (numPlaceholders > 0) {
+                provisionalCmpDefns.add(cmpDefn);
+            } else {
+                provisionalCmpDefns.remove(cmpDefn);
+            }
+        }
         return type;
     }
 
+    /**
+     * Returns the type of a parameter or a component. While a function body is
+     * checked concurrently with others, a type resolved already is not resolved
+     * again, as the definition might lie outside of the body, unless it has been
+     * resolved while a type name still denoted {@code void} (which happens only
+     * within the body).
+     *
+     * @param defn The parameter or the component.
+     * @return The type.
+     */
+    private SemType definitionType(AstNode defn) {
+        if (postponedWarnings != null && !provisionalCmpDefns.contains(defn)) {
+            var type = SemAn.ofType.get(defn);
+            if (type != null) {
+                return type;
+            }
+        }
+        return defn.accept(this, null);
+    }
+
     private <T extends AstNode & Nameable> SemType findVariableType(T node) {
         var defined = SemAn.definedAt.get(node);
         var type = SemAn.ofType.get(defined);
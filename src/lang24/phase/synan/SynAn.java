@@ -1,7 +1,11 @@
 package lang24.phase.synan;
 
+import java.util.*;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.tree.*;
+import lang24.common.*;
 import lang24.common.report.*;
 import lang24.data.token.*;
 import lang24.phase.*;
@@ -13,11 +17,23 @@ import lang24.phase.lexan.*;
 public class SynAn extends Phase {
 
 	/** The parse tree. */
-	public static Lang24Parser.SourceContext tree;
+	public static final CompilationLocal<Lang24Parser.SourceContext> tree = new CompilationLocal<>(() -> null);
 
 	/** The ANTLR parser that actually performs syntax analysis. */
 	public final Lang24Parser parser;
 
+	/** The stream of tokens produced by the lexical analyzer. */
+	private final CommonTokenStream tokens;
+
+	/** The listener reporting syntax errors (during the full LL stage only). */
+	private final ANTLRErrorListener errorListener = new BaseErrorListener() {
+		public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line,
+				final int charPositionInLine, final String msg, final RecognitionException e) {
+			throw new Report.Error(new Location(line, charPositionInLine),
+					"Unexpected symbol '" + ((LocLogToken) offendingSymbol).getText() + "'.");
+		}
+	};
+
 	/**
 	 * Phase construction: sets up logging and the ANTLR lexer and parser.
 	 * 
@@ -25,15 +41,64 @@ public class SynAn extends Phase {
 	 */
 	public SynAn(final LexAn lexan) {
 		super("synan");
-		parser = new Lang24Parser(new CommonTokenStream(lexan.lexer));
+		tokens = new CommonTokenStream(lexan.lexer);
+		parser = new Lang24Parser(tokens);
+		parser.setProfile(lang24.Compiler.cmdLineOptValue("--profile-parser") != null);
+	}
+
+	/**
+	 * Parses the source file in two stages: the fast SLL prediction is tried
+	 * first and, only if it fails (because of a syntax error or because the input
+	 * requires full context), the source file is parsed again using the full LL
+	 * prediction and the usual error reporting. No error listener is attached
+	 * during the SLL stage, as it would report a failed SLL prediction as a
+	 * syntax error before the bail out strategy gets a chance to cancel it.
+	 * 
+	 * @return The parse tree.
+	 */
+	public Lang24Parser.SourceContext parse() {
 		parser.removeErrorListeners();
-		parser.addErrorListener(new BaseErrorListener() {
-			public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line,
-					final int charPositionInLine, final String msg, final RecognitionException e) {
-				throw new Report.Error(new Location(line, charPositionInLine),
-						"Unexpected symbol '" + ((LocLogToken) offendingSymbol).getText() + "'.");
-			}
-		});
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.setErrorHandler(new BailErrorStrategy());
+		Lang24Parser.SourceContext tree;
+		try {
+			tree = parser.source();
+			stats.count("llFallbacks", 0);
+		} catch (final ParseCancellationException __) {
+			tokens.seek(0);
+			parser.reset();
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			parser.addErrorListener(errorListener);
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			tree = parser.source();
+			stats.count("llFallbacks", 1);
+		}
+		if (parser.getParseInfo() != null)
+			reportProfile(parser.getParseInfo());
+		return tree;
+	}
+
+	/**
+	 * Prints out the parser's decision statistics, the most expensive decisions
+	 * first.
+	 * 
+	 * @param parseInfo The parser's decision statistics.
+	 */
+	private void reportProfile(final ParseInfo parseInfo) {
+		final List<DecisionInfo> decisions = new ArrayList<>(Arrays.asList(parseInfo.getDecisionInfo()));
+		decisions.removeIf(decision -> decision.invocations == 0);
+		decisions.sort(Comparator.comparingLong((DecisionInfo decision) -> decision.timeInPrediction).reversed());
+		Report.info(String.format("Parser profile: %.3f ms in prediction, %d SLL and %d LL lookahead tokens.",
+				parseInfo.getTotalTimeInPrediction() / 1e6, parseInfo.getTotalSLLLookaheadOps(),
+				parseInfo.getTotalLLLookaheadOps()));
+		Report.info(String.format("%-26s %8s %8s %10s %9s %9s %9s %9s %6s", "rule", "decision", "calls",
+				"time[ms]", "SLL-look", "SLL-max", "LL-look", "LL-max", "ambig"));
+		for (final DecisionInfo decision : decisions) {
+			final int ruleIndex = parser.getATN().getDecisionState(decision.decision).ruleIndex;
+			Report.info(String.format("%-26s %8d %8d %10.3f %9d %9d %9d %9d %6d", Lang24Parser.ruleNames[ruleIndex],
+					decision.decision, decision.invocations, decision.timeInPrediction / 1e6, decision.SLL_TotalLook,
+					decision.SLL_MaxLook, decision.LL_TotalLook, decision.LL_MaxLook, decision.ambiguities.size()));
+		}
 	}
 
 	/**
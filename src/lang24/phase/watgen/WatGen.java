@@ -8,6 +8,7 @@ import lang24.data.lin.LinDataChunk;
 import lang24.data.mem.MemLabel;
 import lang24.data.mem.MemTemp;
 import lang24.data.mem.MemFrame;
+import lang24.data.type.SemCharType;
 import lang24.data.type.SemType;
 import lang24.data.type.SemVoidType;
 import lang24.data.type.WatType;
@@ -17,6 +18,7 @@ import lang24.data.wat.WatVisitor;
 import lang24.data.wat.WatWriter;
 import lang24.phase.Phase;
 import lang24.phase.imclin.ImcLin;
+import lang24.phase.memory.MemEvaluator;
 import lang24.phase.memory.Memory;
 import lang24.phase.seman.SemAn;
 
@@ -51,7 +53,7 @@ public class WatGen extends Phase {
         writer.groupStart("(module");
 
         // External imports
-        for (var fn : Memory.externalFns.entrySet()) {
+        for (var fn : Memory.externalFns.get().entrySet()) {
             var functionName = fn.getKey().name();
             var astFnDefn = fn.getValue();
             var wt = (WatType) SemAn.ofType.get(astFnDefn.type.parent);
@@ -100,15 +102,17 @@ public class WatGen extends Phase {
         for (LinDataChunk dataChunk : ImcLin.dataChunks()) {
             dataLabels.put(dataChunk.label, currentDataOffset);
             if (dataChunk.init != null) {
-                // Our char is defined as 8 BITS,
+                // Our char is defined as 8 BYTES unless packed,
                 // so we must add padding with 0
+                long charSize = MemEvaluator.getSizeInBytes(SemCharType.type);
+                String padding = "\\00".repeat((int) charSize - 1);
                 StringBuilder hex = new StringBuilder();
                 for (char c : dataChunk.init.toCharArray()) {
-                    hex.append(String.format("\\%02x\\00\\00\\00\\00\\00\\00\\00", (int) c));
+                    hex.append(String.format("\\%02x", (int) c)).append(padding);
                 }
-                hex.append("\\00\\00\\00\\00\\00\\00\\00\\00"); // Null terminator
+                hex.append("\\00".repeat((int) charSize)); // Null terminator
                 writer.println("(data (i32.const %d) \"%s\")", currentDataOffset, hex.toString());
-                currentDataOffset += (dataChunk.init.length() + 1) * 8L;
+                currentDataOffset += (dataChunk.init.length() + 1) * charSize;
             } else {
                 currentDataOffset += dataChunk.size;
             }
@@ -0,0 +1,65 @@
+package lang24.server;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A thin client of the {@link CompileServer}: sends its command line arguments
+ * to the server and reproduces the output and the exit code of the
+ * compilation.
+ * <p>
+ * The client should be run as
+ *
+ * <p>
+ * <code>$ java lang24.server.CompileClient [--server=</code><i>port</i><code>]
+ * </code><i>command-line-options...</i>
+ * </p>
+ *
+ * where the command line options are those of {@link lang24.Compiler}.
+ */
+public class CompileClient {
+
+	/** (Unused but included to keep javadoc happy.) */
+	private CompileClient() {
+		throw new InternalError();
+	}
+
+	/**
+	 * Sends a single job to the compile server.
+	 *
+	 * @param opts Command line arguments, optionally preceded by
+	 *             <code>--server=</code><i>port</i>.
+	 */
+	public static void main(final String[] opts) {
+		int port = CompileServer.DEFAULT_PORT;
+		int firstOpt = 0;
+		if (opts.length > 0 && opts[0].startsWith("--server=")) {
+			final String portOpt = opts[0].replaceFirst("^[^=]*=", "");
+			if (!portOpt.isEmpty())
+				port = Integer.parseInt(portOpt);
+			firstOpt = 1;
+		}
+
+		try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeUTF(new File(".").getCanonicalPath());
+			out.writeInt(opts.length - firstOpt);
+			for (int opt = firstOpt; opt < opts.length; opt++)
+				out.writeUTF(opts[opt]);
+			out.flush();
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final int exitCode = in.readInt();
+			System.out.write(in.readNBytes(in.readInt()));
+			System.out.flush();
+			System.err.write(in.readNBytes(in.readInt()));
+			System.err.flush();
+			System.exit(exitCode);
+		} catch (final IOException exception) {
+			System.err.println(":-( Cannot reach compile server on port " + port + ": " + exception.getMessage());
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package lang24.server;
+
+import lang24.Compiler;
+import lang24.common.Compilation;
+import lang24.common.report.Report;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+/**
+ * A compile server: compiles source files sent by {@link CompileClient}s within
+ * a single, already warmed up JVM.
+ * <p>
+ * Every job runs as a separate {@link Compilation} so no state of one job leaks
+ * into another. Jobs are served one at a time, in the order they arrive.
+ */
+public class CompileServer {
+
+	/** The port the server listens on unless specified otherwise. */
+	public static final int DEFAULT_PORT = 2424;
+
+	/** (Unused but included to keep javadoc happy.) */
+	private CompileServer() {
+		throw new Report.InternalError();
+	}
+
+	/**
+	 * Parses the port the compile server listens on.
+	 *
+	 * @param port The port as specified on the command line (empty for the
+	 *             default port).
+	 * @return The port.
+	 */
+	static int parsePort(final String port) {
+		if (port.isEmpty())
+			return DEFAULT_PORT;
+		try {
+			return Integer.parseInt(port);
+		} catch (final NumberFormatException __) {
+			throw new Report.Error("Illegal port '" + port + "'.");
+		}
+	}
+
+	/**
+	 * Starts the compile server on the loopback interface and serves jobs until
+	 * the JVM is terminated.
+	 *
+	 * @param port The port as specified on the command line (empty for the
+	 *             default port).
+	 */
+	public static void serve(final String port) {
+		final int portNum = parsePort(port);
+		try (final ServerSocket serverSocket = new ServerSocket(portNum, 50, InetAddress.getLoopbackAddress())) {
+			Report.info("LANG'24 compile server listening on port " + portNum + ".");
+			while (true) {
+				try (final Socket socket = serverSocket.accept()) {
+					serveJob(socket);
+				} catch (final IOException exception) {
+					Report.warning("Compile job aborted: " + exception.getMessage());
+				}
+			}
+		} catch (final IOException exception) {
+			throw new Report.Error("Cannot start compile server on port " + portNum + ": " + exception.getMessage());
+		}
+	}
+
+	/**
+	 * Serves a single job.
+	 * <p>
+	 * The request consists of the client's working directory followed by the
+	 * number of command line arguments and the arguments themselves. The response
+	 * consists of the exit code followed by the length-prefixed contents of the
+	 * standard output and the standard error stream of the compilation.
+	 *
+	 * @param socket The socket connected to the client.
+	 * @throws IOException If the communication with the client fails.
+	 */
+	private static void serveJob(final Socket socket) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		final String workDir = in.readUTF();
+		final String[] opts = new String[in.readInt()];
+		for (int opt = 0; opt < opts.length; opt++)
+			opts[opt] = in.readUTF();
+
+		final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+		final PrintStream out = new PrintStream(outBytes, true);
+		final PrintStream err = new PrintStream(errBytes, true);
+		final int[] exitCode = { 0 };
+		Compilation.run(new Compilation(Paths.get(workDir), out, err), () -> {
+			try {
+				Compiler.compile(opts);
+			} catch (final Report.Error error) {
+				err.println(error.getMessage());
+				exitCode[0] = 1;
+			} catch (final Throwable throwable) {
+				throwable.printStackTrace(err);
+				exitCode[0] = 1;
+			}
+		});
+
+		final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		dataOut.writeInt(exitCode[0]);
+		dataOut.writeInt(outBytes.size());
+		outBytes.writeTo(dataOut);
+		dataOut.writeInt(errBytes.size());
+		errBytes.writeTo(dataOut);
+		dataOut.flush();
+	}
+
+}
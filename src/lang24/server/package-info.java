@@ -0,0 +1,6 @@
+/**
+ * A compile server and its client: the server keeps the compiler loaded in a
+ * warm JVM so that repeated compilations avoid the JVM start-up and JIT
+ * warm-up costs.
+ */
+package lang24.server;
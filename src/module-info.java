@@ -32,15 +32,82 @@
  * <li><code>--xsl=</code><i>dir-name</i>: The directory where xsl templates
  * used by generated xml report files are stored.</li>
  * 
+ * <li><code>--num-regs=</code><i>number</i>: The number of registers available
+ * for temporaries (8 by default).</li>
+ * 
+ * <li><code>--server=</code><i>port</i>: Instead of compiling, start a compile
+ * server listening on the specified port (2424 if empty) of the loopback
+ * interface; source files are then compiled by running
+ * <code>lang24.server.CompileClient</code> with the same command line
+ * options.</li>
+ * 
+ * <li><code>--jobs=</code><i>number</i>: The number of source files compiled
+ * concurrently in batch mode (the number of available processors by
+ * default).</li>
+ * 
+ * <li><code>--stats</code> or <code>--stats=</code><i>file-name</i>: Print out
+ * the wall time, CPU time, allocated bytes, peak heap usage and phase specific
+ * counters of each phase and, if the file name is specified, write them to a
+ * JSON file as well.</li>
+ * 
+ * <li><code>--cache-dir=</code><i>dir-name</i>: The directory of the cache of
+ * compiled files; a source file compiled before with the same compiler and the
+ * same target phase and number of registers is not compiled again but its
+ * output is taken from the cache. Register allocated code of individual
+ * functions is cached as well (unless a phase is logged), so that only
+ * functions changed since the last compilation pass through the backend.</li>
+ * 
+ * <li><code>--cache-size=</code><i>megabytes</i>: The cap on the total size of
+ * the cache (64 MB by default); the least recently used files are evicted
+ * first.</li>
+ * 
+ * <li><code>--profile-parser</code>: Print out the parser's decision
+ * statistics (invocations, time spent in prediction, lookahead depths and
+ * ambiguities of each decision), the most expensive decisions first.</li>
+ * 
+ * <li><code>--fused-seman</code>: Resolve names and lvalues within a single
+ * traversal of the abstract syntax tree; the results and the errors reported
+ * are the same.</li>
+ * 
+ * <li><code>--parallel-seman</code>: Resolve declarations first and then
+ * type check the bodies of top-level functions in parallel; errors are reported
+ * in the order of the bodies regardless of scheduling.</li>
+ * 
+ * <li><code>--interned-symbols</code>: Resolve names using a symbol table with
+ * interned names and an undo log instead of lists of definitions; the results
+ * and the errors reported are the same.</li>
+ * 
+ * <li><code>--packed-layout</code>: Store chars and bools in a single byte
+ * instead of eight within arrays, records, variables and string constants.</li>
+ * 
+ * <li><code>--fold-constants</code>: Fold constants and simplify the
+ * intermediate code of functions before it is linearized.</li>
+ * 
+ * <li><code>--short-circuit</code>: Evaluate the second operand of
+ * <code>and</code> and <code>or</code> only if the first one does not decide
+ * the result.</li>
+ * 
+ * <li><code>--value-numbering</code>: Eliminate common subexpressions from
+ * the linearized code of functions.</li>
+ * <li><code>--ssa</code>: Translate the linearized code of functions into SSA
+ * form and back.</li>
+ * <li><code>--propagate-constants</code>: Propagate constants through the
+ * linearized code of functions in SSA form and remove unreachable code.</li>
+ * 
  * </ul>
  * 
  * The source file can be specified by its name only, i.e., without
  * <code>--src-file-name</code>. If the source file is not specified, the last
- * modified .p24 file found in the working directory is used.
+ * modified .p24 file found in the working directory is used. If more than one
+ * source file or a directory is specified, all source files (and all .lang24
+ * files within the directories) are compiled concurrently and the throughput
+ * is reported.
  * 
  * @author bostjan.slivnik@fri.uni-lj.si
  */
 module lang24compiler {
 	requires java.xml;
+	requires jdk.jfr;
+	requires jdk.management;
     requires org.antlr.antlr4.runtime;
 }